@@ -0,0 +1,55 @@
+// Teste de carga comparando a API bloqueante (/posts) com a reativa (/reactive/posts).
+// Requer o k6 (https://k6.io) e a aplicação rodando com dados (ex: perfil de carga).
+//
+//   k6 run -e MODE=blocking loadtest/blocking-vs-reactive.js
+//   k6 run -e MODE=reactive loadtest/blocking-vs-reactive.js
+//
+// Compare "http_req_duration" (p95/p99) e "http_reqs" (vazão) entre as duas execuções
+// com o mesmo número de usuários virtuais.
+//
+// Cada execução grava o resumo em loadtest/results-<MODE>-<data>.json (rode da raiz
+// do projeto). Junte ao commit os dois arquivos de uma mesma máquina e massa de
+// dados, com a versão do MongoDB e o número de posts no commit: sem isso os números
+// não são comparáveis.
+import http from 'k6/http';
+import { check } from 'k6';
+import { textSummary } from 'https://jslib.k6.io/k6-summary/0.0.2/index.js';
+
+const BASE = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE === 'reactive' ? 'reactive' : 'blocking';
+const PREFIX = MODE === 'reactive' ? '/reactive/posts' : '/posts';
+const TERMS = ['a', 'dia', 'viagem', 'bom', 'feliz'];
+
+export const options = {
+	scenarios: {
+		search: {
+			executor: 'ramping-vus',
+			startVUs: 10,
+			stages: [
+				{ duration: '30s', target: 200 },
+				{ duration: '1m', target: 400 },
+				{ duration: '30s', target: 0 },
+			],
+		},
+	},
+};
+
+export default function () {
+	const term = TERMS[Math.floor(Math.random() * TERMS.length)];
+	const res = http.get(`${BASE}${PREFIX}/fullsearch?text=${term}&mode=regex`);
+	check(res, { 'status 200': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+	const day = new Date().toISOString().slice(0, 10);
+	return {
+		stdout: textSummary(data, { indent: ' ', enableColors: true }),
+		[`loadtest/results-${MODE}-${day}.json`]: JSON.stringify({
+			mode: MODE,
+			date: new Date().toISOString(),
+			requests: data.metrics.http_reqs.values,
+			duration: data.metrics.http_req_duration.values,
+			failed: data.metrics.http_req_failed.values,
+		}, null, 2),
+	};
+}
@@ -0,0 +1,74 @@
+package com.thalesoliveira.workshopmongo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.AuthorDTO;
+import com.thalesoliveira.workshopmongo.dto.UserDTO;
+
+// Conversão de entidades para DTOs: um objeto isolado e uma lista inteira,
+// do jeito que o UserResource.findAll fazia (stream().map(UserDTO::new)).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+	// Tamanho da lista: uma página padrão, uma página máxima e uma coleção maior
+	@Param({ "20", "100", "10000" })
+	private int size;
+
+	private User user;
+	private List<User> users;
+
+	@Setup
+	public void setup() {
+		user = new User("65a0f0c2e4b0a1b2c3d4e5f6", "Maria Brown", "maria@gmail.com");
+		users = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			users.add(new User(String.format("%024x", i), "User " + i, "user" + i + "@gmail.com"));
+		}
+	}
+
+	@Benchmark
+	public UserDTO userDto() {
+		return new UserDTO(user);
+	}
+
+	@Benchmark
+	public AuthorDTO authorDto() {
+		return new AuthorDTO(user);
+	}
+
+	@Benchmark
+	public List<UserDTO> listStream() {
+		return users.stream().map(x -> new UserDTO(x)).collect(Collectors.toList());
+	}
+
+	// Mesmo resultado com laço simples e lista já no tamanho certo, para comparação
+	@Benchmark
+	public List<UserDTO> listLoop() {
+		List<UserDTO> list = new ArrayList<>(users.size());
+		for (User x : users) {
+			list.add(new UserDTO(x));
+		}
+		return list;
+	}
+}
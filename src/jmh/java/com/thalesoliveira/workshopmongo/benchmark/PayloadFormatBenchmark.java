@@ -0,0 +1,103 @@
+package com.thalesoliveira.workshopmongo.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thalesoliveira.workshopmongo.config.BinaryFormatsConfig;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.AuthorDTO;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+// Uma página de posts (o corpo de GET /users/{id}/posts) em cada formato aceito
+// pela API (ver BinaryFormatsConfig): tempo para codificar e, no contador "bytes"
+// do resultado (@AuxCounters), o tamanho em bytes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadFormatBenchmark {
+
+	@Param({ "json", "cbor", "smile" })
+	private String format;
+
+	// Comentários embutidos em cada post
+	@Param({ "0", "10", "100" })
+	private int comments;
+
+	private static final int POSTS = 20;
+
+	private ObjectMapper mapper;
+	private List<Post> posts;
+
+	// Tamanho da página codificada, relatado pelo JMH ao lado do tempo. É
+	// sobrescrito (não somado) a cada chamada: o valor no fim da iteração é o tamanho
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Size {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		// Mesmos mappers da API, a partir de um JSON com a configuração padrão
+		JsonMapper json = JsonMapper.builder().build();
+		mapper = switch (format) {
+			case "cbor" -> BinaryFormatsConfig.cborMapper(json);
+			case "smile" -> BinaryFormatsConfig.smileMapper(json);
+			default -> json;
+		};
+
+		AuthorDTO maria = new AuthorDTO(new User("65a0f0c2e4b0a1b2c3d4e5f6", "Maria Brown", "maria@gmail.com"));
+		AuthorDTO alex = new AuthorDTO(new User("65a0f0c2e4b0a1b2c3d4e5f7", "Alex Green", "alex@gmail.com"));
+		AuthorDTO bob = new AuthorDTO(new User("65a0f0c2e4b0a1b2c3d4e5f8", "Bob Grey", "bob@gmail.com"));
+		long now = System.currentTimeMillis();
+
+		posts = new ArrayList<>(POSTS);
+		for (int p = 0; p < POSTS; p++) {
+			Post post = new Post(String.format("65a0f0c2e4b0a1b2c3d4%04x", p), new Date(now - p * 3_600_000L),
+					"Partiu viagem " + p, "Vou viajar para São Paulo. Abraços! Post número " + p, maria);
+			List<CommentDTO> list = new ArrayList<>(comments);
+			for (int i = 0; i < comments; i++) {
+				list.add(new CommentDTO("Boa viagem mano! Comentário " + i, new Date(now - i * 60_000L),
+						i % 2 == 0 ? alex : bob));
+			}
+			post.setComments(list);
+			post.setCommentCount(comments);
+			posts.add(post);
+		}
+	}
+
+	@Benchmark
+	public byte[] encode(Size size) {
+		byte[] encoded = mapper.writeValueAsBytes(posts);
+		size.bytes = encoded.length;
+		return encoded;
+	}
+}
@@ -0,0 +1,65 @@
+package com.thalesoliveira.workshopmongo.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.AuthorDTO;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+// Serialização JSON de um Post (o corpo de GET /posts/{id}) conforme o número de
+// comentários embutidos cresce.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostSerializationBenchmark {
+
+	@Param({ "0", "10", "1000" })
+	private int comments;
+
+	private ObjectMapper mapper;
+	private Post post;
+
+	@Setup
+	public void setup() {
+		mapper = JsonMapper.builder().build();
+
+		AuthorDTO maria = new AuthorDTO(new User("65a0f0c2e4b0a1b2c3d4e5f6", "Maria Brown", "maria@gmail.com"));
+		AuthorDTO alex = new AuthorDTO(new User("65a0f0c2e4b0a1b2c3d4e5f7", "Alex Green", "alex@gmail.com"));
+		post = new Post("65a0f0c2e4b0a1b2c3d4e600", new Date(), "Partiu viagem",
+				"Vou viajar para São Paulo. Abraços!", maria);
+
+		List<CommentDTO> list = new ArrayList<>(comments);
+		for (int i = 0; i < comments; i++) {
+			list.add(new CommentDTO("Boa viagem mano! Comentário " + i, new Date(), alex));
+		}
+		post.setComments(list);
+		post.setCommentCount(comments);
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		return mapper.writeValueAsBytes(post);
+	}
+}
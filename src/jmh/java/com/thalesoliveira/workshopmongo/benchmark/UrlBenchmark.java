@@ -0,0 +1,51 @@
+package com.thalesoliveira.workshopmongo.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thalesoliveira.workshopmongo.resources.util.URL;
+
+// Conversão dos parâmetros de URL, que roda em toda busca.
+// convertDate cria um SimpleDateFormat a cada chamada: compare o tempo e o
+// gc.alloc.rate.norm (bytes por chamada) entre data válida e inválida.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBenchmark {
+
+	private static final Date DEFAULT_DATE = new Date(0L);
+
+	@Benchmark
+	public String decodeParamPlain() {
+		return URL.decodeParam("viagem");
+	}
+
+	@Benchmark
+	public String decodeParamEncoded() {
+		return URL.decodeParam("bom%20dia%20S%C3%A3o%20Paulo");
+	}
+
+	@Benchmark
+	public Date convertDateValid() {
+		return URL.convertDate("2026-01-15", DEFAULT_DATE);
+	}
+
+	// Parâmetro ausente ou inválido: cai no valor padrão depois da ParseException
+	@Benchmark
+	public Date convertDateInvalid() {
+		return URL.convertDate("", DEFAULT_DATE);
+	}
+}
@@ -2,8 +2,14 @@ package com.thalesoliveira.workshopmongo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+// Habilita as tarefas agendadas (@Scheduled), como a propagação de nomes de autor
+@EnableScheduling
+// Preenche os campos @LastModifiedDate a cada gravação
+@EnableMongoAuditing
 public class WorkshopmongoApplication {
 
 	public static void main(String[] args) {
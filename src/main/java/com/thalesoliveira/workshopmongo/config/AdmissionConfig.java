@@ -0,0 +1,64 @@
+package com.thalesoliveira.workshopmongo.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.thalesoliveira.workshopmongo.resources.util.AdmissionInterceptor;
+import com.thalesoliveira.workshopmongo.services.limit.AdaptiveLimiter;
+
+// Controle de admissão por classe de endpoint, cada uma com seu próprio limite
+// adaptativo de requisições simultâneas (ver AdaptiveLimiter):
+// - search: buscas por texto, que podem virar varreduras caras no Mongo
+// - list: listagens paginadas
+// As consultas por ID (/posts/{id}, /users/{id}) ficam de fora: uma rajada de
+// buscas esgota a vaga das buscas, não a delas. As exportações em stream
+// (/posts/stream, /users/stream) também, de propósito: duram o tempo que o cliente
+// levar para ler a coleção inteira e ocupariam as vagas das listagens.
+// Limites em app.limits.*
+// e o estado atual em localhost:8080/metrics/limits.
+@Configuration
+public class AdmissionConfig implements WebMvcConfigurer {
+
+	@Autowired
+	@Qualifier("searchLimiter")
+	private AdaptiveLimiter searchLimiter;
+
+	@Autowired
+	@Qualifier("listLimiter")
+	private AdaptiveLimiter listLimiter;
+
+	@Value("${app.limits.retry-after-s:1}")
+	private int retryAfterSeconds;
+
+	// 'static': os limitadores são injetados nesta mesma classe (campos acima)
+	@Bean
+	public static AdaptiveLimiter searchLimiter(@Value("${app.limits.search.initial:8}") int initial,
+			@Value("${app.limits.search.min:1}") int min, @Value("${app.limits.search.max:64}") int max,
+			@Value("${app.limits.search.queue:16}") int queue,
+			@Value("${app.limits.search.queue-timeout-ms:200}") long queueTimeout,
+			@Value("${app.limits.search.target-ms:250}") long target) {
+		return new AdaptiveLimiter("search", initial, min, max, queue, queueTimeout, target);
+	}
+
+	@Bean
+	public static AdaptiveLimiter listLimiter(@Value("${app.limits.list.initial:32}") int initial,
+			@Value("${app.limits.list.min:4}") int min, @Value("${app.limits.list.max:128}") int max,
+			@Value("${app.limits.list.queue:64}") int queue,
+			@Value("${app.limits.list.queue-timeout-ms:200}") long queueTimeout,
+			@Value("${app.limits.list.target-ms:100}") long target) {
+		return new AdaptiveLimiter("list", initial, min, max, queue, queueTimeout, target);
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new AdmissionInterceptor(searchLimiter, retryAfterSeconds))
+				.addPathPatterns("/posts/titlesearch", "/posts/fullsearch");
+		registry.addInterceptor(new AdmissionInterceptor(listLimiter, retryAfterSeconds)).addPathPatterns("/posts",
+				"/posts/*/comments", "/users", "/users/*/posts", "/users/*/feed", "/analytics/**");
+	}
+}
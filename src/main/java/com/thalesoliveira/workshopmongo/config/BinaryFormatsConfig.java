@@ -0,0 +1,77 @@
+package com.thalesoliveira.workshopmongo.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.MapperFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.cfg.DateTimeFeature;
+import tools.jackson.databind.cfg.MapperBuilder;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+// Formatos binários nas respostas, escolhidos pelo cabeçalho Accept:
+// - application/cbor
+// - application/x-jackson-smile
+// Os mesmos objetos e anotações do JSON, só a codificação muda: números e datas
+// em binário e, no Smile, nomes de campo repetidos (os de cada CommentDTO de uma
+// lista de posts) enviados uma vez só e depois referenciados.
+// Os mappers copiam a configuração do JSON da aplicação (o ObjectMapper do Spring
+// Boot, com as propriedades spring.jackson.* e os módulos dele); a única diferença
+// é que as datas vão como timestamp (milissegundos), não como texto.
+// O ETag de cada resposta leva o formato (ver Conditional).
+//
+// Os conversores entram no FIM da lista: quem não pede nada (ou pede */*)
+// continua recebendo JSON. Comparação de tamanho e tempo em
+// src/jmh/java (PayloadFormatBenchmark).
+@Configuration
+public class BinaryFormatsConfig implements WebMvcConfigurer {
+
+	// Conversor JSON configurado pelo Spring Boot
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		// O Spring já registra os dois quando as bibliotecas estão no classpath, mas
+		// com os mappers padrão: troca pelos daqui, sempre depois do JSON
+		converters.removeIf(c -> c instanceof JacksonCborHttpMessageConverter
+				|| c instanceof JacksonSmileHttpMessageConverter);
+		converters.add(new JacksonCborHttpMessageConverter(cborMapper(objectMapper)));
+		converters.add(new JacksonSmileHttpMessageConverter(smileMapper(objectMapper)));
+	}
+
+	public static CBORMapper cborMapper(ObjectMapper json) {
+		return sameSettings(CBORMapper.builder(), json).build();
+	}
+
+	public static SmileMapper smileMapper(ObjectMapper json) {
+		return sameSettings(SmileMapper.builder(), json).build();
+	}
+
+	// As mesmas opções e módulos do mapper JSON, com as datas em timestamp
+	private static <B extends MapperBuilder<?, B>> B sameSettings(B builder, ObjectMapper json) {
+		for (MapperFeature f : MapperFeature.values()) {
+			builder.configure(f, json.isEnabled(f));
+		}
+		for (SerializationFeature f : SerializationFeature.values()) {
+			builder.configure(f, json.isEnabled(f));
+		}
+		for (DeserializationFeature f : DeserializationFeature.values()) {
+			builder.configure(f, json.isEnabled(f));
+		}
+		for (DateTimeFeature f : DateTimeFeature.values()) {
+			builder.configure(f, json.isEnabled(f));
+		}
+		builder.addModules(json.registeredModules());
+		return builder.enable(DateTimeFeature.WRITE_DATES_AS_TIMESTAMPS);
+	}
+}
@@ -0,0 +1,78 @@
+package com.thalesoliveira.workshopmongo.config;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.services.cache.BatchLoader;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+
+// Cria os caches usados pelo PostService e pelo UserService.
+// Os limites podem ser ajustados no application.properties (app.cache.*).
+@Configuration
+public class CacheConfig {
+
+	@Bean
+	public EntityCache<Post> postCache(@Value("${app.cache.posts.max-size:10000}") int maxSize,
+			@Value("${app.cache.ttl-ms:60000}") long ttl,
+			@Value("${app.cache.negative-ttl-ms:2000}") long negativeTtl) {
+		return new EntityCache<>("posts", maxSize, ttl, negativeTtl, Post::new);
+	}
+
+	@Bean
+	public EntityCache<User> userCache(@Value("${app.cache.users.max-size:10000}") int maxSize,
+			@Value("${app.cache.ttl-ms:60000}") long ttl,
+			@Value("${app.cache.negative-ttl-ms:2000}") long negativeTtl) {
+		return new EntityCache<>("users", maxSize, ttl, negativeTtl, User::new);
+	}
+
+	// IDs dos resultados das buscas de posts por texto (ver PostService). Validade
+	// curta: a chave já muda a cada gravação relevante, o TTL só limita a memória.
+	// As listas são imutáveis (List.copyOf devolve a mesma lista quando ela já é)
+	@Bean
+	public EntityCache<List<String>> searchCache(@Value("${app.cache.searches.max-size:1000}") int maxSize,
+			@Value("${app.cache.searches.ttl-ms:30000}") long ttl) {
+		return new EntityCache<>("searches", maxSize, ttl, ttl, List::copyOf);
+	}
+
+	// Faltas do postCache/userCache: buscas por ID simultâneas viram um $in só (ver
+	// BatchLoader). 'window-us' = quanto a primeira espera por outras (0 desliga)
+	@Bean
+	public BatchLoader<Post> postBatchLoader(MongoTemplate mongoTemplate,
+			@Value("${app.batch.max-size:100}") int maxSize,
+			@Value("${app.batch.window-us:1000}") long windowMicros) {
+		return new BatchLoader<>("posts", ids -> byId(mongoTemplate.find(byIds(ids), Post.class), Post::getId),
+				maxSize, windowMicros, Post::new);
+	}
+
+	@Bean
+	public BatchLoader<User> userBatchLoader(MongoTemplate mongoTemplate,
+			@Value("${app.batch.max-size:100}") int maxSize,
+			@Value("${app.batch.window-us:1000}") long windowMicros) {
+		return new BatchLoader<>("users", ids -> byId(mongoTemplate.find(byIds(ids), User.class), User::getId),
+				maxSize, windowMicros, User::new);
+	}
+
+	private static Query byIds(Collection<String> ids) {
+		return new Query(Criteria.where("id").in(ids));
+	}
+
+	private static <T> Map<String, T> byId(List<T> list, Function<T, String> id) {
+		Map<String, T> map = new HashMap<>();
+		for (T obj : list) {
+			map.put(id.apply(obj), obj);
+		}
+		return map;
+	}
+}
@@ -0,0 +1,340 @@
+package com.thalesoliveira.workshopmongo.config;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.model.InsertManyOptions;
+import com.thalesoliveira.workshopmongo.domain.CommentBucket;
+import com.thalesoliveira.workshopmongo.domain.Follow;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.AuthorDTO;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.services.AnalyticsService;
+import com.thalesoliveira.workshopmongo.services.CollectionVersionService;
+import com.thalesoliveira.workshopmongo.services.index.IndexManager;
+
+// Gerador de dados sintéticos para testes de carga. Só roda com o perfil "datagen":
+//
+//   ./mvnw spring-boot:run -Dspring-boot.run.profiles=datagen \
+//       -Dspring-boot.run.arguments="--app.datagen.users=100000 --app.datagen.posts=10000000"
+//
+// APAGA as coleções "user", "post", "comment_bucket" e "follow" (os pares de quem
+// segue quem apontariam para usuários que não existem mais) e gera:
+// - 'users' usuários;
+// - 'posts' posts, com autores sorteados de forma desigual (poucos autores escrevem
+//   a maioria dos posts, controlado por 'author-skew') e corpo de tamanho variável
+//   (a maioria curta, alguns bem longos);
+// - comentários por post com cauda longa (a maioria tem poucos, alguns têm centenas),
+//   gravados como o CommentService grava: histórico nos baldes e, no post, a contagem
+//   e os mais recentes.
+//
+// Os dados são reproduzíveis: a mesma 'seed' gera exatamente os mesmos documentos
+// (inclusive IDs), não importa quantas threads. Cada lote de 'chunk-size' documentos
+// tem o próprio gerador aleatório, derivado da seed e do número do lote, e é gravado
+// por uma thread com um insertMany não ordenado. Os IDs (usuários, posts, baldes e
+// comentários) não vêm do gerador: são calculados a partir do número do documento.
+@Configuration
+@Profile("datagen")
+@Order(0)
+public class DataGenerator implements CommandLineRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(DataGenerator.class);
+
+	// Timestamp dos ObjectIds gerados (2026-01-01), diferente para cada tipo
+	private static final int USER_ID_EPOCH = 1767225600;
+	private static final int POST_ID_EPOCH = USER_ID_EPOCH + 1;
+	private static final int BUCKET_ID_EPOCH = USER_ID_EPOCH + 2;
+
+	private static final String[] FIRST_NAMES = { "Maria", "Alex", "Bob", "Ana", "João", "Pedro", "Julia", "Lucas",
+			"Fernanda", "Rafael", "Camila", "Bruno", "Larissa", "Thiago", "Beatriz", "Gabriel", "Mariana", "Felipe",
+			"Letícia", "Gustavo" };
+	private static final String[] LAST_NAMES = { "Brown", "Green", "Grey", "Silva", "Santos", "Oliveira", "Souza",
+			"Lima", "Pereira", "Costa", "Rodrigues", "Almeida", "Nascimento", "Carvalho", "Ribeiro", "Martins" };
+	private static final String[] WORDS = ("viagem dia bom feliz hoje amanhã cidade praia trabalho casa família "
+			+ "amigos café música filme livro projeto código banco dados rápido lento semana noite manhã tarde "
+			+ "são paulo rio janeiro abraços obrigado parabéns festa jogo time vitória chuva sol frio calor "
+			+ "comida almoço jantar viajar voltar conhecer aprender novo velho grande pequeno").split(" ");
+	private static final String[] COMMENTS = { "Boa viagem, mano", "Aproveite", "Tenha um ótimo dia", "Top demais!",
+			"Concordo", "Que legal", "Parabéns!", "Muito bom", "Saudades", "Vamos marcar" };
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private IndexManager indexManager;
+
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	// A carga grava direto na coleção, sem eventos: os resumos são recalculados no fim
+	@Autowired
+	private AnalyticsService analytics;
+
+	@Value("${app.datagen.users:1000}")
+	private int users;
+
+	@Value("${app.datagen.posts:10000}")
+	private long posts;
+
+	@Value("${app.datagen.seed:42}")
+	private long seed;
+
+	@Value("${app.datagen.threads:0}")
+	private int threads;
+
+	@Value("${app.datagen.chunk-size:1000}")
+	private int chunkSize;
+
+	// Expoente do sorteio do autor: 1 = uniforme; quanto maior, mais concentrado
+	@Value("${app.datagen.author-skew:3.0}")
+	private double authorSkew;
+
+	// Período (em dias, até hoje) em que caem as datas dos posts
+	@Value("${app.datagen.days:365}")
+	private int days;
+
+	@Value("${app.datagen.max-comments:500}")
+	private int maxComments;
+
+	// Mesmos limites usados pelo CommentService
+	@Value("${app.comments.bucket-size:100}")
+	private int bucketSize;
+
+	@Value("${app.comments.latest-size:10}")
+	private int latestSize;
+
+	// Ponto fixo de referência para as datas (reproduzível durante o dia da carga)
+	private long now;
+
+	@Override
+	public void run(String... args) throws Exception {
+		// Valida antes de apagar qualquer coisa
+		if (users < 1 && posts > 0) {
+			throw new IllegalArgumentException("app.datagen.users deve ser maior que zero para gerar posts");
+		}
+		if (users < 0 || posts < 0 || chunkSize < 1 || bucketSize < 1) {
+			throw new IllegalArgumentException("Parâmetros inválidos para o gerador de dados");
+		}
+		now = System.currentTimeMillis() / TimeUnit.DAYS.toMillis(1) * TimeUnit.DAYS.toMillis(1);
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		log.info("Gerando {} usuários e {} posts (seed {}, {} threads)", users, posts, seed, poolSize);
+		long start = System.currentTimeMillis();
+
+		// Apagar as coleções (drop) é instantâneo e, sem os índices, a carga fica mais
+		// rápida: os índices são construídos de uma vez no final
+		mongoTemplate.dropCollection(User.class);
+		mongoTemplate.dropCollection(Post.class);
+		mongoTemplate.dropCollection(CommentBucket.class);
+		mongoTemplate.dropCollection(Follow.class);
+
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+		try {
+			AtomicLong comments = new AtomicLong();
+			generate(pool, "usuários", users, this::userChunk);
+			generate(pool, "posts", posts, chunk -> postChunk(chunk, comments));
+			log.info("Carga concluída: {} comentários, {} s; criando índices", comments.get(),
+					(System.currentTimeMillis() - start) / 1000);
+		} finally {
+			pool.shutdownNow();
+		}
+		indexManager.ensureIndexes();
+		analytics.rebuild();
+		// Listagens em cache nos clientes (ETag) deixam de valer
+		collectionVersions.bump(User.class);
+		collectionVersions.bump(Post.class, CollectionVersionService.TITLES);
+		log.info("Dados gerados em {} s", (System.currentTimeMillis() - start) / 1000);
+	}
+
+	// Divide [0, total) em lotes e grava todos em paralelo, esperando o fim
+	private void generate(ExecutorService pool, String what, long total, ChunkWriter writer)
+			throws InterruptedException, ExecutionException {
+		long chunks = (total + chunkSize - 1) / chunkSize;
+		List<Future<?>> pending = new ArrayList<>();
+		for (long chunk = 0; chunk < chunks; chunk++) {
+			long c = chunk;
+			pending.add(pool.submit(() -> writer.write(c)));
+		}
+		long done = 0;
+		for (Future<?> f : pending) {
+			f.get();
+			if (++done % 1000 == 0) {
+				log.info("{}: {} de {}", what, Math.min(done * chunkSize, total), total);
+			}
+		}
+	}
+
+	private void userChunk(long chunk) {
+		long first = chunk * chunkSize;
+		long last = Math.min(users, first + chunkSize);
+		List<Document> docs = new ArrayList<>(chunkSize);
+		for (long i = first; i < last; i++) {
+			User user = new User(userId(i), userName(i), "user" + i + "@example.com");
+			user.setVersion(0L);
+			user.setLastModified(new Date(now));
+			docs.add(toDocument(user));
+		}
+		insert(User.class, docs);
+	}
+
+	private void postChunk(long chunk, AtomicLong commentTotal) {
+		SplittableRandom random = new SplittableRandom(seed ^ (chunk * 0x9E3779B97F4A7C15L));
+		long first = chunk * chunkSize;
+		long last = Math.min(posts, first + chunkSize);
+		List<Document> postDocs = new ArrayList<>(chunkSize);
+		List<Document> bucketDocs = new ArrayList<>();
+
+		for (long i = first; i < last; i++) {
+			Date date = new Date(now - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(days)));
+			Post post = new Post(postId(i), date, text(random, 2 + random.nextInt(5)), body(random),
+					author(pickAuthor(random)));
+
+			List<CommentDTO> comments = comments(random, date);
+			// Mesmo ID que a migração do CommentService daria: ID do post + posição
+			for (int c = 0; c < comments.size(); c++) {
+				comments.get(c).setId(post.getId() + "-" + c);
+			}
+			post.setCommentCount(comments.size());
+			post.setVersion(0L);
+			post.setLastModified(new Date(now));
+			post.setComments(new ArrayList<>(comments.subList(Math.max(0, comments.size() - latestSize), comments.size())));
+			postDocs.add(toDocument(post));
+
+			for (int seq = 0; seq * bucketSize < comments.size(); seq++) {
+				List<CommentDTO> part = comments.subList(seq * bucketSize, Math.min(comments.size(), (seq + 1) * bucketSize));
+				CommentBucket bucket = new CommentBucket();
+				bucket.setId(bucketId(i, seq));
+				bucket.setPostId(post.getId());
+				bucket.setSeq(seq);
+				bucket.setCount(part.size());
+				bucket.setStart(seq * bucketSize);
+				bucket.setFirstDate(part.get(0).getDate());
+				bucket.setLastDate(part.get(part.size() - 1).getDate());
+				bucket.setComments(new ArrayList<>(part));
+				bucketDocs.add(toDocument(bucket));
+			}
+			commentTotal.addAndGet(comments.size());
+		}
+		insert(Post.class, postDocs);
+		insert(CommentBucket.class, bucketDocs);
+	}
+
+	// Autor sorteado com viés: u^skew concentra os sorteios nos primeiros usuários
+	private long pickAuthor(SplittableRandom random) {
+		return Math.min(users - 1, (long) (users * Math.pow(random.nextDouble(), authorSkew)));
+	}
+
+	// Número de comentários com cauda longa (log-normal): mediana ~2, alguns centenas
+	private List<CommentDTO> comments(SplittableRandom random, Date postDate) {
+		int count = (int) Math.min(maxComments, Math.floor(Math.exp(1.0 + 1.2 * gaussian(random)) - 1));
+		List<CommentDTO> comments = new ArrayList<>(Math.max(0, count));
+		long date = postDate.getTime();
+		for (int i = 0; i < count; i++) {
+			// Em ordem cronológica, como o CommentService grava
+			date += (long) (random.nextDouble() * TimeUnit.HOURS.toMillis(6));
+			comments.add(new CommentDTO(COMMENTS[random.nextInt(COMMENTS.length)], new Date(date),
+					author(random.nextLong(users))));
+		}
+		return comments;
+	}
+
+	// Corpo com tamanho log-normal: a maioria com algumas dezenas de palavras,
+	// poucos com milhares
+	private String body(SplittableRandom random) {
+		int words = (int) Math.max(3, Math.min(5000, Math.exp(3.5 + 1.0 * gaussian(random))));
+		return text(random, words);
+	}
+
+	private static String text(SplittableRandom random, int words) {
+		StringBuilder sb = new StringBuilder(words * 8);
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+		return sb.toString();
+	}
+
+	// Normal padrão (Box-Muller): o SplittableRandom não tem nextGaussian
+	private static double gaussian(SplittableRandom random) {
+		return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+	}
+
+	// O nome e o ID de um usuário dependem só do número dele, então os posts podem
+	// montar o AuthorDTO sem consultar (nem guardar em memória) os usuários
+	private AuthorDTO author(long user) {
+		AuthorDTO author = new AuthorDTO();
+		author.setId(userId(user));
+		author.setName(userName(user));
+		return author;
+	}
+
+	private static String userName(long i) {
+		return FIRST_NAMES[(int) (i % FIRST_NAMES.length)] + " "
+				+ LAST_NAMES[(int) (i / FIRST_NAMES.length % LAST_NAMES.length)] + " " + i;
+	}
+
+	private static String userId(long i) {
+		return objectId(USER_ID_EPOCH, i);
+	}
+
+	private static String postId(long i) {
+		return objectId(POST_ID_EPOCH, i);
+	}
+
+	// Balde 'seq' do post 'post': cada post tem espaço para o máximo de baldes possível
+	private String bucketId(long post, int seq) {
+		long perPost = Math.max(1, (maxComments + bucketSize - 1) / bucketSize);
+		return objectId(BUCKET_ID_EPOCH, post * perPost + seq);
+	}
+
+	// ObjectId determinístico: timestamp fixo do tipo e o número nos 8 bytes seguintes.
+	// (O construtor (timestamp, contador) do driver preenche o meio com um valor
+	// aleatório por processo, então o ID mudaria a cada execução)
+	private static String objectId(int epoch, long i) {
+		return new ObjectId(ByteBuffer.allocate(12).putInt(epoch).putLong(i).array()).toHexString();
+	}
+
+	// Converte com o mesmo mapeamento do Spring Data (ex: id -> _id como ObjectId)
+	// sem disparar os eventos de gravação: cache e índice de busca são montados
+	// depois, quando a aplicação termina de subir
+	private Document toDocument(Object entity) {
+		Document doc = new Document();
+		mongoTemplate.getConverter().write(entity, doc);
+		return doc;
+	}
+
+	private void insert(Class<?> type, List<Document> docs) {
+		if (!docs.isEmpty()) {
+			mongoTemplate.getCollection(mongoTemplate.getCollectionName(type)).insertMany(docs,
+					new InsertManyOptions().ordered(false));
+		}
+	}
+
+	private interface ChunkWriter {
+		void write(long chunk);
+	}
+}
@@ -0,0 +1,67 @@
+package com.thalesoliveira.workshopmongo.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.thalesoliveira.workshopmongo.resources.util.RequestPhaseInterceptor;
+import com.thalesoliveira.workshopmongo.services.metrics.LatencyMetrics;
+import com.thalesoliveira.workshopmongo.services.metrics.MongoCommandTimer;
+import com.thalesoliveira.workshopmongo.services.metrics.SlowQueryLog;
+
+// Liga a instrumentação de latência (ver localhost:8080/metrics/mongo,
+// /metrics/requests e /metrics/slow-queries):
+// - registra o MongoCommandTimer no cliente do MongoDB criado pelo Spring Boot;
+// - marca cada chamada de método de repositório, para que os comandos enviados
+//   ao banco saiam etiquetados com o método (ex: PostRepository.fullSearch);
+// - cronometra as fases das requisições de /posts e /users.
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	@Bean
+	public MongoClientSettingsBuilderCustomizer mongoCommandTimer(SlowQueryLog slowQueryLog) {
+		MongoCommandTimer timer = new MongoCommandTimer(latencyMetrics, slowQueryLog);
+		return settings -> settings.addCommandListener(timer);
+	}
+
+	// 'static' porque um BeanPostProcessor precisa existir antes dos demais beans.
+	// Ele acrescenta um interceptador ao proxy de cada repositório do Spring Data.
+	@Bean
+	public static BeanPostProcessor repositoryOperationTagger() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+					factoryBean.addRepositoryFactoryCustomizer(factory -> factory
+							.addRepositoryProxyPostProcessor((proxy, info) -> {
+								String repository = info.getRepositoryInterface().getSimpleName();
+								proxy.addAdvice((MethodInterceptor) invocation -> {
+									String previous = MongoCommandTimer
+											.enterOperation(repository + "." + invocation.getMethod().getName());
+									try {
+										return invocation.proceed();
+									} finally {
+										MongoCommandTimer.restoreOperation(previous);
+									}
+								});
+							}));
+				}
+				return bean;
+			}
+		};
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new RequestPhaseInterceptor(latencyMetrics)).addPathPatterns("/posts/**", "/users/**");
+	}
+}
@@ -0,0 +1,39 @@
+package com.thalesoliveira.workshopmongo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import com.thalesoliveira.workshopmongo.dto.IndexReportDTO;
+import com.thalesoliveira.workshopmongo.services.index.IndexManager;
+
+// Cria os índices que as consultas precisam assim que a aplicação sobe e avisa no
+// log o que não está como declarado (ver IndexManager e localhost:8080/metrics/indexes).
+// Roda antes de qualquer outro CommandLineRunner (ex: DataGenerator).
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MongoIndexConfig implements CommandLineRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+	@Autowired
+	private IndexManager indexManager;
+
+	@Override
+	public void run(String... args) throws Exception {
+		indexManager.ensureIndexes();
+
+		// Índices sem uso ainda não dizem nada logo na subida (os contadores do Mongo
+		// zeram quando o servidor reinicia): aqui só o que falta ou sobra
+		for (IndexReportDTO index : indexManager.report()) {
+			if (!IndexManager.OK.equals(index.getStatus()) && !IndexManager.UNUSED.equals(index.getStatus())) {
+				log.warn("Índice {}.{} ({}): {}", index.getCollection(), index.getName(), index.getStatus(),
+						index.getError() == null ? index.getKeys() : index.getError());
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Resumo de um autor em um dia (UTC): quantos posts publicou e quantos comentários
+// escreveu. O _id é "<id do autor>:<yyyy-MM-dd>", então os dias de um autor ficam
+// em sequência no índice do _id e um intervalo de datas é uma leitura por faixa,
+// sem índice extra. Mantido pelo AnalyticsService a cada gravação.
+@Document(collection = "author_day_stats")
+public class AuthorDayStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private String authorId;
+	private String day;
+	private Long posts;
+	private Long comments;
+
+	public AuthorDayStats() {
+	}
+
+	public AuthorDayStats(String id, String authorId, String day, Long posts, Long comments) {
+		super();
+		this.id = id;
+		this.authorId = authorId;
+		this.day = day;
+		this.posts = posts;
+		this.comments = comments;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getAuthorId() {
+		return authorId;
+	}
+
+	public void setAuthorId(String authorId) {
+		this.authorId = authorId;
+	}
+
+	public String getDay() {
+		return day;
+	}
+
+	public void setDay(String day) {
+		this.day = day;
+	}
+
+	public Long getPosts() {
+		return posts;
+	}
+
+	public void setPosts(Long posts) {
+		this.posts = posts;
+	}
+
+	public Long getComments() {
+		return comments;
+	}
+
+	public void setComments(Long comments) {
+		this.comments = comments;
+	}
+}
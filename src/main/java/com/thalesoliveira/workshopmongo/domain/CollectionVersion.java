@@ -0,0 +1,54 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Versão de uma coleção inteira (um documento por coleção, com o nome dela no _id).
+// Sobe 1 a cada gravação em qualquer documento da coleção e vira o ETag das
+// listagens: se não mudou nada na coleção, nenhuma página dela mudou.
+@Document(collection = "collection_version")
+public class CollectionVersion implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private Long version;
+	private Date lastModified;
+
+	public CollectionVersion() {
+	}
+
+	public CollectionVersion(String id, Long version, Date lastModified) {
+		super();
+		this.id = id;
+		this.version = version;
+		this.lastModified = lastModified;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+}
@@ -0,0 +1,146 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+
+// "Balde" de comentários de um post. Em vez de guardar TODOS os comentários dentro
+// do documento do post (que cresceria sem limite, até o teto de 16MB do MongoDB),
+// eles ficam em documentos separados com no máximo N comentários cada.
+// 'seq' numera os baldes de um mesmo post (0, 1, 2...): o de maior seq é o mais
+// recente e é nele que os novos comentários entram.
+// Índices (criados e conferidos na subida pelo IndexManager):
+// - comment_bucket_post_seq (único): duas gravações simultâneas não abrem o mesmo
+//   balde duas vezes; seq decrescente porque sempre lemos do balde mais novo para o
+//   mais antigo
+// - comment_bucket_post_date: acha o balde de um post pela data dos comentários
+//   (GET /posts/{id}/comments?before=...)
+// - comment_bucket_post_comment: acha um comentário pelo ID, para uma nova tentativa
+//   de gravação não o repetir (ver CommentService.insert)
+// - comment_bucket_comment_author: baldes com comentários de um usuário, para a
+//   troca de nome (AuthorRenameService)
+@Document(collection = "comment_bucket")
+@CompoundIndexes({
+		@CompoundIndex(name = "comment_bucket_post_seq", def = "{'postId': 1, 'seq': -1}", unique = true),
+		@CompoundIndex(name = "comment_bucket_post_date", def = "{'postId': 1, 'firstDate': -1}"),
+		@CompoundIndex(name = "comment_bucket_post_comment", def = "{'postId': 1, 'comments._id': 1}"),
+		@CompoundIndex(name = "comment_bucket_comment_author", def = "{'comments.author._id': 1}") })
+public class CommentBucket implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private String postId;
+	private Integer seq;
+	private Integer count;
+	// Quantos comentários do post estão nos baldes anteriores a este
+	private Integer start;
+	private Date firstDate;
+	private Date lastDate;
+
+	private List<CommentDTO> comments = new ArrayList<>();
+
+	// IDs dos comentários deste balde que ainda não entraram nos resumos de analytics
+	private List<String> pendingStats;
+
+	public CommentBucket() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getPostId() {
+		return postId;
+	}
+
+	public void setPostId(String postId) {
+		this.postId = postId;
+	}
+
+	public Integer getSeq() {
+		return seq;
+	}
+
+	public void setSeq(Integer seq) {
+		this.seq = seq;
+	}
+
+	public Integer getCount() {
+		return count;
+	}
+
+	public void setCount(Integer count) {
+		this.count = count;
+	}
+
+	public Integer getStart() {
+		return start;
+	}
+
+	public void setStart(Integer start) {
+		this.start = start;
+	}
+
+	public Date getFirstDate() {
+		return firstDate;
+	}
+
+	public void setFirstDate(Date firstDate) {
+		this.firstDate = firstDate;
+	}
+
+	public Date getLastDate() {
+		return lastDate;
+	}
+
+	public void setLastDate(Date lastDate) {
+		this.lastDate = lastDate;
+	}
+
+	public List<CommentDTO> getComments() {
+		return comments;
+	}
+
+	public void setComments(List<CommentDTO> comments) {
+		this.comments = comments;
+	}
+
+	public List<String> getPendingStats() {
+		return pendingStats;
+	}
+
+	public void setPendingStats(List<String> pendingStats) {
+		this.pendingStats = pendingStats;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		CommentBucket other = (CommentBucket) obj;
+		return Objects.equals(id, other.id);
+	}
+}
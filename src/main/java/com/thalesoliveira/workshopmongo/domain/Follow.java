@@ -0,0 +1,69 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// "followerId segue followeeId". Um documento por par, nos dois sentidos indexado:
+// - follow_follower (único): quem um usuário segue, e impede seguir duas vezes
+// - follow_followee: os seguidores de um usuário (distribuição dos posts novos)
+@Document(collection = "follow")
+@CompoundIndexes({
+		@CompoundIndex(name = "follow_follower", def = "{'followerId': 1, 'followeeId': 1}", unique = true),
+		@CompoundIndex(name = "follow_followee", def = "{'followeeId': 1, 'followerId': 1}") })
+public class Follow implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private String followerId;
+	private String followeeId;
+	private Date date;
+
+	public Follow() {
+	}
+
+	public Follow(String id, String followerId, String followeeId, Date date) {
+		super();
+		this.id = id;
+		this.followerId = followerId;
+		this.followeeId = followeeId;
+		this.date = date;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getFollowerId() {
+		return followerId;
+	}
+
+	public void setFollowerId(String followerId) {
+		this.followerId = followerId;
+	}
+
+	public String getFolloweeId() {
+		return followeeId;
+	}
+
+	public void setFolloweeId(String followeeId) {
+		this.followeeId = followeeId;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public void setDate(Date date) {
+		this.date = date;
+	}
+}
@@ -0,0 +1,65 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Troca de nome ainda não propagada para as cópias embutidas em posts e comentários
+// (mesmo _id do usuário; ver AuthorRenameService). Fica no banco para não se perder
+// num desligamento
+@Document(collection = "pending_rename")
+public class PendingRename implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private String name;
+	private Date queuedAt;
+
+	public PendingRename() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Date getQueuedAt() {
+		return queuedAt;
+	}
+
+	public void setQueuedAt(Date queuedAt) {
+		this.queuedAt = queuedAt;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PendingRename other = (PendingRename) obj;
+		return Objects.equals(id, other.id);
+	}
+}
@@ -7,24 +7,60 @@ import java.util.List;
 import java.util.Objects;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.thalesoliveira.workshopmongo.dto.AuthorDTO;
 import com.thalesoliveira.workshopmongo.dto.CommentDTO;
 
+// Índices da coleção "post", criados e conferidos na subida pelo IndexManager.
+// Os campos estão com o nome gravado no banco (o id do autor vira "author._id").
+// - post_date: listagem paginada (data desc, id desc) e filtro de datas do fullSearch
+// - post_author_date: posts de um autor, mais recentes primeiro
+// - post_comment_author: posts com comentários (embutidos) de um usuário, para a
+//   troca de nome alcançar só eles (AuthorRenameService)
 @Document
+@CompoundIndexes({
+		@CompoundIndex(name = "post_date", def = "{'date': -1, '_id': -1}"),
+		@CompoundIndex(name = "post_author_date", def = "{'author._id': 1, 'date': -1, '_id': -1}"),
+		@CompoundIndex(name = "post_comment_author", def = "{'comments.author._id': 1}") })
 public class Post implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 	@Id
 	private String id;
 	private Date date;
+	// As buscas por trecho do título ($regex sem âncora) percorrem este índice em vez
+	// da coleção: lê só os títulos, sem carregar os documentos que não batem
+	@Indexed(name = "post_title")
 	private String title;
 	private String body;
 	private AuthorDTO author;
-	
+
+	// Total de comentários do post. O histórico completo fica na coleção
+	// "comment_bucket" (ver CommentService); aqui guardamos só a contagem...
+	private Integer commentCount = 0;
+
+	// ...e os comentários MAIS RECENTES (no máximo alguns), para exibir o post
+	// rapidamente sem consultar os baldes
 	private List<CommentDTO> comments = new ArrayList<>();
 
+	// Versão do documento: começa em 0 e sobe 1 a cada gravação. O save do Spring
+	// Data faz isso sozinho (@Version); as atualizações parciais ($inc) fazem à mão.
+	// É o ETag de GET /posts/{id}.
+	@Version
+	private Long version;
+
+	// Momento da última gravação (cabeçalho Last-Modified). Indexado para o
+	// PostSearchIndex reler só os posts alterados em outras instâncias
+	@LastModifiedDate
+	@Indexed(name = "post_last_modified")
+	private Date lastModified;
+
 	public Post() {
 	}
 
@@ -37,6 +73,31 @@ public class Post implements Serializable {
 		this.author = author;
 	}
 
+	// Cópia independente (datas, autor e comentários também são copiados): é o que o
+	// cache de posts entrega, para que alterar o post recebido não mude o guardado
+	public Post(Post other) {
+		id = other.id;
+		date = copy(other.date);
+		title = other.title;
+		body = other.body;
+		author = other.author == null ? null : new AuthorDTO(other.author);
+		commentCount = other.commentCount;
+		if (other.comments != null) {
+			comments = new ArrayList<>(other.comments.size());
+			for (CommentDTO comment : other.comments) {
+				comments.add(comment == null ? null : new CommentDTO(comment));
+			}
+		} else {
+			comments = null;
+		}
+		version = other.version;
+		lastModified = copy(other.lastModified);
+	}
+
+	private static Date copy(Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+
 	public String getId() {
 		return id;
 	}
@@ -77,11 +138,35 @@ public class Post implements Serializable {
 		this.author = author;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hash(id);
 	}
 	
+	public Integer getCommentCount() {
+		return commentCount;
+	}
+
+	public void setCommentCount(Integer commentCount) {
+		this.commentCount = commentCount;
+	}
+
 	public List<CommentDTO> getComments() {
 		return comments;
 	}
@@ -0,0 +1,78 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Resumo de um post (mesmo _id do post): total de comentários e data do último.
+// Guarda também autor e dia de publicação, para que a remoção do post consiga
+// descontar os totais do autor sem precisar do post (que já foi apagado).
+@Document(collection = "post_stats")
+public class PostStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private String authorId;
+	private String day;
+	// Ranking dos posts mais comentados: os primeiros N do índice, sem ordenar a coleção
+	@Indexed(name = "post_stats_comments", direction = IndexDirection.DESCENDING)
+	private Long comments;
+	private Date lastCommentDate;
+
+	public PostStats() {
+	}
+
+	public PostStats(String id, String authorId, String day, Long comments, Date lastCommentDate) {
+		super();
+		this.id = id;
+		this.authorId = authorId;
+		this.day = day;
+		this.comments = comments;
+		this.lastCommentDate = lastCommentDate;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getAuthorId() {
+		return authorId;
+	}
+
+	public void setAuthorId(String authorId) {
+		this.authorId = authorId;
+	}
+
+	public String getDay() {
+		return day;
+	}
+
+	public void setDay(String day) {
+		this.day = day;
+	}
+
+	public Long getComments() {
+		return comments;
+	}
+
+	public void setComments(Long comments) {
+		this.comments = comments;
+	}
+
+	public Date getLastCommentDate() {
+		return lastCommentDate;
+	}
+
+	public void setLastCommentDate(Date lastCommentDate) {
+		this.lastCommentDate = lastCommentDate;
+	}
+}
@@ -2,10 +2,15 @@ package com.thalesoliveira.workshopmongo.domain;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -19,6 +24,9 @@ public class User implements Serializable {
 	@Id
 	private String id;
 	private String name;
+	// Dois usuários não podem ter o mesmo email. 'sparse' deixa de fora do índice
+	// quem não tem email (senão só um usuário sem email seria permitido).
+	@Indexed(name = "user_email", unique = true, sparse = true)
 	private String email;
 
 	// @DBRef: Indica que não devemos salvar os posts DENTRO do usuário, mas sim
@@ -29,6 +37,16 @@ public class User implements Serializable {
 	@DBRef(lazy = true)
 	private List<Post> posts = new ArrayList<>();
 
+	// Versão do documento: começa em 0 e sobe 1 a cada gravação. O save do Spring
+	// Data faz isso sozinho (@Version); as atualizações parciais ($inc) fazem à mão.
+	// É o ETag de GET /users/{id}.
+	@Version
+	private Long version;
+
+	// Momento da última gravação (cabeçalho Last-Modified)
+	@LastModifiedDate
+	private Date lastModified;
+
 	public User() {
 
 	}
@@ -40,6 +58,18 @@ public class User implements Serializable {
 		this.email = email;
 	}
 
+	// Cópia para o cache de usuários (ver Post(Post)). A lista de posts é @DBRef lazy:
+	// copiá-la buscaria cada post no banco, então a cópia recebe a mesma lista, só
+	// para leitura
+	public User(User other) {
+		id = other.id;
+		name = other.name;
+		email = other.email;
+		posts = other.posts == null ? null : Collections.unmodifiableList(other.posts);
+		version = other.version;
+		lastModified = other.lastModified == null ? null : new Date(other.lastModified.getTime());
+	}
+
 	public String getId() {
 		return id;
 	}
@@ -72,6 +102,22 @@ public class User implements Serializable {
 		this.posts = posts;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Date lastModified) {
+		this.lastModified = lastModified;
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hash(id);
@@ -0,0 +1,87 @@
+package com.thalesoliveira.workshopmongo.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Totais de um usuário (mesmo _id do usuário): posts publicados, seguidores e
+// comentários escritos. O nome vai junto para o ranking não precisar buscar cada usuário.
+@Document(collection = "user_stats")
+public class UserStats implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private String id;
+	private String name;
+	private Long posts;
+	private Long followers;
+	// Ranking de quem mais comenta: os primeiros N do índice
+	@Indexed(name = "user_stats_comments", direction = IndexDirection.DESCENDING)
+	private Long comments;
+	private Date lastCommentDate;
+
+	public UserStats() {
+	}
+
+	public UserStats(String id, String name, Long posts, Long followers, Long comments, Date lastCommentDate) {
+		super();
+		this.id = id;
+		this.name = name;
+		this.posts = posts;
+		this.followers = followers;
+		this.comments = comments;
+		this.lastCommentDate = lastCommentDate;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Long getPosts() {
+		return posts;
+	}
+
+	public void setPosts(Long posts) {
+		this.posts = posts;
+	}
+
+	public Long getFollowers() {
+		return followers;
+	}
+
+	public void setFollowers(Long followers) {
+		this.followers = followers;
+	}
+
+	public Long getComments() {
+		return comments;
+	}
+
+	public void setComments(Long comments) {
+		this.comments = comments;
+	}
+
+	public Date getLastCommentDate() {
+		return lastCommentDate;
+	}
+
+	public void setLastCommentDate(Date lastCommentDate) {
+		this.lastCommentDate = lastCommentDate;
+	}
+}
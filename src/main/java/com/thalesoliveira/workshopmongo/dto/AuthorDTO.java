@@ -18,6 +18,12 @@ public class AuthorDTO implements Serializable{
 		name = obj.getName();
 	}
 
+	// Cópia (ver Post(Post))
+	public AuthorDTO(AuthorDTO other) {
+		id = other.id;
+		name = other.name;
+	}
+
 	public String getId() {
 		return id;
 	}
@@ -0,0 +1,47 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+// Resultado de UM item de uma carga em lote: posição no arquivo enviado, ID gerado
+// (quando gravou) ou a mensagem de erro (quando falhou)
+public class BatchItemDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer index;
+	private String id;
+	private String error;
+
+	public BatchItemDTO() {
+	}
+
+	public BatchItemDTO(Integer index, String id, String error) {
+		super();
+		this.index = index;
+		this.id = id;
+		this.error = error;
+	}
+
+	public Integer getIndex() {
+		return index;
+	}
+
+	public void setIndex(Integer index) {
+		this.index = index;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
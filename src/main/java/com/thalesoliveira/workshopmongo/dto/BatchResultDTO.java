@@ -0,0 +1,40 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+// Totais de uma carga em lote: a última linha da resposta de POST /users/batch,
+// depois das linhas de cada item (BatchItemDTO)
+public class BatchResultDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer inserted = 0;
+	private Integer failed = 0;
+
+	public BatchResultDTO() {
+	}
+
+	// Conta o resultado de um item
+	public void add(BatchItemDTO item) {
+		if (item.getError() == null) {
+			inserted++;
+		} else {
+			failed++;
+		}
+	}
+
+	public Integer getInserted() {
+		return inserted;
+	}
+
+	public void setInserted(Integer inserted) {
+		this.inserted = inserted;
+	}
+
+	public Integer getFailed() {
+		return failed;
+	}
+
+	public void setFailed(Integer failed) {
+		this.failed = failed;
+	}
+}
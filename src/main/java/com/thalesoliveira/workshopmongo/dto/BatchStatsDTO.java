@@ -0,0 +1,65 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+public class BatchStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String name;
+	private Long batches;
+	private Long lookups;
+	private Double averageSize;
+	private Integer largest;
+
+	public BatchStatsDTO() {
+	}
+
+	public BatchStatsDTO(String name, Long batches, Long lookups, Double averageSize, Integer largest) {
+		super();
+		this.name = name;
+		this.batches = batches;
+		this.lookups = lookups;
+		this.averageSize = averageSize;
+		this.largest = largest;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Long getBatches() {
+		return batches;
+	}
+
+	public void setBatches(Long batches) {
+		this.batches = batches;
+	}
+
+	public Long getLookups() {
+		return lookups;
+	}
+
+	public void setLookups(Long lookups) {
+		this.lookups = lookups;
+	}
+
+	public Double getAverageSize() {
+		return averageSize;
+	}
+
+	public void setAverageSize(Double averageSize) {
+		this.averageSize = averageSize;
+	}
+
+	public Integer getLargest() {
+		return largest;
+	}
+
+	public void setLargest(Integer largest) {
+		this.largest = largest;
+	}
+}
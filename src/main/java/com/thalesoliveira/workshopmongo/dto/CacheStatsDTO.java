@@ -0,0 +1,102 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+public class CacheStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String name;
+	private Integer size;
+	private Integer maxSize;
+	private Long hits;
+	private Long negativeHits;
+	private Long misses;
+	private Long evictions;
+	private Long expirations;
+
+	public CacheStatsDTO() {
+	}
+
+	public CacheStatsDTO(String name, Integer size, Integer maxSize, Long hits, Long negativeHits, Long misses,
+			Long evictions, Long expirations) {
+		super();
+		this.name = name;
+		this.size = size;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.negativeHits = negativeHits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Integer getSize() {
+		return size;
+	}
+
+	public void setSize(Integer size) {
+		this.size = size;
+	}
+
+	public Integer getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(Integer maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public Long getHits() {
+		return hits;
+	}
+
+	public void setHits(Long hits) {
+		this.hits = hits;
+	}
+
+	public Long getNegativeHits() {
+		return negativeHits;
+	}
+
+	public void setNegativeHits(Long negativeHits) {
+		this.negativeHits = negativeHits;
+	}
+
+	public Long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(Long misses) {
+		this.misses = misses;
+	}
+
+	public Long getEvictions() {
+		return evictions;
+	}
+
+	public void setEvictions(Long evictions) {
+		this.evictions = evictions;
+	}
+
+	public Long getExpirations() {
+		return expirations;
+	}
+
+	public void setExpirations(Long expirations) {
+		this.expirations = expirations;
+	}
+
+	// Fração das leituras respondidas pelo cache (positivas ou negativas)
+	public Double getHitRate() {
+		long total = hits + negativeHits + misses;
+		return total == 0 ? 0.0 : (double) (hits + negativeHits) / total;
+	}
+}
@@ -6,6 +6,9 @@ import java.util.Date;
 public class CommentDTO implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
+	// Identifica o comentário para que uma nova tentativa de gravação não o repita
+	// (ver CommentService.insert)
+	private String id;
 	private String text;
 	private Date date;
 	private AuthorDTO author;
@@ -20,6 +23,22 @@ public class CommentDTO implements Serializable {
 		this.author = author;
 	}
 
+	// Cópia (ver Post(Post))
+	public CommentDTO(CommentDTO other) {
+		id = other.id;
+		text = other.text;
+		date = other.date == null ? null : new Date(other.date.getTime());
+		author = other.author == null ? null : new AuthorDTO(other.author);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
 	public String getText() {
 		return text;
 	}
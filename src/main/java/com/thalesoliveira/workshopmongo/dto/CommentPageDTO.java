@@ -0,0 +1,42 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// Uma página de comentários + a posição (balde, índice) onde a próxima começa.
+// nextSeq == null significa que não há próxima página.
+public class CommentPageDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private List<CommentDTO> comments = new ArrayList<>();
+	private Integer nextSeq;
+	private Integer nextIndex;
+
+	public CommentPageDTO() {
+	}
+
+	public List<CommentDTO> getComments() {
+		return comments;
+	}
+
+	public void setComments(List<CommentDTO> comments) {
+		this.comments = comments;
+	}
+
+	public Integer getNextSeq() {
+		return nextSeq;
+	}
+
+	public void setNextSeq(Integer nextSeq) {
+		this.nextSeq = nextSeq;
+	}
+
+	public Integer getNextIndex() {
+		return nextIndex;
+	}
+
+	public void setNextIndex(Integer nextIndex) {
+		this.nextIndex = nextIndex;
+	}
+}
@@ -0,0 +1,99 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+// Situação de um índice: declarado pela aplicação e/ou existente no banco
+public class IndexReportDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String collection;
+	private String name;
+	private String keys;
+	private Boolean declared;
+	private Boolean present;
+	private Long accesses;
+	private String status;
+	private String error;
+
+	public IndexReportDTO() {
+	}
+
+	public IndexReportDTO(String collection, String name, String keys, Boolean declared, Boolean present,
+			Long accesses, String status, String error) {
+		super();
+		this.collection = collection;
+		this.name = name;
+		this.keys = keys;
+		this.declared = declared;
+		this.present = present;
+		this.accesses = accesses;
+		this.status = status;
+		this.error = error;
+	}
+
+	public String getCollection() {
+		return collection;
+	}
+
+	public void setCollection(String collection) {
+		this.collection = collection;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getKeys() {
+		return keys;
+	}
+
+	public void setKeys(String keys) {
+		this.keys = keys;
+	}
+
+	public Boolean getDeclared() {
+		return declared;
+	}
+
+	public void setDeclared(Boolean declared) {
+		this.declared = declared;
+	}
+
+	public Boolean getPresent() {
+		return present;
+	}
+
+	public void setPresent(Boolean present) {
+		this.present = present;
+	}
+
+	// Usos do índice desde que o servidor MongoDB subiu (null = desconhecido)
+	public Long getAccesses() {
+		return accesses;
+	}
+
+	public void setAccesses(Long accesses) {
+		this.accesses = accesses;
+	}
+
+	// ok, missing, failed, unused ou undeclared (ver IndexManager.report)
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,87 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+// Resumo de um histograma de latência. Tempos em milissegundos.
+public class LatencyStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String name;
+	private Long count;
+	private Double meanMillis;
+	private Double p50Millis;
+	private Double p95Millis;
+	private Double p99Millis;
+	private Double maxMillis;
+
+	public LatencyStatsDTO() {
+	}
+
+	public LatencyStatsDTO(String name, Long count, Double meanMillis, Double p50Millis, Double p95Millis,
+			Double p99Millis, Double maxMillis) {
+		super();
+		this.name = name;
+		this.count = count;
+		this.meanMillis = meanMillis;
+		this.p50Millis = p50Millis;
+		this.p95Millis = p95Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Long getCount() {
+		return count;
+	}
+
+	public void setCount(Long count) {
+		this.count = count;
+	}
+
+	public Double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public void setMeanMillis(Double meanMillis) {
+		this.meanMillis = meanMillis;
+	}
+
+	public Double getP50Millis() {
+		return p50Millis;
+	}
+
+	public void setP50Millis(Double p50Millis) {
+		this.p50Millis = p50Millis;
+	}
+
+	public Double getP95Millis() {
+		return p95Millis;
+	}
+
+	public void setP95Millis(Double p95Millis) {
+		this.p95Millis = p95Millis;
+	}
+
+	public Double getP99Millis() {
+		return p99Millis;
+	}
+
+	public void setP99Millis(Double p99Millis) {
+		this.p99Millis = p99Millis;
+	}
+
+	public Double getMaxMillis() {
+		return maxMillis;
+	}
+
+	public void setMaxMillis(Double maxMillis) {
+		this.maxMillis = maxMillis;
+	}
+}
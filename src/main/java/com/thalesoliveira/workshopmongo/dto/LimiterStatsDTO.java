@@ -0,0 +1,87 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+public class LimiterStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String name;
+	private Integer limit;
+	private Integer inFlight;
+	private Integer queued;
+	private Long accepted;
+	private Long rejected;
+	// Respostas acima da meta de latência (cada uma pode ter reduzido o limite)
+	private Long slow;
+
+	public LimiterStatsDTO() {
+	}
+
+	public LimiterStatsDTO(String name, Integer limit, Integer inFlight, Integer queued, Long accepted, Long rejected,
+			Long slow) {
+		super();
+		this.name = name;
+		this.limit = limit;
+		this.inFlight = inFlight;
+		this.queued = queued;
+		this.accepted = accepted;
+		this.rejected = rejected;
+		this.slow = slow;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Integer limit) {
+		this.limit = limit;
+	}
+
+	public Integer getInFlight() {
+		return inFlight;
+	}
+
+	public void setInFlight(Integer inFlight) {
+		this.inFlight = inFlight;
+	}
+
+	public Integer getQueued() {
+		return queued;
+	}
+
+	public void setQueued(Integer queued) {
+		this.queued = queued;
+	}
+
+	public Long getAccepted() {
+		return accepted;
+	}
+
+	public void setAccepted(Long accepted) {
+		this.accepted = accepted;
+	}
+
+	public Long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(Long rejected) {
+		this.rejected = rejected;
+	}
+
+	public Long getSlow() {
+		return slow;
+	}
+
+	public void setSlow(Long slow) {
+		this.slow = slow;
+	}
+}
@@ -0,0 +1,60 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+// Versão "resumida" de um Post para as listagens: sem o corpo e sem a lista de
+// comentários (só a quantidade). É montada direto pelo MongoDB (projeção), então os
+// campos pesados nem chegam a trafegar pela rede.
+public class PostSummaryDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String id;
+	private Date date;
+	private String title;
+	private AuthorDTO author;
+	private Integer commentCount;
+
+	public PostSummaryDTO() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public void setDate(Date date) {
+		this.date = date;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public AuthorDTO getAuthor() {
+		return author;
+	}
+
+	public void setAuthor(AuthorDTO author) {
+		this.author = author;
+	}
+
+	public Integer getCommentCount() {
+		return commentCount;
+	}
+
+	public void setCommentCount(Integer commentCount) {
+		this.commentCount = commentCount;
+	}
+}
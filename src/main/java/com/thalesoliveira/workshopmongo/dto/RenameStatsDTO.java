@@ -0,0 +1,106 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+public class RenameStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Long queued;
+	private Long merged;
+	private Long applied;
+	private Long pending;
+	private Long chunks;
+	private Long postsUpdated;
+	private Long commentPostsUpdated;
+	private Long bucketsUpdated;
+	private Long lastFlushMillis;
+
+	public RenameStatsDTO() {
+	}
+
+	public RenameStatsDTO(Long queued, Long merged, Long applied, Long pending, Long chunks, Long postsUpdated,
+			Long commentPostsUpdated, Long bucketsUpdated, Long lastFlushMillis) {
+		super();
+		this.queued = queued;
+		this.merged = merged;
+		this.applied = applied;
+		this.pending = pending;
+		this.chunks = chunks;
+		this.postsUpdated = postsUpdated;
+		this.commentPostsUpdated = commentPostsUpdated;
+		this.bucketsUpdated = bucketsUpdated;
+		this.lastFlushMillis = lastFlushMillis;
+	}
+
+	public Long getQueued() {
+		return queued;
+	}
+
+	public void setQueued(Long queued) {
+		this.queued = queued;
+	}
+
+	public Long getMerged() {
+		return merged;
+	}
+
+	public void setMerged(Long merged) {
+		this.merged = merged;
+	}
+
+	public Long getApplied() {
+		return applied;
+	}
+
+	public void setApplied(Long applied) {
+		this.applied = applied;
+	}
+
+	public Long getPending() {
+		return pending;
+	}
+
+	public void setPending(Long pending) {
+		this.pending = pending;
+	}
+
+	public Long getChunks() {
+		return chunks;
+	}
+
+	public void setChunks(Long chunks) {
+		this.chunks = chunks;
+	}
+
+	public Long getPostsUpdated() {
+		return postsUpdated;
+	}
+
+	public void setPostsUpdated(Long postsUpdated) {
+		this.postsUpdated = postsUpdated;
+	}
+
+	public Long getCommentPostsUpdated() {
+		return commentPostsUpdated;
+	}
+
+	public void setCommentPostsUpdated(Long commentPostsUpdated) {
+		this.commentPostsUpdated = commentPostsUpdated;
+	}
+
+	public Long getBucketsUpdated() {
+		return bucketsUpdated;
+	}
+
+	public void setBucketsUpdated(Long bucketsUpdated) {
+		this.bucketsUpdated = bucketsUpdated;
+	}
+
+	public Long getLastFlushMillis() {
+		return lastFlushMillis;
+	}
+
+	public void setLastFlushMillis(Long lastFlushMillis) {
+		this.lastFlushMillis = lastFlushMillis;
+	}
+}
@@ -0,0 +1,101 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+
+// Uma consulta lenta e o plano que o MongoDB escolheu para ela
+public class SlowQueryDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Date date;
+	private String collection;
+	private String command;
+	private String operation;
+	private Double millis;
+	private String query;
+	private String plan;
+	private Map<String, Object> queryPlanner;
+
+	public SlowQueryDTO() {
+	}
+
+	public SlowQueryDTO(Date date, String collection, String command, String operation, Double millis, String query,
+			String plan, Map<String, Object> queryPlanner) {
+		super();
+		this.date = date;
+		this.collection = collection;
+		this.command = command;
+		this.operation = operation;
+		this.millis = millis;
+		this.query = query;
+		this.plan = plan;
+		this.queryPlanner = queryPlanner;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public void setDate(Date date) {
+		this.date = date;
+	}
+
+	public String getCollection() {
+		return collection;
+	}
+
+	public void setCollection(String collection) {
+		this.collection = collection;
+	}
+
+	public String getCommand() {
+		return command;
+	}
+
+	public void setCommand(String command) {
+		this.command = command;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	public Double getMillis() {
+		return millis;
+	}
+
+	public void setMillis(Double millis) {
+		this.millis = millis;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public void setQuery(String query) {
+		this.query = query;
+	}
+
+	// Resumo do plano vencedor (ex: "FETCH <- IXSCAN(post_author_date)")
+	public String getPlan() {
+		return plan;
+	}
+
+	public void setPlan(String plan) {
+		this.plan = plan;
+	}
+
+	// Saída completa do explain (seção queryPlanner)
+	public Map<String, Object> getQueryPlanner() {
+		return queryPlanner;
+	}
+
+	public void setQueryPlanner(Map<String, Object> queryPlanner) {
+		this.queryPlanner = queryPlanner;
+	}
+}
@@ -0,0 +1,47 @@
+package com.thalesoliveira.workshopmongo.dto;
+
+import java.io.Serializable;
+
+// Uma sugestão do autocomplete: o texto, o tipo ("word" = palavra de título,
+// "user" = nome de usuário) e em quantos posts/usuários ele aparece
+public class SuggestionDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String text;
+	private String type;
+	private Integer count;
+
+	public SuggestionDTO() {
+	}
+
+	public SuggestionDTO(String text, String type, Integer count) {
+		super();
+		this.text = text;
+		this.type = type;
+		this.count = count;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public void setText(String text) {
+		this.text = text;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public Integer getCount() {
+		return count;
+	}
+
+	public void setCount(Integer count) {
+		this.count = count;
+	}
+}
@@ -0,0 +1,14 @@
+package com.thalesoliveira.workshopmongo.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.thalesoliveira.workshopmongo.domain.CommentBucket;
+
+//Acesso à coleção "comment_bucket" (baldes de comentários dos posts)
+@Repository
+public interface CommentBucketRepository extends MongoRepository<CommentBucket, String> {
+
+	// Apaga todos os baldes de um post (usado quando o post é removido)
+	void deleteByPostId(String postId);
+}
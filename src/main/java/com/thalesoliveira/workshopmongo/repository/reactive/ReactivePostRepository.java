@@ -0,0 +1,27 @@
+package com.thalesoliveira.workshopmongo.repository.reactive;
+
+import java.util.Date;
+
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+
+import reactor.core.publisher.Flux;
+
+//Versão reativa (não bloqueante) do PostRepository: em vez de List, devolve Flux,
+//um "fluxo" de posts que vão sendo entregues conforme chegam do banco
+@Repository
+public interface ReactivePostRepository extends ReactiveMongoRepository<Post, String> {
+
+	// Mesmas consultas do PostRepository
+	@Query("{ 'title': { $regex: ?0, $options: 'i' } }")
+	Flux<Post> searchTitle(String text);
+
+	@Query("{ $and: [ {date: {$gte: ?1} }, {date: {$lte: ?2} } , { $or: [ { 'title': { $regex: ?0, $options: 'i' } }, { 'body': { $regex: ?0, $options: 'i' } }, { 'comments.text': { $regex: ?0, $options: 'i' } } ] } ] }")
+	Flux<Post> fullSearch(String text, Date minDate, Date maxDate);
+
+	// Posts de um autor, mais recentes primeiro (usa o índice author.id + date)
+	Flux<Post> findByAuthorIdOrderByDateDesc(String authorId);
+}
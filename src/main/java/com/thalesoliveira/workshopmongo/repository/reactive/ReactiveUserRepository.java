@@ -0,0 +1,12 @@
+package com.thalesoliveira.workshopmongo.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.thalesoliveira.workshopmongo.domain.User;
+
+//Versão reativa (não bloqueante) do UserRepository
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+
+}
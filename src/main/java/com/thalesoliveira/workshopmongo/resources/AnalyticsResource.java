@@ -0,0 +1,82 @@
+package com.thalesoliveira.workshopmongo.resources;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.thalesoliveira.workshopmongo.domain.AuthorDayStats;
+import com.thalesoliveira.workshopmongo.domain.PostStats;
+import com.thalesoliveira.workshopmongo.domain.UserStats;
+import com.thalesoliveira.workshopmongo.resources.util.URL;
+import com.thalesoliveira.workshopmongo.services.AnalyticsService;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+
+// Métricas dos painéis, lidas das coleções de resumo (ver AnalyticsService):
+// nenhuma destas consultas percorre posts ou comentários
+@RestController
+@RequestMapping(value = "/analytics")
+public class AnalyticsResource {
+
+	private static final int DEFAULT_TOP = 10;
+	private static final int MAX_TOP = 100;
+
+	// Intervalo padrão dos dias de um autor
+	private static final long DEFAULT_DAYS = 30;
+
+	@Autowired
+	private AnalyticsService service;
+
+	@Value("${app.analytics.rebuild-endpoint:false}")
+	private boolean rebuildEndpoint;
+
+	// Posts e comentários de um autor por dia: ?from=2026-01-01&to=2026-01-31
+	// (padrão: últimos 30 dias). Dias sem atividade não aparecem.
+	@RequestMapping(value = "/authors/{id}/days", method = RequestMethod.GET)
+	public ResponseEntity<List<AuthorDayStats>> authorDays(@PathVariable String id,
+			@RequestParam(value = "from", defaultValue = "") String from,
+			@RequestParam(value = "to", defaultValue = "") String to) {
+		Date max = URL.convertDate(to, new Date());
+		Date min = URL.convertDate(from, new Date(max.getTime() - TimeUnit.DAYS.toMillis(DEFAULT_DAYS)));
+		return ResponseEntity.ok().body(service.findAuthorDays(id, min, max));
+	}
+
+	@RequestMapping(value = "/posts/{id}", method = RequestMethod.GET)
+	public ResponseEntity<PostStats> post(@PathVariable String id) {
+		return ResponseEntity.ok().body(service.findPost(id));
+	}
+
+	// Posts mais comentados: ?limit=10
+	@RequestMapping(value = "/posts/top", method = RequestMethod.GET)
+	public ResponseEntity<List<PostStats>> topPosts(@RequestParam(value = "limit", defaultValue = "") String limit) {
+		return ResponseEntity.ok().body(service.topPosts(URL.convertLimit(limit, DEFAULT_TOP, MAX_TOP)));
+	}
+
+	// Usuários que mais comentam: ?limit=10
+	@RequestMapping(value = "/commenters/top", method = RequestMethod.GET)
+	public ResponseEntity<List<UserStats>> topCommenters(
+			@RequestParam(value = "limit", defaultValue = "") String limit) {
+		return ResponseEntity.ok().body(service.topCommenters(URL.convertLimit(limit, DEFAULT_TOP, MAX_TOP)));
+	}
+
+	// Recalcula todos os resumos a partir dos posts e comentários (carga inicial ou
+	// conserto). É uma operação pesada no banco, então fica desligada por padrão
+	// (404, como se não existisse); com 'app.analytics.rebuild-endpoint' ligado,
+	// responde 202 na hora e o rebuild roda em segundo plano
+	@RequestMapping(value = "/rebuild", method = RequestMethod.POST)
+	public ResponseEntity<Void> rebuild() {
+		if (!rebuildEndpoint) {
+			throw new ObjetoNotFoundException("Recurso não encontrado");
+		}
+		service.rebuildAsync();
+		return ResponseEntity.accepted().build();
+	}
+}
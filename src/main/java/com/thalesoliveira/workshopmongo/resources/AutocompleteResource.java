@@ -0,0 +1,34 @@
+package com.thalesoliveira.workshopmongo.resources;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.thalesoliveira.workshopmongo.dto.SuggestionDTO;
+import com.thalesoliveira.workshopmongo.resources.util.URL;
+import com.thalesoliveira.workshopmongo.services.search.AutocompleteIndex;
+
+// Sugestões para a caixa de busca a cada tecla (ex: /autocomplete?q=via&limit=5).
+// Respondido só com o índice em memória, sem consultar o banco
+@RestController
+@RequestMapping(value = "/autocomplete")
+public class AutocompleteResource {
+
+	private static final int DEFAULT_LIMIT = 10;
+	private static final int MAX_LIMIT = 50;
+
+	@Autowired
+	private AutocompleteIndex index;
+
+	@RequestMapping(method = RequestMethod.GET)
+	public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam(value = "q", defaultValue = "") String text,
+			@RequestParam(value = "limit", defaultValue = "") String limit) {
+		text = URL.decodeParam(text);
+		return ResponseEntity.ok().body(index.suggest(text, URL.convertLimit(limit, DEFAULT_LIMIT, MAX_LIMIT)));
+	}
+}
@@ -0,0 +1,120 @@
+package com.thalesoliveira.workshopmongo.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.BatchStatsDTO;
+import com.thalesoliveira.workshopmongo.dto.CacheStatsDTO;
+import com.thalesoliveira.workshopmongo.dto.IndexReportDTO;
+import com.thalesoliveira.workshopmongo.dto.LatencyStatsDTO;
+import com.thalesoliveira.workshopmongo.dto.LimiterStatsDTO;
+import com.thalesoliveira.workshopmongo.dto.RenameStatsDTO;
+import com.thalesoliveira.workshopmongo.dto.SlowQueryDTO;
+import com.thalesoliveira.workshopmongo.services.AuthorRenameService;
+import com.thalesoliveira.workshopmongo.services.cache.BatchLoader;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+import com.thalesoliveira.workshopmongo.services.index.IndexManager;
+import com.thalesoliveira.workshopmongo.services.limit.AdaptiveLimiter;
+import com.thalesoliveira.workshopmongo.services.metrics.LatencyMetrics;
+import com.thalesoliveira.workshopmongo.services.metrics.SlowQueryLog;
+
+// Endpoints de observação da aplicação (ex: localhost:8080/metrics/cache)
+@RestController
+@RequestMapping(value = "/metrics")
+public class MetricsResource {
+
+	@Autowired
+	private EntityCache<Post> postCache;
+
+	@Autowired
+	private EntityCache<User> userCache;
+
+	@Autowired
+	private EntityCache<List<String>> searchCache;
+
+	@Autowired
+	private BatchLoader<Post> postBatchLoader;
+
+	@Autowired
+	private BatchLoader<User> userBatchLoader;
+
+	@Autowired
+	private AuthorRenameService authorRenameService;
+
+	@Autowired
+	private LatencyMetrics latencyMetrics;
+
+	@Autowired
+	private SlowQueryLog slowQueryLog;
+
+	@Autowired
+	private IndexManager indexManager;
+
+	// Controle de admissão (ver AdmissionConfig)
+	@Autowired
+	private List<AdaptiveLimiter> limiters;
+
+	// Estatísticas dos caches de entidades: acertos, faltas, remoções por tamanho
+	// (evictions) e por validade (expirations)
+	@RequestMapping(value = "/cache", method = RequestMethod.GET)
+	public ResponseEntity<List<CacheStatsDTO>> cache() {
+		return ResponseEntity.ok().body(Arrays.asList(postCache.stats(), userCache.stats(), searchCache.stats()));
+	}
+
+	// Buscas por ID agrupadas: quantas consultas ao banco e quantos IDs por consulta
+	@RequestMapping(value = "/batches", method = RequestMethod.GET)
+	public ResponseEntity<List<BatchStatsDTO>> batches() {
+		return ResponseEntity.ok().body(Arrays.asList(postBatchLoader.stats(), userBatchLoader.stats()));
+	}
+
+	// Progresso da propagação de nomes de autor para posts e comentários
+	@RequestMapping(value = "/renames", method = RequestMethod.GET)
+	public ResponseEntity<RenameStatsDTO> renames() {
+		return ResponseEntity.ok().body(authorRenameService.stats());
+	}
+
+	// Latência dos comandos enviados ao MongoDB, por "coleção comando operação"
+	@RequestMapping(value = "/mongo", method = RequestMethod.GET)
+	public ResponseEntity<List<LatencyStatsDTO>> mongo() {
+		return ResponseEntity.ok().body(latencyMetrics.mongoStats());
+	}
+
+	// Latência das requisições de /posts e /users, por rota e fase
+	// (decode, query, map, serialize e total)
+	@RequestMapping(value = "/requests", method = RequestMethod.GET)
+	public ResponseEntity<List<LatencyStatsDTO>> requests() {
+		return ResponseEntity.ok().body(latencyMetrics.requestStats());
+	}
+
+	// Consultas lentas mais recentes, com o plano de execução escolhido pelo Mongo
+	@RequestMapping(value = "/slow-queries", method = RequestMethod.GET)
+	public ResponseEntity<List<SlowQueryDTO>> slowQueries() {
+		return ResponseEntity.ok().body(slowQueryLog.recent());
+	}
+
+	// Índices declarados x existentes no banco, com o número de usos de cada um
+	// (status: ok, missing, failed, unused, undeclared)
+	@RequestMapping(value = "/indexes", method = RequestMethod.GET)
+	public ResponseEntity<List<IndexReportDTO>> indexes() {
+		return ResponseEntity.ok().body(indexManager.report());
+	}
+
+	// Limite atual, ocupação e recusas (503) de cada classe de endpoints
+	@RequestMapping(value = "/limits", method = RequestMethod.GET)
+	public ResponseEntity<List<LimiterStatsDTO>> limits() {
+		List<LimiterStatsDTO> stats = new ArrayList<>();
+		for (AdaptiveLimiter limiter : limiters) {
+			stats.add(limiter.stats());
+		}
+		return ResponseEntity.ok().body(stats);
+	}
+}
@@ -1,19 +1,45 @@
 package com.thalesoliveira.workshopmongo.resources;
 
+import java.net.URI;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.thalesoliveira.workshopmongo.domain.CollectionVersion;
 import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.AuthorDTO;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.dto.CommentPageDTO;
+import com.thalesoliveira.workshopmongo.dto.PostSummaryDTO;
+import com.thalesoliveira.workshopmongo.resources.util.Conditional;
+import com.thalesoliveira.workshopmongo.resources.util.NdjsonWriter;
+import com.thalesoliveira.workshopmongo.resources.util.PageCursor;
 import com.thalesoliveira.workshopmongo.resources.util.URL;
+import com.thalesoliveira.workshopmongo.services.CollectionVersionService;
+import com.thalesoliveira.workshopmongo.services.CommentBuffer;
+import com.thalesoliveira.workshopmongo.services.CommentService;
 import com.thalesoliveira.workshopmongo.services.PostService;
+import com.thalesoliveira.workshopmongo.services.UserService;
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+import com.thalesoliveira.workshopmongo.services.metrics.RequestPhases;
+
+import tools.jackson.databind.ObjectMapper;
 
 //Indica que esta classe é um recurso web REST (vai responder com dados JSON, e não páginas HTML)
 @RestController
@@ -21,36 +47,233 @@ import com.thalesoliveira.workshopmongo.services.PostService;
 @RequestMapping(value = "/posts")
 public class PostResource {
 
+	// Tamanho padrão e máximo de uma página na listagem paginada
+	private static final int DEFAULT_PAGE_SIZE = 20;
+	private static final int MAX_PAGE_SIZE = 100;
+
+	// Cabeçalho em que devolvemos o cursor da próxima página (ausente = acabou)
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	// Quantos documentos o cursor do Mongo traz por lote na exportação em stream
+	public static final int STREAM_BATCH_SIZE = 500;
+
+	// Confirmações de POST /posts/{id}/comments
+	public static final String ACK_ACCEPTED = "accepted";
+	public static final String ACK_DURABLE = "durable";
+
 	// Injeta a dependência do Serviço (PostService), permitindo que o Controlador
 	// delegue para ele a execução das regras de negócio
 	@Autowired
 	private PostService service;
 
+	// Conversor JSON configurado pelo Spring Boot (o mesmo usado nas respostas normais)
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private CommentBuffer commentBuffer;
+
+	// Autores dos comentários novos
+	@Autowired
+	private UserService userService;
+
+	// Quanto POST /posts/{id}/comments?ack=durable espera a gravação
+	@Value("${app.comments.buffer.durable-timeout-ms:2000}")
+	private long durableTimeoutMillis;
+
+	// Versão da coleção "post": ETag das listagens
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
 	// Mapeia requisições do tipo GET que trazem um id na URL (ex: /users/123). As
 	// chaves { } indicam que essa parte do caminho é variável.
 	@RequestMapping(value = "/{id}", method = RequestMethod.GET)
 	// O @PathVariable pega o valor do "{id}" que veio na URL e o atribui à variável
 	// 'id' para ser usada na busca. O retorno será um UserDTO envelopado.
-	public ResponseEntity<Post> findById(@PathVariable String id) {
+	public ResponseEntity<Post> findById(@PathVariable String id, WebRequest request) {
+		RequestPhases.mark(RequestPhases.DECODE);
+
+		// GET condicional (If-None-Match/If-Modified-Since): antes de carregar o post
+		// inteiro, conferimos só a versão. Se o cliente já tem a atual, 304 sem corpo.
+		if (Conditional.isConditional(request)) {
+			Post current = service.findVersion(id);
+			if (Conditional.notModified(request, current.getVersion(), current.getLastModified())) {
+				return null;
+			}
+		}
+
 		// Aciona a camada de serviço para buscar o usuário pelo ID e guarda o objeto
 		// original (Entidade) retornado na variável 'obj'
 		Post obj = service.findById(id);
+		RequestPhases.mark(RequestPhases.QUERY);
 		// Converte o objeto 'obj' (Entidade) para 'UserDTO' ali mesmo e o envia no
 		// corpo da resposta com status 200 (OK), garantindo que apenas os dados
-		// filtrados sejam expostos
-		return ResponseEntity.ok().body(obj);
+		// filtrados sejam expostos. O ETag é a versão do post enviado.
+		return Conditional.ok(obj.getVersion(), obj.getLastModified()).body(obj);
+	}
+
+	// Apaga um post (DELETE /posts/123) junto com os baldes de comentários, as
+	// métricas e as entradas dos índices. ID inexistente vira 404.
+	@RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+	public ResponseEntity<Void> delete(@PathVariable String id) {
+		service.delete(id);
+		return ResponseEntity.noContent().build();
+	}
+
+	// Comentários de um post, do mais novo para o mais antigo: GET /posts/{id}/comments
+	// Paginado: ?limit=20&cursor=<token>. O histórico completo fica nos baldes da
+	// coleção "comment_bucket"; o post em si só traz os comentários mais recentes.
+	// ?before=yyyy-MM-dd começa a primeira página nos comentários anteriores a essa
+	// data (as seguintes continuam pelo cursor).
+	@RequestMapping(value = "/{id}/comments", method = RequestMethod.GET)
+	public ResponseEntity<List<CommentDTO>> findComments(@PathVariable String id,
+			@RequestParam(value = "cursor", defaultValue = "") String cursor,
+			@RequestParam(value = "before", defaultValue = "") String before,
+			@RequestParam(value = "limit", defaultValue = "") String limit, WebRequest request) {
+
+		// Todo comentário novo (e toda troca de nome de autor nos baldes) muda a versão
+		// do post, então ela é o ETag das páginas de comentários. Conferimos só a
+		// versão, sem carregar o post inteiro; 404 se ele não existir
+		Post current = service.findVersion(id);
+		if (Conditional.notModified(request, current.getVersion(), current.getLastModified())) {
+			return null;
+		}
+
+		// O cursor guarda a posição "seq do balde-índice no balde" no lugar do id
+		Integer fromSeq = null;
+		Integer fromIndex = null;
+		PageCursor after = PageCursor.decode(cursor);
+		if (after != null) {
+			String[] position = after.getId().split("-");
+			try {
+				fromSeq = Integer.valueOf(position[0]);
+				fromIndex = Integer.valueOf(position[1]);
+			} catch (RuntimeException e) {
+				throw new ParametroInvalidoException("Cursor inválido");
+			}
+		}
+		Date beforeDate = after == null ? URL.convertDate(before, null) : null;
+
+		int pageSize = URL.convertLimit(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+		RequestPhases.mark(RequestPhases.DECODE);
+		CommentPageDTO page = beforeDate != null ? commentService.findPageBefore(id, beforeDate, pageSize)
+				: commentService.findPage(id, fromSeq, fromIndex, pageSize);
+		RequestPhases.mark(RequestPhases.QUERY);
+
+		ResponseEntity.BodyBuilder response = Conditional.ok(current.getVersion(), current.getLastModified());
+		if (page.getNextSeq() != null) {
+			response.header(NEXT_CURSOR_HEADER,
+					new PageCursor(null, page.getNextSeq() + "-" + page.getNextIndex()).encode());
+		}
+		return response.body(page.getComments());
+	}
+
+	// Novo comentário num post: POST /posts/{id}/comments
+	// Corpo: {"text": "...", "author": {"id": "..."}}. A data é a do servidor e o
+	// nome do autor vem do cadastro. A gravação é adiada e agrupada por post (ver
+	// CommentBuffer); o parâmetro 'ack' escolhe quando respondemos:
+	// - accepted (padrão): assim que o comentário entra na fila -> 202 (Accepted)
+	// - durable: depois que ele foi gravado no banco -> 201 (Created). Se a
+	//   gravação demorar mais que 'durable-timeout-ms', 202 mesmo assim.
+	// Devolvemos um CompletableFuture: no modo durable a thread do servlet é liberada
+	// enquanto a gravação não termina, e o Spring escreve a resposta quando ele completar.
+	@RequestMapping(value = "/{id}/comments", method = RequestMethod.POST)
+	public CompletableFuture<ResponseEntity<Void>> insertComment(@PathVariable String id,
+			@RequestBody CommentDTO objDto, @RequestParam(value = "ack", defaultValue = ACK_ACCEPTED) String ack) {
+		if (!ACK_ACCEPTED.equals(ack) && !ACK_DURABLE.equals(ack)) {
+			throw new ParametroInvalidoException("ack deve ser '" + ACK_ACCEPTED + "' ou '" + ACK_DURABLE + "'");
+		}
+		if (objDto.getText() == null || objDto.getText().isBlank()) {
+			throw new ParametroInvalidoException("O texto do comentário é obrigatório");
+		}
+		if (objDto.getAuthor() == null || objDto.getAuthor().getId() == null) {
+			throw new ParametroInvalidoException("O autor do comentário é obrigatório");
+		}
+
+		// 404 se o post ou o autor não existirem (normalmente vêm do cache)
+		service.findById(id);
+		AuthorDTO author = new AuthorDTO(userService.findById(objDto.getAuthor().getId()));
+		CompletableFuture<Void> done = commentBuffer.add(id, new CommentDTO(objDto.getText(), new Date(), author));
+
+		ResponseEntity<Void> accepted = ResponseEntity.accepted().build();
+		if (!ACK_DURABLE.equals(ack)) {
+			return CompletableFuture.completedFuture(accepted);
+		}
+		// Montada ainda na thread da requisição. Sem a query string (?ack=durable):
+		// ela não faz parte do endereço dos comentários
+		URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri();
+		// Erro da gravação (ex: post apagado enquanto o comentário esperava): o Spring
+		// desembrulha o CompletionException e o ResourceExceptionHandler responde.
+		// Se o prazo acabar, o comentário continua na fila: será gravado, só não
+		// confirmamos a tempo
+		return done.thenApply(v -> ResponseEntity.created(uri).<Void>build())
+				.completeOnTimeout(accepted, durableTimeoutMillis, TimeUnit.MILLISECONDS);
 	}
 
 	// Mapeia requisições GET para a raiz do endpoint (/posts).
 	// Como não tem "/{id}", ele atende quando chamamos apenas localhost:8080/posts
+	// Agora a listagem é paginada: ?limit=20&cursor=<token devolvido na página anterior>
+	// ?view=summary devolve a versão resumida (PostSummaryDTO), sem corpo e comentários;
+	// ?view=full (padrão) devolve os posts completos.
 	@RequestMapping(method = RequestMethod.GET)
-	public ResponseEntity<List<Post>> findAll() {
+	public ResponseEntity<List<?>> findAll(@RequestParam(value = "cursor", defaultValue = "") String cursor,
+			@RequestParam(value = "limit", defaultValue = "") String limit,
+			@RequestParam(value = "view", defaultValue = "full") String view, WebRequest request) {
+
+		// A versão da coleção é lida ANTES da página: se alguém gravar no meio, o
+		// ETag fica "velho" e o próximo GET condicional só recebe a página de novo
+		CollectionVersion version = collectionVersions.get(Post.class);
+		if (Conditional.notModified(request, version.getVersion(), version.getLastModified())) {
+			return null;
+		}
 
-		// Chama o serviço para buscar a lista
-		List<Post> list = service.findAll();
+		// 1. Interpreta o cursor (vazio = primeira página) e o tamanho da página
+		PageCursor after = PageCursor.decodeDated(cursor);
+		int pageSize = URL.convertLimit(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+		Date lastDate = after == null ? null : after.getDate();
+		String lastId = after == null ? null : after.getId();
+		RequestPhases.mark(RequestPhases.DECODE);
 
-		// Retorna a lista no corpo da resposta com status 200 OK
-		return ResponseEntity.ok().body(list);
+		// 2. Chama o serviço para buscar somente esta página, na versão pedida.
+		// 3. Página cheia = pode haver mais. Devolvemos o cursor do último item no
+		// cabeçalho, mantendo o corpo da resposta como uma lista simples
+		ResponseEntity.BodyBuilder response = Conditional.ok(version.getVersion(), version.getLastModified());
+		if ("summary".equalsIgnoreCase(view)) {
+			List<PostSummaryDTO> list = service.findSummaryPage(lastDate, lastId, pageSize);
+			RequestPhases.mark(RequestPhases.QUERY);
+			if (list.size() == pageSize) {
+				PostSummaryDTO last = list.get(list.size() - 1);
+				response.header(NEXT_CURSOR_HEADER, new PageCursor(last.getDate(), last.getId()).encode());
+			}
+			return response.body(list);
+		}
+
+		List<Post> list = service.findPage(lastDate, lastId, pageSize);
+		RequestPhases.mark(RequestPhases.QUERY);
+		if (list.size() == pageSize) {
+			Post last = list.get(list.size() - 1);
+			response.header(NEXT_CURSOR_HEADER, new PageCursor(last.getDate(), last.getId()).encode());
+		}
+		return response.body(list);
+	}
+
+	// Exportação completa da coleção em NDJSON (um post por linha): GET /posts/stream
+	// Usado por jobs que precisam de TODOS os posts. Os documentos vêm de um cursor
+	// do Mongo e são escritos um a um, então o consumo de memória fica constante.
+	@RequestMapping(value = "/stream", method = RequestMethod.GET)
+	public ResponseEntity<StreamingResponseBody> stream() {
+
+		// O StreamingResponseBody roda numa thread separada, depois que o método
+		// retorna: só então o cursor é aberto e fechado ao final (ou se o cliente cair)
+		StreamingResponseBody body = out -> {
+			try (Stream<Post> posts = service.streamAll(STREAM_BATCH_SIZE)) {
+				NdjsonWriter.write(posts, out, objectMapper);
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
 	}
 
 	// Mapeia uma nova rota GET.
@@ -63,18 +286,26 @@ public class PostResource {
 			// value="text": O nome do parâmetro na URL deve ser 'text'.
 			// defaultValue="": Se o usuário não digitar nada, assume que é uma string vazia
 			// (evita erro de nulo).
-			@RequestParam(value = "text", defaultValue = "") String text) {
+			@RequestParam(value = "text", defaultValue = "") String text, WebRequest request) {
+
+		// Mesmo ETag da listagem: a busca só muda quando a coleção muda
+		CollectionVersion version = collectionVersions.get(Post.class);
+		if (Conditional.notModified(request, version.getVersion(), version.getLastModified())) {
+			return null;
+		}
 
 		// 1. Decodifica o texto.
 		// Se o usuário digitou "bom%20dia" na URL, essa linha transforma volta para
 		// "bom dia" usando sua classe utilitária URL.
 		text = URL.decodeParam(text);
+		RequestPhases.mark(RequestPhases.DECODE);
 
 		// 2. Chama o serviço para buscar os posts que contenham essa palavra.
 		List<Post> list = service.findByTitle(text);
+		RequestPhases.mark(RequestPhases.QUERY);
 
 		// 3. Retorna a lista encontrada com status 200 OK.
-		return ResponseEntity.ok().body(list);
+		return Conditional.ok(version.getVersion(), version.getLastModified()).body(list);
 	}
 
 	// Endpoint para busca complexa (Texto + Período de Datas)
@@ -85,7 +316,18 @@ public class PostResource {
 			// Recebe o texto, data mínima e máxima via Query Param (URL depois do ?)
 			@RequestParam(value = "text", defaultValue = "") String text,
 			@RequestParam(value = "minDate", defaultValue = "") String minDate,
-			@RequestParam(value = "maxDate", defaultValue = "") String maxDate) {
+			@RequestParam(value = "maxDate", defaultValue = "") String maxDate,
+			// mode=text (padrão): índice de texto, resultados por relevância; o texto é
+			// obrigatório (400 sem ele)
+			// mode=regex: busca antiga por trecho de texto ($regex), sem índice
+			// Nos dois modos, dos comentários só contam os mais recentes de cada post
+			// (os que vêm embutidos nele); o histórico dos baldes não entra na busca
+			@RequestParam(value = "mode", defaultValue = "text") String mode, WebRequest request) {
+
+		CollectionVersion version = collectionVersions.get(Post.class);
+		if (Conditional.notModified(request, version.getVersion(), version.getLastModified())) {
+			return null;
+		}
 
 		// 1. Decodifica o texto (ex: "Bom%20Dia" -> "Bom Dia")
 		text = URL.decodeParam(text);
@@ -98,15 +340,20 @@ public class PostResource {
 		Date min = URL.convertDate(minDate, new Date(0L));
 
 		// 3. Trata a Data Máxima
-		// Se o usuário não informar a data máxima, usamos "new Date()".
-		// new Date() cria um objeto com a data e hora exata de AGORA. Ou seja: busca
-		// até o momento atual.
-		Date max = URL.convertDate(maxDate, new Date());
+		// Se o usuário não informar a data máxima, usamos a data de HOJE (meia-noite,
+		// GMT, como as datas da URL). O serviço soma um dia, então a busca vai até o
+		// fim de hoje. Sem a hora exata de agora, buscas iguais feitas no mesmo dia têm
+		// os mesmos parâmetros e aproveitam o cache de buscas (ver PostService).
+		long day = TimeUnit.DAYS.toMillis(1);
+		Date max = URL.convertDate(maxDate, new Date(System.currentTimeMillis() / day * day));
+		RequestPhases.mark(RequestPhases.DECODE);
 
 		// 4. Chama o serviço de busca completa, passando os dados já tratados
-		List<Post> list = service.fullSearch(text, min, max);
+		List<Post> list = "regex".equalsIgnoreCase(mode) ? service.fullSearch(text, min, max)
+				: service.textSearch(text, min, max);
+		RequestPhases.mark(RequestPhases.QUERY);
 
 		// 5. Retorna a lista filtrada
-		return ResponseEntity.ok().body(list);
+		return Conditional.ok(version.getVersion(), version.getLastModified()).body(list);
 	}
 }
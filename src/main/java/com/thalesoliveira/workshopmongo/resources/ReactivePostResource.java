@@ -0,0 +1,79 @@
+package com.thalesoliveira.workshopmongo.resources;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.resources.util.PageCursor;
+import com.thalesoliveira.workshopmongo.resources.util.URL;
+import com.thalesoliveira.workshopmongo.services.reactive.ReactivePostService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//Versão reativa do PostResource, lado a lado com a versão bloqueante (/posts).
+//Os métodos devolvem Mono/Flux: o Spring MVC libera a thread da requisição enquanto
+//o MongoDB trabalha e escreve a resposta quando os dados chegam.
+//As buscas saem em NDJSON (um post por linha), escritas conforme cada documento
+//chega, sem montar a lista inteira na memória; se o cliente lê devagar, o fluxo
+//desacelera junto (backpressure). A listagem geral é paginada, como a do /posts.
+@RestController
+@RequestMapping(value = "/reactive/posts")
+public class ReactivePostResource {
+
+	// Mesmos limites da listagem bloqueante
+	private static final int DEFAULT_PAGE_SIZE = 20;
+	private static final int MAX_PAGE_SIZE = 100;
+
+	@Autowired
+	private ReactivePostService service;
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.GET)
+	public Mono<Post> findById(@PathVariable String id) {
+		return service.findById(id);
+	}
+
+	// Listagem paginada, como o /posts: ?limit=20&cursor=<token>, no máximo
+	// MAX_PAGE_SIZE por página e o cursor da próxima no cabeçalho X-Next-Cursor.
+	// Aqui a resposta é um array JSON: o cabeçalho depende do último post, então a
+	// página (pequena) é juntada antes de responder
+	@RequestMapping(method = RequestMethod.GET)
+	public Mono<ResponseEntity<List<Post>>> findPage(@RequestParam(value = "cursor", defaultValue = "") String cursor,
+			@RequestParam(value = "limit", defaultValue = "") String limit) {
+		PageCursor after = PageCursor.decodeDated(cursor);
+		int pageSize = URL.convertLimit(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+		return service.findPage(after == null ? null : after.getDate(), after == null ? null : after.getId(), pageSize)
+				.collectList().map(list -> {
+					ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+					if (list.size() == pageSize) {
+						Post last = list.get(list.size() - 1);
+						response.header(PostResource.NEXT_CURSOR_HEADER,
+								new PageCursor(last.getDate(), last.getId()).encode());
+					}
+					return response.body(list);
+				});
+	}
+
+	@RequestMapping(value = "/titlesearch", method = RequestMethod.GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Post> findByTitle(@RequestParam(value = "text", defaultValue = "") String text) {
+		return service.findByTitle(URL.decodeParam(text));
+	}
+
+	@RequestMapping(value = "/fullsearch", method = RequestMethod.GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Post> fullSearch(@RequestParam(value = "text", defaultValue = "") String text,
+			@RequestParam(value = "minDate", defaultValue = "") String minDate,
+			@RequestParam(value = "maxDate", defaultValue = "") String maxDate) {
+		Date min = URL.convertDate(minDate, new Date(0L));
+		Date max = URL.convertDate(maxDate, new Date());
+		return service.fullSearch(URL.decodeParam(text), min, max);
+	}
+}
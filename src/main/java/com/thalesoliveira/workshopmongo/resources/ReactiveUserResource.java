@@ -0,0 +1,44 @@
+package com.thalesoliveira.workshopmongo.resources;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.UserDTO;
+import com.thalesoliveira.workshopmongo.services.reactive.ReactivePostService;
+import com.thalesoliveira.workshopmongo.services.reactive.ReactiveUserService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//Versão reativa do UserResource (ver ReactivePostResource)
+@RestController
+@RequestMapping(value = "/reactive/users")
+public class ReactiveUserResource {
+
+	@Autowired
+	private ReactiveUserService service;
+
+	@Autowired
+	private ReactivePostService postService;
+
+	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<UserDTO> findAll() {
+		return service.findAll();
+	}
+
+	@RequestMapping(value = "/{id}", method = RequestMethod.GET)
+	public Mono<UserDTO> findById(@PathVariable String id) {
+		return service.findById(id).map(x -> new UserDTO(x));
+	}
+
+	// Confere que o usuário existe e, em seguida, transmite os posts dele
+	@RequestMapping(value = "/{id}/posts", method = RequestMethod.GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Post> findPosts(@PathVariable String id) {
+		return service.findById(id).flatMapMany(user -> postService.findByAuthor(user.getId()));
+	}
+}
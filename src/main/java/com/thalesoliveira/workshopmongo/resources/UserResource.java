@@ -1,22 +1,48 @@
 package com.thalesoliveira.workshopmongo.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.thalesoliveira.workshopmongo.domain.CollectionVersion;
 import com.thalesoliveira.workshopmongo.domain.Post;
 import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.BatchItemDTO;
+import com.thalesoliveira.workshopmongo.dto.BatchResultDTO;
+import com.thalesoliveira.workshopmongo.dto.PostSummaryDTO;
 import com.thalesoliveira.workshopmongo.dto.UserDTO;
+import com.thalesoliveira.workshopmongo.resources.util.Conditional;
+import com.thalesoliveira.workshopmongo.resources.util.NdjsonWriter;
+import com.thalesoliveira.workshopmongo.resources.util.PageCursor;
+import com.thalesoliveira.workshopmongo.resources.util.URL;
+import com.thalesoliveira.workshopmongo.services.CollectionVersionService;
+import com.thalesoliveira.workshopmongo.services.FollowService;
+import com.thalesoliveira.workshopmongo.services.PostService;
 import com.thalesoliveira.workshopmongo.services.UserService;
+import com.thalesoliveira.workshopmongo.services.metrics.RequestPhases;
+import com.thalesoliveira.workshopmongo.services.timeline.TimelineService;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
 
 //Indica que esta classe é um recurso web REST (vai responder com dados JSON, e não páginas HTML)
 @RestController
@@ -24,27 +50,80 @@ import com.thalesoliveira.workshopmongo.services.UserService;
 @RequestMapping(value = "/users")
 public class UserResource {
 
+	// Tamanho padrão e máximo de uma página na listagem paginada
+	private static final int DEFAULT_PAGE_SIZE = 20;
+	private static final int MAX_PAGE_SIZE = 100;
+
+	// Quantos usuários vão em cada operação bulk da carga em lote
+	private static final int BATCH_CHUNK_SIZE = 1000;
+
 	// Injeta a dependência do Serviço (UserService), permitindo que o Controlador
 	// delegue para ele a execução das regras de negócio
 	@Autowired
 	private UserService service;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	// Usado para buscar os posts de um usuário direto na coleção "post"
+	@Autowired
+	private PostService postService;
+
+	// Versões das coleções: ETag das listagens
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	@Autowired
+	private FollowService followService;
+
+	// Timeline "home" (posts de quem o usuário segue)
+	@Autowired
+	private TimelineService timelineService;
+
 	// Quando alguém acessar essa URL querendo buscar informações (GET), execute
-	// este método aqui
+	// este método aqui. A listagem é paginada: ?limit=20&cursor=<token>
 	@RequestMapping(method = RequestMethod.GET)
 	// Encapsula toda a estrutura da resposta HTTP: permite definir o código de
 	// status (ex: 200 OK, 404 Not Found), os cabeçalhos e o corpo (body) da
 	// resposta
-	public ResponseEntity<List<UserDTO>> findAll() {
-		// Chama o serviço para buscar os usuários no banco e armazena o resultado na
-		// lista antes de retornar
-		List<User> list = service.findAll();
-		// Converte a lista de User (Entidade) para uma lista de UserDTO: pega cada
-		// objeto 'x', transforma em DTO e reagrupa em uma nova lista
-		List<UserDTO> listDto = list.stream().map(x -> new UserDTO(x)).collect(Collectors.toList());
+	public ResponseEntity<List<UserDTO>> findAll(@RequestParam(value = "cursor", defaultValue = "") String cursor,
+			@RequestParam(value = "limit", defaultValue = "") String limit, WebRequest request) {
+
+		// Versão da coleção lida antes da página (ver PostResource.findAll)
+		CollectionVersion version = collectionVersions.get(User.class);
+		if (Conditional.notModified(request, version.getVersion(), version.getLastModified())) {
+			return null;
+		}
+
+		PageCursor after = PageCursor.decode(cursor);
+		int pageSize = URL.convertLimit(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+		RequestPhases.mark(RequestPhases.DECODE);
+
+		// Chama o serviço para buscar apenas uma página de usuários no banco. O Mongo
+		// já devolve cada usuário no formato UserDTO (projeção), sem converter aqui.
+		List<UserDTO> listDto = service.findPage(after == null ? null : after.getId(), pageSize);
+		RequestPhases.mark(RequestPhases.QUERY);
+
+		// Página cheia = pode haver mais: devolve o cursor do último usuário no cabeçalho
+		ResponseEntity.BodyBuilder response = Conditional.ok(version.getVersion(), version.getLastModified());
+		if (listDto.size() == pageSize) {
+			response.header(PostResource.NEXT_CURSOR_HEADER, new PageCursor(null, listDto.get(listDto.size() - 1).getId()).encode());
+		}
 		// Retorna a resposta com status HTTP 200 (Sucesso) e coloca a lista de usuários
 		// no corpo da resposta
-		return ResponseEntity.ok().body(listDto);
+		return response.body(listDto);
+	}
+
+	// Exportação completa dos usuários em NDJSON: GET /users/stream
+	// Mesmo esquema do /posts/stream: cursor do Mongo + escrita documento a documento
+	@RequestMapping(value = "/stream", method = RequestMethod.GET)
+	public ResponseEntity<StreamingResponseBody> stream() {
+		StreamingResponseBody body = out -> {
+			try (Stream<UserDTO> users = service.streamAll(PostResource.STREAM_BATCH_SIZE)) {
+				NdjsonWriter.write(users, out, objectMapper);
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
 	}
 
 	// Mapeia requisições do tipo GET que trazem um id na URL (ex: /users/123). As
@@ -52,14 +131,27 @@ public class UserResource {
 	@RequestMapping(value = "/{id}", method = RequestMethod.GET)
 	// O @PathVariable pega o valor do "{id}" que veio na URL e o atribui à variável
 	// 'id' para ser usada na busca. O retorno será um UserDTO envelopado.
-	public ResponseEntity<UserDTO> findById(@PathVariable String id) {
+	public ResponseEntity<UserDTO> findById(@PathVariable String id, WebRequest request) {
+		RequestPhases.mark(RequestPhases.DECODE);
+
+		// GET condicional: confere só a versão antes de carregar (ver PostResource)
+		if (Conditional.isConditional(request)) {
+			User current = service.findVersion(id);
+			if (Conditional.notModified(request, current.getVersion(), current.getLastModified())) {
+				return null;
+			}
+		}
+
 		// Aciona a camada de serviço para buscar o usuário pelo ID e guarda o objeto
 		// original (Entidade) retornado na variável 'obj'
 		User obj = service.findById(id);
+		RequestPhases.mark(RequestPhases.QUERY);
 		// Converte o objeto 'obj' (Entidade) para 'UserDTO' ali mesmo e o envia no
 		// corpo da resposta com status 200 (OK), garantindo que apenas os dados
 		// filtrados sejam expostos
-		return ResponseEntity.ok().body(new UserDTO(obj));
+		UserDTO dto = new UserDTO(obj);
+		RequestPhases.mark(RequestPhases.MAP);
+		return Conditional.ok(obj.getVersion(), obj.getLastModified()).body(dto);
 	}
 
 	// Mapeia requisições do tipo POST (usado para inserir/criar novos recursos no
@@ -85,15 +177,68 @@ public class UserResource {
 		return ResponseEntity.created(uri).build();
 	}
 
+	// Carga em lote de usuários: POST /users/batch
+	// O corpo pode ser um array JSON ([{...},{...}]) ou NDJSON (um usuário por linha).
+	// O corpo é lido aos poucos, direto do InputStream da requisição: guardamos na
+	// memória só o lote atual (BATCH_CHUNK_SIZE usuários), nunca o arquivo inteiro.
+	// A resposta também sai aos poucos, em NDJSON: uma linha por item (BatchItemDTO),
+	// enviada assim que o lote dele é gravado, e por último uma linha com os totais
+	// (BatchResultDTO). Nada da resposta fica acumulado na memória.
+	@RequestMapping(value = "/batch", method = RequestMethod.POST)
+	public ResponseEntity<StreamingResponseBody> insertBatch(InputStream body) {
+		StreamingResponseBody response = out -> {
+			BatchResultDTO totals = new BatchResultDTO();
+			List<User> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+			int index = 0;
+
+			// readValues entende tanto os itens de um array quanto vários JSON seguidos
+			try (MappingIterator<UserDTO> it = objectMapper.readerFor(UserDTO.class).readValues(body)) {
+				while (it.hasNextValue()) {
+					chunk.add(service.fromDTO(it.nextValue()));
+					if (chunk.size() == BATCH_CHUNK_SIZE) {
+						index += writeResults(service.insertAll(chunk, index), totals, out);
+						chunk.clear();
+					}
+				}
+			} catch (JacksonException e) {
+				// JSON mal formado: gravamos o que veio antes e apontamos onde parou
+				if (!chunk.isEmpty()) {
+					index += writeResults(service.insertAll(chunk, index), totals, out);
+					chunk.clear();
+				}
+				writeResults(List.of(new BatchItemDTO(index, null, "JSON inválido: " + e.getOriginalMessage())),
+						totals, out);
+			}
+			if (!chunk.isEmpty()) {
+				writeResults(service.insertAll(chunk, index), totals, out);
+			}
+			NdjsonWriter.writeLine(totals, out, objectMapper);
+			out.flush();
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
+	}
+
+	// Envia o resultado de cada item de um lote (uma linha cada) e soma nos totais.
+	// Devolve quantos itens foram escritos
+	private int writeResults(List<BatchItemDTO> items, BatchResultDTO totals, OutputStream out) throws IOException {
+		for (BatchItemDTO item : items) {
+			totals.add(item);
+			NdjsonWriter.writeLine(item, out, objectMapper);
+		}
+		out.flush();
+		return items.size();
+	}
+
 	// Mapeia requisições HTTP do tipo DELETE que tenham um ID na URL (ex: DELETE
-	// /users/123)
+	// /users/123). Opcional: If-Match: "<versão>" (o ETag do GET) só apaga se
+	// ninguém alterou o usuário desde então (senão 412).
 	@RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
-	public ResponseEntity<Void> delete(@PathVariable String id) {
+	public ResponseEntity<Void> delete(@PathVariable String id,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) {
 
 		// Chama a camada de serviço para realizar a exclusão.
-		// Lembre-se: o seu serviço já tem a lógica de verificar se o ID existe antes de
-		// tentar apagar.
-		service.delete(id);
+		// O próprio delete informa se apagou algo: ID inexistente vira 404.
+		service.delete(id, Conditional.ifMatchVersion(ifMatch));
 
 		// Retorna o código HTTP 204 (No Content).
 		// Esse é o padrão mundial para deletar: diz ao navegador "Operação realizada
@@ -104,8 +249,11 @@ public class UserResource {
 	// Mapeia requisições do tipo PUT (usado para atualizar dados) que tenham um ID
 	// na URL.
 	// Exemplo de chamada: PUT /users/123 (onde o corpo do JSON traz os novos dados)
+	// Opcional: If-Match: "<versão>" evita sobrescrever a alteração de outro
+	// cliente: se a versão não for mais a atual, nada é gravado e a resposta é 412.
 	@RequestMapping(value = "/{id}", method = RequestMethod.PUT)
-	public ResponseEntity<Void> update(@RequestBody UserDTO objDto, @PathVariable String id) {
+	public ResponseEntity<Void> update(@RequestBody UserDTO objDto, @PathVariable String id,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) {
 
 		// 1. Converte o DTO (JSON recebido) para um objeto Entidade (User).
 		// Isso é necessário porque o Service trabalha com Entidades, não com DTOs.
@@ -118,23 +266,81 @@ public class UserResource {
 		obj.setId(id);
 
 		// 3. Chama o serviço para efetivar a atualização no banco de dados.
-		obj = service.update(obj);
+		obj = service.update(obj, Conditional.ifMatchVersion(ifMatch));
 
 		// 4. Retorna o código HTTP 204 (No Content).
 		// Assim como no Delete, no Update geralmente não precisa retornar nada,
-		// apenas avisar que a operação foi um sucesso.
-		return ResponseEntity.noContent().build();
+		// apenas avisar que a operação foi um sucesso. O ETag é a nova versão, para
+		// o cliente usar no próximo If-Match.
+		return ResponseEntity.noContent().eTag(Conditional.etag(obj.getVersion())).build();
 	}
 	
 	@RequestMapping(value="/{id}/posts", method=RequestMethod.GET)
-	// Endpoint para buscar todos os posts de um usuário específico (Ex: GET /users/123/posts)
-	public ResponseEntity<List<Post>> findPosts(@PathVariable String id) {
-	    
-	    // 1. Primeiro, carrega o objeto Usuário inteiro do banco de dados.
-	    User obj = service.findById(id);
+	// Endpoint para buscar os posts de um usuário específico (Ex: GET /users/123/posts)
+	// Paginado como o /posts: ?limit=20&cursor=<token>, mais recentes primeiro
+	public ResponseEntity<List<Post>> findPosts(@PathVariable String id,
+			@RequestParam(value = "cursor", defaultValue = "") String cursor,
+			@RequestParam(value = "limit", defaultValue = "") String limit, WebRequest request) {
 	    
-	    // 2. Acessa a lista de posts desse usuário e a retorna.
-	    // O PULO DO GATO: Se você usou @DBRef, é exatamente aqui no 'getPosts()' que o Spring vai automaticamente na outra coleção buscar os dados dos posts.
-	    return ResponseEntity.ok().body(obj.getPosts());
+	    // 1. Garante que o usuário existe (senão, 404). Vem do cache na maioria das vezes.
+	    service.findById(id);
+
+	    // Os posts do usuário mudam junto com a coleção de posts: ETag = versão dela
+	    CollectionVersion version = collectionVersions.get(Post.class);
+	    if (Conditional.notModified(request, version.getVersion(), version.getLastModified())) {
+	    	return null;
+	    }
+
+	    // 2. Em vez de percorrer obj.getPosts() (lista @DBRef lazy, que busca cada post
+	    // com uma consulta separada), fazemos UMA consulta na coleção de posts filtrando
+	    // pelo autor, já paginada e ordenada por data.
+	    PageCursor after = PageCursor.decodeDated(cursor);
+	    int pageSize = URL.convertLimit(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+	    RequestPhases.mark(RequestPhases.DECODE);
+	    List<Post> list = after == null ? postService.findByAuthor(id, null, null, pageSize)
+	    		: postService.findByAuthor(id, after.getDate(), after.getId(), pageSize);
+	    RequestPhases.mark(RequestPhases.QUERY);
+
+	    ResponseEntity.BodyBuilder response = Conditional.ok(version.getVersion(), version.getLastModified());
+	    if (list.size() == pageSize) {
+	    	Post last = list.get(list.size() - 1);
+	    	response.header(PostResource.NEXT_CURSOR_HEADER, new PageCursor(last.getDate(), last.getId()).encode());
+	    }
+	    return response.body(list);
+	}
+
+	// Passa a seguir outro usuário (PUT /users/123/following/456). Idempotente
+	@RequestMapping(value = "/{id}/following/{followeeId}", method = RequestMethod.PUT)
+	public ResponseEntity<Void> follow(@PathVariable String id, @PathVariable String followeeId) {
+		followService.follow(id, followeeId);
+		return ResponseEntity.noContent().build();
+	}
+
+	@RequestMapping(value = "/{id}/following/{followeeId}", method = RequestMethod.DELETE)
+	public ResponseEntity<Void> unfollow(@PathVariable String id, @PathVariable String followeeId) {
+		followService.unfollow(id, followeeId);
+		return ResponseEntity.noContent().build();
+	}
+
+	// Timeline do usuário: posts de quem ele segue, mais recentes primeiro, na versão
+	// resumida. Paginada como o /posts: ?limit=20&cursor=<token>
+	@RequestMapping(value = "/{id}/feed", method = RequestMethod.GET)
+	public ResponseEntity<List<PostSummaryDTO>> feed(@PathVariable String id,
+			@RequestParam(value = "cursor", defaultValue = "") String cursor,
+			@RequestParam(value = "limit", defaultValue = "") String limit) {
+		service.findById(id);
+		PageCursor after = PageCursor.decodeDated(cursor);
+		int pageSize = URL.convertLimit(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+		RequestPhases.mark(RequestPhases.DECODE);
+		List<PostSummaryDTO> list = after == null ? timelineService.feed(id, null, null, pageSize)
+				: timelineService.feed(id, after.getDate(), after.getId(), pageSize);
+		RequestPhases.mark(RequestPhases.QUERY);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (list.size() == pageSize) {
+			PostSummaryDTO last = list.get(list.size() - 1);
+			response.header(PostResource.NEXT_CURSOR_HEADER, new PageCursor(last.getDate(), last.getId()).encode());
+		}
+		return response.body(list);
 	}
 }
@@ -1,11 +1,17 @@
 package com.thalesoliveira.workshopmongo.resources.exception;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+import com.thalesoliveira.workshopmongo.services.exception.SobrecargaException;
+import com.thalesoliveira.workshopmongo.services.exception.VersaoDesatualizadaException;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -39,4 +45,54 @@ public class ResourceExceptionHandler {
 		// convertido para JSON).
 		return ResponseEntity.status(status).body(err);
 	}
+
+	// Parâmetro que não conseguimos interpretar (ex: cursor de paginação inválido):
+	// responde 400 Bad Request no mesmo formato StandardError do 404 acima
+	@ExceptionHandler(ParametroInvalidoException.class)
+	public ResponseEntity<StandardError> invalidParameter(ParametroInvalidoException e, HttpServletRequest request) {
+		HttpStatus status = HttpStatus.BAD_REQUEST;
+		StandardError err = new StandardError(System.currentTimeMillis(), status.value(), e.getMessage(),
+				request.getRequestURI());
+		return ResponseEntity.status(status).body(err);
+	}
+
+	// If-Match com uma versão que não é mais a atual: 412 Precondition Failed
+	@ExceptionHandler(VersaoDesatualizadaException.class)
+	public ResponseEntity<StandardError> staleVersion(VersaoDesatualizadaException e, HttpServletRequest request) {
+		HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+		StandardError err = new StandardError(System.currentTimeMillis(), status.value(), e.getMessage(),
+				request.getRequestURI());
+		return ResponseEntity.status(status).body(err);
+	}
+
+	// Gravação barrada por um índice único (ex: email já cadastrado): 409 Conflict
+	@ExceptionHandler(DuplicateKeyException.class)
+	public ResponseEntity<StandardError> duplicateKey(DuplicateKeyException e, HttpServletRequest request) {
+		HttpStatus status = HttpStatus.CONFLICT;
+		StandardError err = new StandardError(System.currentTimeMillis(), status.value(),
+				"Já existe um registro com este valor (ex: email já cadastrado)", request.getRequestURI());
+		return ResponseEntity.status(status).body(err);
+	}
+
+	// O documento foi alterado por outra requisição entre a leitura e a gravação
+	// (campo @Version): 409 Conflict, o cliente deve reler e tentar de novo
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<StandardError> concurrentUpdate(OptimisticLockingFailureException e,
+			HttpServletRequest request) {
+		HttpStatus status = HttpStatus.CONFLICT;
+		StandardError err = new StandardError(System.currentTimeMillis(), status.value(),
+				"O registro foi alterado por outra requisição", request.getRequestURI());
+		return ResponseEntity.status(status).body(err);
+	}
+
+	// Limite de requisições simultâneas atingido (ver AdmissionConfig): 503 imediato,
+	// com Retry-After dizendo em quantos segundos tentar de novo
+	@ExceptionHandler(SobrecargaException.class)
+	public ResponseEntity<StandardError> overloaded(SobrecargaException e, HttpServletRequest request) {
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+		StandardError err = new StandardError(System.currentTimeMillis(), status.value(), e.getMessage(),
+				request.getRequestURI());
+		return ResponseEntity.status(status).header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.body(err);
+	}
 }
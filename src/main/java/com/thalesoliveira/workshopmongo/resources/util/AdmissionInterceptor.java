@@ -0,0 +1,77 @@
+package com.thalesoliveira.workshopmongo.resources.util;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.thalesoliveira.workshopmongo.services.exception.SobrecargaException;
+import com.thalesoliveira.workshopmongo.services.limit.AdaptiveLimiter;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Controle de admissão de uma classe de endpoints (ver AdmissionConfig): só deixa
+// a requisição chegar ao controlador se o AdaptiveLimiter dela tiver vaga; senão,
+// 503 com Retry-After. Vale só para leituras (GET): gravações não são barradas.
+// Uma resposta assíncrona segura a vaga até terminar de verdade (o Spring chama
+// preHandle de novo no despacho ASYNC, que não pode pedir outra vaga), mas a
+// duração dela não entra no ajuste do limite.
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+	private final AdaptiveLimiter limiter;
+	private final int retryAfterSeconds;
+
+	// Guarda o início da execução na requisição; a presença dele = vaga ocupada
+	private final String startAttribute;
+
+	// Presente quando a requisição virou assíncrona
+	private final String asyncAttribute;
+
+	public AdmissionInterceptor(AdaptiveLimiter limiter, int retryAfterSeconds) {
+		this.limiter = limiter;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.startAttribute = AdmissionInterceptor.class.getName() + "." + limiter.getName();
+		this.asyncAttribute = startAttribute + ".async";
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!"GET".equals(request.getMethod()) || request.getDispatcherType() == DispatcherType.ASYNC) {
+			return true;
+		}
+		if (!limiter.acquire()) {
+			throw new SobrecargaException("Muitas requisições de " + limiter.getName() + " no momento; tente de novo",
+					retryAfterSeconds);
+		}
+		request.setAttribute(startAttribute, System.nanoTime());
+		return true;
+	}
+
+	// O controlador retornou mas a resposta continua: a vaga é liberada no
+	// afterCompletion do despacho ASYNC
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		if (request.getAttribute(startAttribute) != null) {
+			request.setAttribute(asyncAttribute, Boolean.TRUE);
+		}
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		release(request);
+	}
+
+	private void release(HttpServletRequest request) {
+		Object start = request.getAttribute(startAttribute);
+		if (start != null) {
+			request.removeAttribute(startAttribute);
+			if (request.getAttribute(asyncAttribute) != null) {
+				request.removeAttribute(asyncAttribute);
+				limiter.release();
+			} else {
+				limiter.release(System.nanoTime() - (Long) start);
+			}
+		}
+	}
+}
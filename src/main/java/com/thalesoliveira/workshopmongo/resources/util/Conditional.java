@@ -0,0 +1,137 @@
+package com.thalesoliveira.workshopmongo.resources.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+// GET condicional: o cliente manda de volta o ETag (If-None-Match) ou a data
+// (If-Modified-Since) da resposta que já tem; se nada mudou, respondemos 304 Not
+// Modified sem corpo, e ele reaproveita a cópia dele.
+// O ETag é a versão do documento (ou da coleção, nas listagens). A mesma versão
+// pode ir em JSON, CBOR ou Smile (ver BinaryFormatsConfig), com bytes diferentes:
+// o formato entra no ETag ("5", "5-cbor", "5-smile") e as respostas levam
+// "Vary: Accept", para que nenhum cache entregue um formato no lugar do outro.
+public class Conditional {
+
+	public static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+	// Formatos das respostas, na ordem dos conversores: sem preferência, JSON
+	private static final List<MediaType> FORMATS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+			SMILE);
+
+	// O cliente mandou algum cabeçalho condicional?
+	public static boolean isConditional(WebRequest request) {
+		return request.getHeader("If-None-Match") != null || request.getHeader("If-Modified-Since") != null;
+	}
+
+	// Compara a versão atual com a do cliente. Se não mudou, a resposta já fica como
+	// 304 e o controlador deve devolver null (sem corpo). Versão desconhecida (null,
+	// ver CollectionVersionService.get) nunca é "não modificada".
+	public static boolean notModified(WebRequest request, Long version, Date lastModified) {
+		if (version == null) {
+			return false;
+		}
+		if (!request.checkNotModified(etag(version), lastModified == null ? -1 : lastModified.getTime())) {
+			return false;
+		}
+		// O 304 também diz de qual representação ele fala
+		if (request instanceof NativeWebRequest nativeRequest) {
+			HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+			if (response != null) {
+				response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+			}
+		}
+		return true;
+	}
+
+	// Resposta 200 com ETag e Last-Modified da versão que está indo no corpo.
+	// O Spring ainda confere esses cabeçalhos com os do cliente antes de escrever
+	// o corpo, e troca por 304 se coincidirem. Versão null: sem esses cabeçalhos.
+	public static ResponseEntity.BodyBuilder ok(Long version, Date lastModified) {
+		if (version == null) {
+			return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).eTag(etag(version));
+		if (lastModified != null) {
+			response.lastModified(lastModified.getTime());
+		}
+		return response;
+	}
+
+	// Versão pedida no If-Match de um PUT/DELETE ("altere só se ainda estiver nesta
+	// versão"). null = cabeçalho ausente ou "*" (qualquer versão). O formato do ETag
+	// ("-cbor") não importa aqui: a versão é a mesma em todos.
+	public static Long ifMatchVersion(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String tag = ifMatch.trim();
+		if (tag.startsWith("W/")) {
+			tag = tag.substring(2);
+		}
+		tag = tag.replace("\"", "");
+		int format = tag.indexOf('-');
+		if (format > 0) {
+			tag = tag.substring(0, format);
+		}
+		try {
+			return Long.valueOf(tag);
+		} catch (NumberFormatException e) {
+			throw new ParametroInvalidoException("If-Match inválido");
+		}
+	}
+
+	// ETag forte: mesma versão e mesmo formato = mesmos bytes. O formato é o que a
+	// negociação de conteúdo vai escolher para o Accept da requisição atual
+	public static String etag(Long version) {
+		String format = format(currentAccept());
+		return "\"" + (version == null ? 0L : version) + (format == null ? "" : "-" + format) + "\"";
+	}
+
+	// Sufixo do ETag para o formato escolhido por um cabeçalho Accept (null = JSON).
+	// Mesma regra dos conversores do Spring: os tipos aceitos compatíveis com algum
+	// formato, do mais específico/maior 'q' para o menos; no empate, a ordem de FORMATS
+	static String format(String accept) {
+		if (accept == null || accept.isBlank()) {
+			return null;
+		}
+		List<MediaType> candidates = new ArrayList<>();
+		try {
+			for (MediaType accepted : MediaType.parseMediaTypes(accept)) {
+				for (MediaType format : FORMATS) {
+					if (accepted.getQualityValue() > 0 && accepted.isCompatibleWith(format)) {
+						candidates.add(format.copyQualityValue(accepted));
+					}
+				}
+			}
+		} catch (InvalidMediaTypeException e) {
+			return null;
+		}
+		MimeTypeUtils.sortBySpecificity(candidates);
+		if (candidates.isEmpty() || candidates.get(0).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+			return null;
+		}
+		return SMILE.getSubtype().equals(candidates.get(0).getSubtype()) ? "smile" : "cbor";
+	}
+
+	private static String currentAccept() {
+		if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+			return attributes.getRequest().getHeader(HttpHeaders.ACCEPT);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,41 @@
+package com.thalesoliveira.workshopmongo.resources.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import tools.jackson.databind.ObjectMapper;
+
+// Escreve um Stream de objetos no formato NDJSON (um JSON por linha).
+// Cada documento é serializado e enviado sozinho, então a memória usada não depende
+// do tamanho da coleção. O próprio OutputStream do servlet faz o papel de
+// "backpressure": se o cliente lê devagar, o write() bloqueia e paramos de puxar
+// novos documentos do cursor do Mongo.
+public class NdjsonWriter {
+
+	// De quantas em quantas linhas forçamos o envio do que está no buffer
+	private static final int FLUSH_EVERY = 500;
+
+	private static final byte NEW_LINE = '\n';
+
+	public static void write(Stream<?> items, OutputStream out, ObjectMapper mapper) throws IOException {
+		int count = 0;
+		Iterator<?> it = items.iterator();
+		while (it.hasNext()) {
+			writeLine(it.next(), out, mapper);
+			if (++count % FLUSH_EVERY == 0) {
+				out.flush();
+			}
+		}
+		out.flush();
+	}
+
+	// Uma linha só, sem flush (quem chama decide quando enviar)
+	public static void writeLine(Object item, OutputStream out, ObjectMapper mapper) throws IOException {
+		// writeValueAsBytes em vez de writeValue(out, ...): o writeValue fecharia o
+		// OutputStream da resposta logo no primeiro documento
+		out.write(mapper.writeValueAsBytes(item));
+		out.write(NEW_LINE);
+	}
+}
@@ -0,0 +1,68 @@
+package com.thalesoliveira.workshopmongo.resources.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+
+// Cursor de paginação "keyset": em vez de pular N documentos (skip), guardamos a
+// chave do último item entregue (data + _id) e a próxima página começa logo depois dele.
+// Para o cliente o token é opaco: uma string Base64 que ele apenas devolve na próxima chamada.
+public class PageCursor {
+
+	private final Date date;
+	private final String id;
+
+	public PageCursor(Date date, String id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	// Monta o token no formato "<millis>:<id>" (ou ":<id>" quando não há data) e
+	// codifica em Base64 "URL safe", para poder ir direto na query string
+	public String encode() {
+		String raw = (date == null ? "" : String.valueOf(date.getTime())) + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Faz o caminho inverso do encode(). Cursor vazio significa "primeira página" (null).
+	// Um token que não conseguimos ler é erro do cliente, por isso lançamos 400 em vez
+	// de recomeçar silenciosamente do início.
+	public static PageCursor decode(String token) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int sep = raw.indexOf(':');
+			if (sep < 0 || sep == raw.length() - 1) {
+				throw new ParametroInvalidoException("Cursor inválido");
+			}
+			Date date = sep == 0 ? null : new Date(Long.parseLong(raw.substring(0, sep)));
+			return new PageCursor(date, raw.substring(sep + 1));
+		} catch (IllegalArgumentException e) {
+			// NumberFormatException também é uma IllegalArgumentException
+			throw new ParametroInvalidoException("Cursor inválido");
+		}
+	}
+
+	// Para as listagens ordenadas por (data, _id), como /posts: o cursor precisa ter
+	// as duas partes. Um cursor só com o id (o formato do /users) viraria o filtro
+	// "date < null" e devolveria uma página errada, então também é 400.
+	public static PageCursor decodeDated(String token) {
+		PageCursor cursor = decode(token);
+		if (cursor != null && cursor.getDate() == null) {
+			throw new ParametroInvalidoException("Cursor inválido");
+		}
+		return cursor;
+	}
+}
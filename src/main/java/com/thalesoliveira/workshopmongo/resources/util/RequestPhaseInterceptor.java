@@ -0,0 +1,59 @@
+package com.thalesoliveira.workshopmongo.resources.util;
+
+import java.util.Map;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.thalesoliveira.workshopmongo.services.metrics.LatencyMetrics;
+import com.thalesoliveira.workshopmongo.services.metrics.RequestPhases;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Abre o cronômetro de fases (RequestPhases) antes do controlador e, depois que a
+// resposta foi escrita, registra cada fase no histograma "método rota fase".
+// Tudo o que acontece entre o retorno do controlador e o fim da requisição
+// (conversão para JSON e escrita) conta como 'serialize'.
+public class RequestPhaseInterceptor implements HandlerInterceptor {
+
+	private final LatencyMetrics metrics;
+
+	public RequestPhaseInterceptor(LatencyMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		RequestPhases.begin();
+		return true;
+	}
+
+	// Respostas assíncronas (ex: /posts/stream) continuam em outra thread: não medimos
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		RequestPhases.end();
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		RequestPhases phases = RequestPhases.end();
+		if (phases == null) {
+			return;
+		}
+		// Rota com as variáveis, não a URL real: /posts/{id} e não /posts/65a0...
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String route = request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern);
+
+		// Só quebramos em fases os endpoints cujo controlador marcou alguma
+		if (!phases.getPhases().isEmpty()) {
+			phases.finishPhase(RequestPhases.SERIALIZE);
+			for (Map.Entry<String, Long> phase : phases.getPhases().entrySet()) {
+				metrics.recordRequest(route + " " + phase.getKey(), phase.getValue());
+			}
+		}
+		metrics.recordRequest(route + " total", phases.getTotalNanos());
+	}
+}
@@ -51,4 +51,19 @@ public class URL {
 		}
 	}
 
+	// Converte o parâmetro "limit" da paginação para um inteiro válido.
+	// Ausente ou inválido -> usa o defaultValue; maior que o máximo -> corta no máximo.
+	// Assim nenhuma requisição consegue pedir a coleção inteira de uma vez.
+	public static int convertLimit(String textLimit, int defaultValue, int maxValue) {
+		try {
+			int limit = Integer.parseInt(textLimit);
+			if (limit < 1) {
+				return defaultValue;
+			}
+			return Math.min(limit, maxValue);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
 }
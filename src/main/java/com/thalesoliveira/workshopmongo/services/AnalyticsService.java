@@ -0,0 +1,396 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.thalesoliveira.workshopmongo.domain.AuthorDayStats;
+import com.thalesoliveira.workshopmongo.domain.CommentBucket;
+import com.thalesoliveira.workshopmongo.domain.Follow;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.PostStats;
+import com.thalesoliveira.workshopmongo.domain.UserStats;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.index.IndexManager;
+
+// Métricas para os painéis (posts por autor por dia, comentários por post, quem
+// mais comenta), guardadas já somadas em três coleções de resumo:
+// - author_day_stats: por autor e dia (posts publicados, comentários escritos)
+// - post_stats: por post (comentários recebidos, último comentário)
+// - user_stats: por usuário (totais de posts, seguidores e comentários)
+//
+// Cada gravação de post ou comentário soma ($inc, com upsert) nos resumos que ela
+// afeta, então as leituras são consultas por _id ou os primeiros N de um índice:
+// o custo não cresce com o tamanho das coleções "post" e "comment_bucket".
+// As somas são feitas depois da gravação principal, fora de transação: uma falha
+// entre as duas deixa o resumo um pouco defasado, e o rebuild() o recalcula do zero.
+@Service
+public class AnalyticsService {
+
+	private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
+
+	private static final DateTimeFormatter DAY = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+
+	// Maior intervalo de dias devolvido de uma vez para um autor
+	private static final int MAX_DAYS = 366;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private IndexManager indexManager;
+
+	// Executa o rebuild pedido pela API fora da thread da requisição
+	@Autowired
+	private TaskScheduler scheduler;
+
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+	// Post novo: +1 post no dia do autor e no total dele, e o resumo do post começa zerado
+	public void postCreated(Post post) {
+		if (post.getAuthorDTO() == null) {
+			return;
+		}
+		String authorId = post.getAuthorDTO().getId();
+		String day = dayOf(post.getDate());
+		mongoTemplate.upsert(new Query(Criteria.where("id").is(post.getId())),
+				new Update().setOnInsert("authorId", authorId).setOnInsert("day", day).setOnInsert("comments", 0L),
+				PostStats.class);
+		mongoTemplate.upsert(new Query(Criteria.where("id").is(authorDayId(authorId, day))),
+				new Update().setOnInsert("authorId", authorId).setOnInsert("day", day).inc("posts", 1),
+				AuthorDayStats.class);
+		mongoTemplate.upsert(new Query(Criteria.where("id").is(authorId)),
+				new Update().set("name", post.getAuthorDTO().getName()).inc("posts", 1), UserStats.class);
+	}
+
+	// Post removido: desconta o post do autor e os comentários de quem comentou nele.
+	// Precisa rodar ANTES de os baldes de comentários do post serem apagados.
+	public void postDeleted(String postId) {
+		PostStats stats = mongoTemplate.findAndRemove(new Query(Criteria.where("id").is(postId)), PostStats.class);
+		if (stats == null) {
+			return;
+		}
+		BulkOperations days = mongoTemplate.bulkOps(BulkMode.UNORDERED, AuthorDayStats.class);
+		BulkOperations users = mongoTemplate.bulkOps(BulkMode.UNORDERED, UserStats.class);
+		days.updateOne(new Query(Criteria.where("id").is(authorDayId(stats.getAuthorId(), stats.getDay()))),
+				new Update().inc("posts", -1));
+		users.updateOne(new Query(Criteria.where("id").is(stats.getAuthorId())), new Update().inc("posts", -1));
+
+		// Comentários do post por (autor, dia), somados pelo próprio Mongo nos baldes
+		List<Document> pipeline = Arrays.asList(new Document("$match", new Document("postId", postId)),
+				new Document("$unwind", "$comments"),
+				new Document("$group", new Document("_id", new Document("a", "$comments.author._id")
+						.append("d", dayExpression("$comments.date"))).append("n", new Document("$sum", 1))));
+		for (Document group : mongoTemplate.getCollection(mongoTemplate.getCollectionName(CommentBucket.class))
+				.aggregate(pipeline)) {
+			Document key = group.get("_id", Document.class);
+			if (key.get("a") == null) {
+				continue;
+			}
+			String commenterId = key.get("a").toString();
+			long n = ((Number) group.get("n")).longValue();
+			days.updateOne(new Query(Criteria.where("id").is(authorDayId(commenterId, key.getString("d")))),
+					new Update().inc("comments", -n));
+			users.updateOne(new Query(Criteria.where("id").is(commenterId)), new Update().inc("comments", -n));
+		}
+		days.execute();
+		users.execute();
+	}
+
+	// Comentários novos num post: soma no post e em cada (autor do comentário, dia).
+	// Os comentários são agrupados antes, então um lote com vários comentários do
+	// mesmo usuário vira um $inc só; tudo vai em uma operação bulk por coleção.
+	public void commentsAdded(String postId, List<CommentDTO> comments) {
+		Date last = null;
+		Map<String, Long> perDay = new HashMap<>();
+		Map<String, Long> perUser = new HashMap<>();
+		Map<String, String> names = new HashMap<>();
+		Map<String, Date> lastPerUser = new HashMap<>();
+		for (CommentDTO comment : comments) {
+			Date date = comment.getDate() == null ? new Date() : comment.getDate();
+			last = last == null || date.after(last) ? date : last;
+			if (comment.getAuthor() == null || comment.getAuthor().getId() == null) {
+				continue;
+			}
+			String userId = comment.getAuthor().getId();
+			perDay.merge(authorDayId(userId, dayOf(date)), 1L, Long::sum);
+			perUser.merge(userId, 1L, Long::sum);
+			names.put(userId, comment.getAuthor().getName());
+			lastPerUser.merge(userId, date, (a, b) -> a.after(b) ? a : b);
+		}
+
+		Update post = new Update().inc("comments", comments.size());
+		if (last != null) {
+			post.max("lastCommentDate", last);
+		}
+		mongoTemplate.updateFirst(new Query(Criteria.where("id").is(postId)), post, PostStats.class);
+
+		if (perUser.isEmpty()) {
+			return;
+		}
+		BulkOperations days = mongoTemplate.bulkOps(BulkMode.UNORDERED, AuthorDayStats.class);
+		perDay.forEach((id, n) -> {
+			int sep = id.lastIndexOf(':');
+			days.upsert(new Query(Criteria.where("id").is(id)), new Update().setOnInsert("authorId", id.substring(0, sep))
+					.setOnInsert("day", id.substring(sep + 1)).inc("comments", n));
+		});
+		days.execute();
+
+		BulkOperations users = mongoTemplate.bulkOps(BulkMode.UNORDERED, UserStats.class);
+		perUser.forEach((id, n) -> users.upsert(new Query(Criteria.where("id").is(id)),
+				new Update().set("name", names.get(id)).inc("comments", n).max("lastCommentDate", lastPerUser.get(id))));
+		users.execute();
+	}
+
+	// Seguidores de um usuário somados de 'delta' (follow/unfollow). Devolve o novo total
+	public long followersChanged(String userId, long delta) {
+		UserStats stats = mongoTemplate.findAndModify(new Query(Criteria.where("id").is(userId)),
+				new Update().inc("followers", delta), FindAndModifyOptions.options().returnNew(true).upsert(true),
+				UserStats.class);
+		return stats.getFollowers();
+	}
+
+	public long followers(String userId) {
+		Query query = new Query(Criteria.where("id").is(userId));
+		query.fields().include("followers");
+		UserStats stats = mongoTemplate.findOne(query, UserStats.class);
+		return stats == null || stats.getFollowers() == null ? 0 : stats.getFollowers();
+	}
+
+	// Dos usuários 'ids', os que têm pelo menos 'min' seguidores (leitura por _id)
+	public List<String> withFollowersAtLeast(Collection<String> ids, long min) {
+		Query query = new Query(Criteria.where("id").in(ids).and("followers").gte(min));
+		query.fields().include("id");
+		List<String> result = new ArrayList<>();
+		for (UserStats stats : mongoTemplate.find(query, UserStats.class)) {
+			result.add(stats.getId());
+		}
+		return result;
+	}
+
+	// Todos os seguidores zerados (ex: todos os usuários apagados)
+	public void clearFollowers() {
+		mongoTemplate.updateMulti(new Query(), new Update().unset("followers"), UserStats.class);
+	}
+
+	// Troca de nome de um usuário (chamado pelo AuthorRenameService)
+	public void userRenamed(String userId, String name) {
+		mongoTemplate.updateFirst(new Query(Criteria.where("id").is(userId)), new Update().set("name", name),
+				UserStats.class);
+	}
+
+	// Apaga todos os resumos (ex: deleteAll de posts)
+	public void clear() {
+		mongoTemplate.remove(new Query(), AuthorDayStats.class);
+		mongoTemplate.remove(new Query(), PostStats.class);
+		mongoTemplate.remove(new Query(), UserStats.class);
+	}
+
+	// Recalcula os resumos do zero a partir de "post", "comment_bucket" e "follow", com
+	// pipelines de agregação que gravam direto nas coleções de resumo ($merge): nada
+	// passa pela aplicação. É a carga inicial (ou o conserto, se os resumos divergirem).
+	// Os resumos novos são montados em coleções temporárias ("<resumo>_rebuild"), já
+	// indexadas, e só então tomam o lugar dos atuais (renameCollection com dropTarget,
+	// atômico por coleção): as leituras nunca veem um resumo vazio ou pela metade.
+	// Somas feitas DURANTE o rebuild vão para as coleções antigas e se perdem na troca.
+	// Um rebuild por vez; pedidos enquanto um está em andamento são ignorados.
+	public void rebuild() {
+		if (!rebuilding.compareAndSet(false, true)) {
+			log.info("Rebuild dos resumos de analytics já em andamento");
+			return;
+		}
+		try {
+			long start = System.currentTimeMillis();
+			String days = mongoTemplate.getCollectionName(AuthorDayStats.class);
+			String postStats = mongoTemplate.getCollectionName(PostStats.class);
+			String users = mongoTemplate.getCollectionName(UserStats.class);
+			build(temp(days), temp(postStats), temp(users));
+			indexManager.ensureIndexes(AuthorDayStats.class, temp(days));
+			indexManager.ensureIndexes(PostStats.class, temp(postStats));
+			indexManager.ensureIndexes(UserStats.class, temp(users));
+			swap(temp(days), days);
+			swap(temp(postStats), postStats);
+			swap(temp(users), users);
+			log.info("Resumos de analytics recalculados em {} ms", System.currentTimeMillis() - start);
+		} finally {
+			rebuilding.set(false);
+		}
+	}
+
+	// Roda o rebuild() no agendador, sem prender quem pediu
+	public void rebuildAsync() {
+		scheduler.schedule(() -> {
+			try {
+				rebuild();
+			} catch (RuntimeException e) {
+				log.error("Falha ao recalcular os resumos de analytics", e);
+			}
+		}, Instant.now());
+	}
+
+	private void build(String days, String postStats, String users) {
+		mongoTemplate.dropCollection(days);
+		mongoTemplate.dropCollection(postStats);
+		mongoTemplate.dropCollection(users);
+		String posts = mongoTemplate.getCollectionName(Post.class);
+		String buckets = mongoTemplate.getCollectionName(CommentBucket.class);
+
+		// Comentários ainda marcados como "não somados" entram nas contas abaixo: a marca
+		// sai antes, para uma nova tentativa de gravação não os somar de novo
+		mongoTemplate.updateMulti(new Query(Criteria.where("pendingStats").exists(true)),
+				new Update().unset("pendingStats"), CommentBucket.class);
+
+		// post_stats: um por post, com a contagem já mantida no próprio post
+		Document commentCount = new Document("$ifNull", Arrays.asList("$commentCount",
+				new Document("$size", new Document("$ifNull", Arrays.asList("$comments", new ArrayList<>())))));
+		aggregate(posts,
+				new Document("$project", new Document("authorId", new Document("$toString", "$author._id"))
+						.append("day", dayExpression("$date")).append("comments", commentCount)
+						.append("lastCommentDate", new Document("$max", "$comments.date"))),
+				merge(postStats, "replace", "insert"));
+		// Data do último comentário: os baldes guardam o histórico todo
+		aggregate(buckets,
+				new Document("$group",
+						new Document("_id", new Document("$toObjectId", "$postId")).append("lastCommentDate",
+								new Document("$max", "$lastDate"))),
+				merge(postStats, "merge", "discard"));
+
+		// author_day_stats: posts publicados e comentários escritos por (autor, dia)
+		aggregate(posts, groupByAuthorDay("$author._id", "$date", "posts"), authorDayProjection("posts"),
+				merge(days, "merge", "insert"));
+		aggregate(buckets, new Document("$unwind", "$comments"),
+				groupByAuthorDay("$comments.author._id", "$comments.date", "comments"),
+				authorDayProjection("comments"), merge(days, "merge", "insert"));
+
+		// user_stats: totais por usuário
+		aggregate(posts, new Document("$group", new Document("_id", "$author._id")
+				.append("name", new Document("$last", "$author.name")).append("posts", new Document("$sum", 1L))),
+				merge(users, "merge", "insert"));
+		aggregate(buckets, new Document("$unwind", "$comments"),
+				new Document("$match", new Document("comments.author._id", new Document("$ne", null))),
+				new Document("$group", new Document("_id", "$comments.author._id")
+						.append("name", new Document("$last", "$comments.author.name"))
+						.append("comments", new Document("$sum", 1L))
+						.append("lastCommentDate", new Document("$max", "$comments.date"))),
+				merge(users, "merge", "insert"));
+		aggregate(mongoTemplate.getCollectionName(Follow.class),
+				new Document("$group", new Document("_id", "$followeeId").append("followers", new Document("$sum", 1L))),
+				new Document("$project", new Document("_id", new Document("$toObjectId", "$_id")).append("followers", 1)),
+				merge(users, "merge", "insert"));
+	}
+
+	// Coleção nova no lugar da antiga, numa operação só. Sem nenhum resumo (banco
+	// vazio) o $merge não cria a temporária: a antiga fica, esvaziada
+	private void swap(String from, String to) {
+		if (!mongoTemplate.collectionExists(from)) {
+			mongoTemplate.remove(new Query(), to);
+			return;
+		}
+		MongoNamespace target = new MongoNamespace(mongoTemplate.getDb().getName(), to);
+		mongoTemplate.getCollection(from).renameCollection(target, new RenameCollectionOptions().dropTarget(true));
+	}
+
+	private static String temp(String collection) {
+		return collection + "_rebuild";
+	}
+
+	// Na subida: se há posts e nenhum resumo (primeira vez com esta versão), faz a carga inicial
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillIfEmpty() {
+		if (mongoTemplate.estimatedCount(PostStats.class) == 0 && mongoTemplate.estimatedCount(Post.class) > 0) {
+			rebuild();
+		}
+	}
+
+	// Posts e comentários de um autor por dia, de 'from' a 'to' (yyyy-MM-dd, inclusive).
+	// Faixa do _id ("<autor>:<dia>"): só lê os dias que existem no intervalo
+	public List<AuthorDayStats> findAuthorDays(String authorId, Date from, Date to) {
+		Query query = new Query(Criteria.where("id").gte(authorDayId(authorId, dayOf(from)))
+				.lte(authorDayId(authorId, dayOf(to)))).with(Sort.by("id")).limit(MAX_DAYS);
+		return mongoTemplate.find(query, AuthorDayStats.class);
+	}
+
+	public PostStats findPost(String postId) {
+		PostStats stats = mongoTemplate.findById(postId, PostStats.class);
+		if (stats == null) {
+			throw new ObjetoNotFoundException("Objeto não encontrado");
+		}
+		return stats;
+	}
+
+	// Posts mais comentados (índice post_stats_comments)
+	public List<PostStats> topPosts(int limit) {
+		return mongoTemplate.find(new Query().with(Sort.by(Sort.Direction.DESC, "comments")).limit(limit),
+				PostStats.class);
+	}
+
+	// Usuários que mais comentam (índice user_stats_comments)
+	public List<UserStats> topCommenters(int limit) {
+		return mongoTemplate.find(new Query().with(Sort.by(Sort.Direction.DESC, "comments")).limit(limit),
+				UserStats.class);
+	}
+
+	private void aggregate(String collection, Document... pipeline) {
+		// toCollection() executa o $merge sem trazer nenhum documento para cá
+		mongoTemplate.getCollection(collection).aggregate(Arrays.asList(pipeline)).allowDiskUse(true).toCollection();
+	}
+
+	private static Document merge(String into, String whenMatched, String whenNotMatched) {
+		return new Document("$merge", new Document("into", into).append("on", "_id").append("whenMatched", whenMatched)
+				.append("whenNotMatched", whenNotMatched));
+	}
+
+	private static Document groupByAuthorDay(String author, String date, String counter) {
+		return new Document("$group",
+				new Document("_id", new Document("a", new Document("$toString", author)).append("d", dayExpression(date)))
+						.append(counter, new Document("$sum", 1L)));
+	}
+
+	private static Document authorDayProjection(String counter) {
+		return new Document("$project",
+				new Document("_id", new Document("$concat", Arrays.asList("$_id.a", ":", "$_id.d")))
+						.append("authorId", "$_id.a").append("day", "$_id.d").append(counter, 1));
+	}
+
+	// Dia UTC (yyyy-MM-dd) de uma data, igual ao dayOf() abaixo; sem data = hoje
+	private static Document dayExpression(String date) {
+		return new Document("$dateToString", new Document("format", "%Y-%m-%d").append("date",
+				new Document("$ifNull", Arrays.asList(date, "$$NOW"))));
+	}
+
+	private static String dayOf(Date date) {
+		return DAY.format(date == null ? Instant.now() : date.toInstant());
+	}
+
+	private static String authorDayId(String authorId, String day) {
+		return authorId + ":" + day;
+	}
+}
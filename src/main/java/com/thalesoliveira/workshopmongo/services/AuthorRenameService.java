@@ -0,0 +1,198 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.thalesoliveira.workshopmongo.domain.CommentBucket;
+import com.thalesoliveira.workshopmongo.domain.PendingRename;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.RenameStatsDTO;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+
+// Propaga a troca de nome de um usuário para as cópias de AuthorDTO que ficam
+// embutidas nos posts (Post.author) e nos comentários (CommentDTO.author), tanto os
+// recentes guardados no post quanto o histórico dos baldes (CommentBucket).
+//
+// O PUT /users/{id} só grava o documento do usuário e coloca o novo nome numa fila.
+// Uma tarefa em segundo plano esvazia a fila de tempos em tempos e atualiza os posts
+// com updateMany, em lotes de tamanho limitado. Se o mesmo usuário trocar de nome
+// várias vezes antes da tarefa rodar, só o último nome é aplicado.
+// A fila fica no banco (coleção "pending_rename", um documento por usuário): o que
+// não foi aplicado antes de um desligamento é aplicado quando a aplicação volta, e
+// com várias instâncias qualquer uma pode aplicar (aplicar duas vezes não muda nada).
+@Service
+public class AuthorRenameService {
+
+	private static final Logger log = LoggerFactory.getLogger(AuthorRenameService.class);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// updateMulti não dispara os eventos do PostEventListener, então invalidamos o
+	// cache dos posts alterados (e subimos a versão da coleção) aqui mesmo
+	@Autowired
+	private EntityCache<Post> postCache;
+
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	@Autowired
+	private AnalyticsService analytics;
+
+	// Quantos posts no máximo cada updateMany altera de uma vez
+	@Value("${app.rename.chunk-size:1000}")
+	private int chunkSize;
+
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder merged = new LongAdder();
+	private final LongAdder applied = new LongAdder();
+	private final LongAdder chunks = new LongAdder();
+	private final LongAdder postsUpdated = new LongAdder();
+	private final LongAdder commentPostsUpdated = new LongAdder();
+	private final LongAdder bucketsUpdated = new LongAdder();
+	private final AtomicLong lastFlushMillis = new AtomicLong();
+
+	// Chamado pelo UserService quando o nome de um usuário muda
+	public void enqueue(String userId, String newName) {
+		queued.increment();
+		UpdateResult result = mongoTemplate.upsert(new Query(Criteria.where("id").is(userId)),
+				new Update().set("name", newName).currentDate("queuedAt"), PendingRename.class);
+		if (result.getMatchedCount() > 0) {
+			// Já havia uma troca pendente desse usuário: ela foi substituída pela nova
+			merged.increment();
+		}
+	}
+
+	// Roda em segundo plano a cada 'app.rename.flush-interval-ms'. O fixedDelay garante
+	// que uma execução só começa depois que a anterior terminou. Cada rodada pega até
+	// 'chunk-size' usuários; o resto fica para a próxima.
+	@Scheduled(fixedDelayString = "${app.rename.flush-interval-ms:500}")
+	public void flush() {
+		List<PendingRename> renames = mongoTemplate.find(new Query().limit(chunkSize), PendingRename.class);
+		if (renames.isEmpty()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		for (PendingRename rename : renames) {
+			try {
+				apply(rename.getId(), rename.getName());
+				applied.increment();
+				// Só sai da fila se continua com o nome aplicado. Se chegou outra troca
+				// enquanto aplicávamos esta, ela fica e é aplicada na próxima rodada.
+				mongoTemplate.remove(new Query(Criteria.where("id").is(rename.getId()).and("name").is(rename.getName())),
+						PendingRename.class);
+			} catch (RuntimeException e) {
+				// Continua na fila e é tentada de novo na próxima rodada
+				log.warn("Falha ao propagar o nome do usuário {}: {}", rename.getId(), e.getMessage());
+			}
+		}
+		lastFlushMillis.set(System.currentTimeMillis() - start);
+	}
+
+	public RenameStatsDTO stats() {
+		return new RenameStatsDTO(queued.sum(), merged.sum(), applied.sum(),
+				mongoTemplate.estimatedCount(PendingRename.class), chunks.sum(), postsUpdated.sum(),
+				commentPostsUpdated.sum(), bucketsUpdated.sum(), lastFlushMillis.get());
+	}
+
+	private void apply(String userId, String name) {
+		// 1. Autor dos posts: só os posts que ainda estão com o nome antigo
+		Criteria staleAuthor = Criteria.where("author.id").is(userId).and("author.name").ne(name);
+		updateInChunks(Post.class, Post::getId, staleAuthor, versioned(new Update().set("author.name", name)),
+				postsUpdated);
+
+		// 2. Autor dos comentários: o filtro de array "c" faz o $set alcançar só os
+		// comentários desse usuário dentro de cada post (comments.$[c].author.name).
+		// O $elemMatch usa os índices post_comment_author e comment_bucket_comment_author
+		Object authorId = mongoId(userId);
+		Criteria staleComment = Criteria.where("comments")
+				.elemMatch(Criteria.where("author._id").is(authorId).and("author.name").ne(name));
+		updateInChunks(Post.class, Post::getId, staleComment, versioned(commentAuthorUpdate(authorId, name)),
+				commentPostsUpdated);
+
+		// 3. O mesmo para o histórico de comentários guardado nos baldes. Os posts
+		// desses baldes também ganham nova versão: ela é o ETag das páginas de
+		// comentários (GET /posts/{id}/comments)
+		updateInChunks(CommentBucket.class, CommentBucket::getId, staleComment, commentAuthorUpdate(authorId, name),
+				bucketsUpdated);
+
+		// 4. Nome no ranking de usuários
+		analytics.userRenamed(userId, name);
+	}
+
+	private static Update commentAuthorUpdate(Object authorId, String name) {
+		return new Update().set("comments.$[c].author.name", name)
+				.filterArray(Criteria.where("c.author._id").is(authorId));
+	}
+
+	// Posts alterados ganham nova versão (ETag) e data de modificação
+	private static Update versioned(Update update) {
+		return update.inc("version", 1).currentDate("lastModified");
+	}
+
+	// Busca só os _id de até 'chunkSize' documentos desatualizados e aplica o update
+	// neles. Repete até não sobrar nenhum. Lotes limitados = cada operação é curta e
+	// não segura o banco por muito tempo, mesmo para autores com milhares de posts.
+	private <T> void updateInChunks(Class<T> type, Function<T, String> idOf, Criteria stale, Update update,
+			LongAdder counter) {
+		while (true) {
+			Query select = new Query(stale).limit(chunkSize);
+			select.fields().include("id");
+			if (type == CommentBucket.class) {
+				select.fields().include("postId");
+			}
+			List<T> docs = mongoTemplate.find(select, type);
+			List<String> ids = new ArrayList<>();
+			for (T doc : docs) {
+				ids.add(idOf.apply(doc));
+			}
+			if (ids.isEmpty()) {
+				return;
+			}
+			UpdateResult result = mongoTemplate.updateMulti(new Query(Criteria.where("id").in(ids)), update, type);
+			if (type == Post.class) {
+				ids.forEach(postCache::invalidate);
+				if (result.getModifiedCount() > 0) {
+					collectionVersions.bump(Post.class);
+				}
+			} else if (type == CommentBucket.class && result.getModifiedCount() > 0) {
+				Set<String> postIds = new HashSet<>();
+				docs.forEach(doc -> postIds.add(((CommentBucket) doc).getPostId()));
+				mongoTemplate.updateMulti(new Query(Criteria.where("id").in(postIds)), versioned(new Update()),
+						Post.class);
+				postIds.forEach(postCache::invalidate);
+				collectionVersions.bump(Post.class);
+			}
+			chunks.increment();
+			counter.add(result.getModifiedCount());
+			if (result.getModifiedCount() == 0) {
+				// Nada mudou: evita ficar em loop se o filtro não casar com o update
+				return;
+			}
+		}
+	}
+
+	// O id do AuthorDTO é gravado como ObjectId quando tem o formato de um. Nos
+	// filtros "crus" (elemMatch/arrayFilters) precisamos converter igual.
+	private static Object mongoId(String id) {
+		return ObjectId.isValid(id) ? new ObjectId(id) : id;
+	}
+}
@@ -0,0 +1,159 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.thalesoliveira.workshopmongo.domain.CollectionVersion;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+
+// Versões das coleções "post" e "user", usadas nos ETags das listagens.
+// Ficam no banco (coleção "collection_version"), e não na memória, para que todas
+// as instâncias da aplicação vejam as gravações umas das outras e para que uma
+// versão nunca se repita depois de um restart.
+//
+// Mas o documento de versão é um só por coleção: gravar nele a cada gravação
+// enfileiraria todas as escritas nele, e lê-lo a cada listagem custaria uma ida
+// a mais ao banco. Então:
+// - bump() só conta a gravação na memória;
+// - a cada 'sync-ms', sync() soma no banco o que foi contado ($inc, uma operação
+//   por coleção) e relê as versões de todas (uma consulta);
+// - get() responde da memória. Enquanto houver gravação desta instância ainda não
+//   somada, a versão é desconhecida (null): a resposta sai sem ETag, em vez de
+//   sair com um ETag que já não corresponde ao conteúdo.
+// Gravações feitas em outra instância aparecem aqui em até 'sync-ms'.
+//
+// Além da versão da coleção inteira, uma coleção pode ter versões de "partes":
+// bump(Post.class, TITLES) sobe a versão de "post" e a de "post.titles"; um
+// comentário novo sobe só a de "post". Quem depende só dos títulos (cache da busca
+// por título) olha a parte e não é invalidado a cada comentário.
+@Service
+public class CollectionVersionService {
+
+	private static final Logger log = LoggerFactory.getLogger(CollectionVersionService.class);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// Gravações de cada coleção (ou parte) ainda não somadas no banco
+	private final Map<String, AtomicLong> unsynced = new ConcurrentHashMap<>();
+
+	// Última versão lida do banco, por coleção
+	private final Map<String, CollectionVersion> versions = new ConcurrentHashMap<>();
+	private volatile boolean loaded;
+
+	// Gravações feitas por OUTRAS instâncias desde que esta subiu, por coleção: o
+	// quanto a versão andou além do que esta somou (ver remoteWrites)
+	private final Map<String, AtomicLong> remote = new ConcurrentHashMap<>();
+
+	// Parte "títulos" da coleção de posts: criação, remoção e edição de posts
+	public static final String TITLES = "titles";
+
+	// Chamado depois de cada gravação na coleção (ver os listeners e as
+	// atualizações parciais em CommentService/AuthorRenameService)
+	public void bump(Class<?> type) {
+		count(mongoTemplate.getCollectionName(type));
+	}
+
+	// Gravação que também mexe na parte 'part' da coleção
+	public void bump(Class<?> type, String part) {
+		String collection = mongoTemplate.getCollectionName(type);
+		count(collection);
+		count(collection + "." + part);
+	}
+
+	// Versão atual da coleção, sem ir ao banco (só na primeira chamada). Versão null
+	// = esta instância gravou na coleção e a gravação ainda não foi numerada
+	public CollectionVersion get(Class<?> type) {
+		return get(mongoTemplate.getCollectionName(type));
+	}
+
+	public CollectionVersion get(Class<?> type, String part) {
+		return get(mongoTemplate.getCollectionName(type) + "." + part);
+	}
+
+	// Quantas gravações de outras instâncias esta já viu na coleção. Estruturas em
+	// memória mantidas só com as gravações locais (ex: PostSearchIndex) comparam com
+	// o valor da última vez que leram o banco para saber se ficaram para trás
+	public long remoteWrites(Class<?> type) {
+		AtomicLong count = remote.get(mongoTemplate.getCollectionName(type));
+		return count == null ? 0 : count.get();
+	}
+
+	private void count(String key) {
+		unsynced.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+	}
+
+	private CollectionVersion get(String key) {
+		AtomicLong pending = unsynced.get(key);
+		if (pending != null && pending.get() > 0) {
+			return new CollectionVersion(key, null, null);
+		}
+		if (!loaded) {
+			sync();
+		}
+		CollectionVersion version = versions.get(key);
+		return version == null ? new CollectionVersion(key, 0L, null) : version;
+	}
+
+	@Scheduled(fixedDelayString = "${app.versions.sync-ms:100}")
+	public synchronized void sync() {
+		Map<String, Long> flushed = new HashMap<>();
+		unsynced.forEach((key, pending) -> {
+			long count = pending.get();
+			if (count > 0) {
+				mongoTemplate.upsert(new Query(Criteria.where("id").is(key)),
+						new Update().inc("version", count).currentDate("lastModified"), CollectionVersion.class);
+				flushed.put(key, count);
+			}
+		});
+		for (CollectionVersion version : mongoTemplate.findAll(CollectionVersion.class)) {
+			CollectionVersion previous = versions.get(version.getId());
+			if (loaded && version.getVersion() != null) {
+				long before = previous == null || previous.getVersion() == null ? 0 : previous.getVersion();
+				long others = version.getVersion() - before - flushed.getOrDefault(version.getId(), 0L);
+				if (others > 0) {
+					// Antes da versão nova: quem a vê também vê que houve gravação de fora
+					remote.computeIfAbsent(version.getId(), k -> new AtomicLong()).addAndGet(others);
+				}
+			}
+			versions.put(version.getId(), version);
+		}
+		loaded = true;
+		// Só depois que a versão nova está na memória: até aqui, get() continua
+		// respondendo "desconhecida" para essas gravações
+		flushed.forEach((key, count) -> unsynced.get(key).addAndGet(-count));
+	}
+
+	// Documentos gravados antes do campo 'version' existir começam na versão 0.
+	// Sem isso o save do Spring Data acharia que são novos (versão nula) e tentaria
+	// inseri-los de novo.
+	@EventListener(ApplicationReadyEvent.class)
+	public void initializeDocumentVersions() {
+		for (Class<?> type : new Class<?>[] { Post.class, User.class }) {
+			UpdateResult result = mongoTemplate.updateMulti(new Query(Criteria.where("version").exists(false)),
+					new Update().set("version", 0L).set("lastModified", new Date()), type);
+			if (result.getModifiedCount() > 0) {
+				log.info("{} documentos de {} receberam a versão inicial", result.getModifiedCount(),
+						mongoTemplate.getCollectionName(type));
+				bump(type);
+			}
+		}
+	}
+}
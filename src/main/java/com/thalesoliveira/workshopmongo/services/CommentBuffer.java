@@ -0,0 +1,238 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.exception.SobrecargaException;
+
+import jakarta.annotation.PreDestroy;
+
+// Gravação adiada ("write-behind") dos comentários de POST /posts/{id}/comments.
+//
+// Num post viral chegam milhares de comentários por minuto; gravar cada um com o
+// seu próprio findAndModify + $push no balde faz todas as requisições disputarem
+// o mesmo documento. Aqui os comentários ficam numa fila por post e o agendador do
+// Spring os grava de tempos em tempos ('flush-interval-ms'), como no
+// AuthorRenameService, ou assim que um post junta 'flush-size' comentários: um
+// CommentService.insert por post, com todos os comentários pendentes dele num
+// $push/$each só.
+// - Memória limitada: com 'max-pending' comentários esperando, os novos são
+//   recusados (503) até a fila esvaziar.
+// - Cada comentário tem um CompletableFuture, concluído quando ele foi gravado (ou
+//   com o erro da gravação): é o que a confirmação "durable" espera.
+// - Falha passageira do banco (queda de conexão, timeout): o lote do post volta
+//   para a fila e é tentado de novo com espera crescente ('retry-backoff-ms',
+//   dobrando), até 'max-attempts' tentativas. Só então os futures recebem o erro.
+//   Uma falha no meio do insert pode já ter gravado parte dele: cada comentário
+//   recebe o seu ID ao entrar na fila, e a nova tentativa leva os mesmos IDs, com
+//   os quais o CommentService pula o que já foi gravado (post, balde e resumos).
+// - No desligamento da aplicação, o que estiver pendente é gravado antes.
+@Service
+public class CommentBuffer {
+
+	private static final Logger log = LoggerFactory.getLogger(CommentBuffer.class);
+
+	// Quanto o desligamento espera pela gravação do que ficou pendente
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private final CommentService commentService;
+	private final TaskScheduler scheduler;
+
+	// Comentários de um post que disparam a gravação sem esperar o intervalo
+	private final int flushSize;
+
+	// Máximo de comentários esperando gravação (ou sendo gravados), somando todos os posts
+	private final int maxPending;
+
+	private final int maxAttempts;
+	private final long retryBackoffMillis;
+	private final int retryAfterSeconds;
+
+	// Comentários pendentes por post, na ordem de chegada
+	private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+	private int pendingCount;
+	private boolean flushRequested;
+	private boolean stopped;
+
+	// Uma gravação por vez: a agendada e a disparada por 'flush-size' não se cruzam
+	private final ReentrantLock flushing = new ReentrantLock();
+
+	private static class Pending {
+		final List<CommentDTO> comments = new ArrayList<>();
+		final List<CompletableFuture<Void>> done = new ArrayList<>();
+		int attempts;
+		// Antes disso o post não é tentado de novo (espera após uma falha)
+		long notBefore;
+	}
+
+	public CommentBuffer(CommentService commentService, TaskScheduler scheduler,
+			@Value("${app.comments.buffer.flush-size:100}") int flushSize,
+			@Value("${app.comments.buffer.max-pending:10000}") int maxPending,
+			@Value("${app.comments.buffer.max-attempts:5}") int maxAttempts,
+			@Value("${app.comments.buffer.retry-backoff-ms:50}") long retryBackoffMillis,
+			@Value("${app.limits.retry-after-s:1}") int retryAfterSeconds) {
+		this.commentService = commentService;
+		this.scheduler = scheduler;
+		this.flushSize = flushSize;
+		this.maxPending = maxPending;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.retryBackoffMillis = retryBackoffMillis;
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	// Enfileira o comentário. O future termina quando ele estiver gravado
+	public CompletableFuture<Void> add(String postId, CommentDTO comment) {
+		if (comment.getId() == null) {
+			comment.setId(new ObjectId().toHexString());
+		}
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		boolean flushNow = false;
+		synchronized (this) {
+			if (stopped) {
+				throw new SobrecargaException("Aplicação desligando, tente de novo", retryAfterSeconds);
+			}
+			if (pendingCount >= maxPending) {
+				throw new SobrecargaException("Muitos comentários aguardando gravação, tente de novo",
+						retryAfterSeconds);
+			}
+			Pending p = pending.computeIfAbsent(postId, key -> new Pending());
+			p.comments.add(comment);
+			p.done.add(done);
+			pendingCount++;
+			if (p.comments.size() >= flushSize && !flushRequested) {
+				flushRequested = true;
+				flushNow = true;
+			}
+		}
+		if (flushNow) {
+			scheduler.schedule(this::flush, Instant.now());
+		}
+		return done;
+	}
+
+	public synchronized int getPendingCount() {
+		return pendingCount;
+	}
+
+	// Grava os posts cuja vez chegou. Se outra gravação está em andamento, não
+	// espera por ela: a próxima rodada agendada pega o que sobrar
+	@Scheduled(fixedDelayString = "${app.comments.buffer.flush-interval-ms:5}")
+	public void flush() {
+		if (!flushing.tryLock()) {
+			return;
+		}
+		try {
+			write(false);
+		} finally {
+			flushing.unlock();
+		}
+	}
+
+	// Para de aceitar comentários e grava o que ficou pendente. As novas tentativas
+	// não esperam o agendador (que pode já ter parado), só o 'retry-backoff-ms'
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		synchronized (this) {
+			stopped = true;
+		}
+		long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+		flushing.lock();
+		try {
+			while (write(true) && System.currentTimeMillis() < deadline) {
+				Thread.sleep(retryBackoffMillis);
+			}
+		} finally {
+			flushing.unlock();
+		}
+		int left = getPendingCount();
+		if (left > 0) {
+			log.error("Desligando com {} comentários não gravados", left);
+		}
+	}
+
+	// Tira da fila os posts cuja vez chegou e grava os comentários de cada um de
+	// uma vez. Um post que falha (ex: apagado enquanto esperava) não atrapalha os
+	// outros. Devolve true se algum post voltou para a fila
+	private boolean write(boolean ignoreBackoff) {
+		Map<String, Pending> batch = new LinkedHashMap<>();
+		synchronized (this) {
+			flushRequested = false;
+			long now = System.currentTimeMillis();
+			Iterator<Map.Entry<String, Pending>> it = pending.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, Pending> entry = it.next();
+				if (ignoreBackoff || entry.getValue().notBefore <= now) {
+					batch.put(entry.getKey(), entry.getValue());
+					it.remove();
+				}
+			}
+		}
+		boolean requeued = false;
+		for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+			String postId = entry.getKey();
+			Pending p = entry.getValue();
+			try {
+				commentService.insert(postId, p.comments);
+				p.done.forEach(f -> f.complete(null));
+			} catch (RuntimeException e) {
+				p.attempts++;
+				if (isTransient(e) && p.attempts < maxAttempts) {
+					long backoff = retryBackoffMillis << Math.min(p.attempts - 1, 20);
+					log.warn("Falha ao gravar {} comentários do post {} (tentativa {} de {}), nova tentativa em {} ms: {}",
+							p.comments.size(), postId, p.attempts, maxAttempts, backoff, e.toString());
+					p.notBefore = System.currentTimeMillis() + backoff;
+					requeue(postId, p);
+					requeued = true;
+					continue;
+				}
+				if (!(e instanceof ObjetoNotFoundException)) {
+					log.error("Falha ao gravar {} comentários do post {}", p.comments.size(), postId, e);
+				}
+				p.done.forEach(f -> f.completeExceptionally(e));
+			}
+			// Só agora a memória deles é liberada para novos comentários
+			synchronized (this) {
+				pendingCount -= p.comments.size();
+			}
+		}
+		return requeued;
+	}
+
+	// Devolve o lote à fila, na frente dos comentários do mesmo post que chegaram
+	// durante a tentativa, para manter a ordem de chegada
+	private synchronized void requeue(String postId, Pending p) {
+		Pending newer = pending.remove(postId);
+		if (newer != null) {
+			p.comments.addAll(newer.comments);
+			p.done.addAll(newer.done);
+		}
+		pending.put(postId, p);
+	}
+
+	// Erros do banco que costumam passar sozinhos; os demais (post apagado,
+	// documento inválido) dariam o mesmo resultado numa nova tentativa
+	private static boolean isTransient(RuntimeException e) {
+		return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+				|| e instanceof DataAccessResourceFailureException;
+	}
+}
@@ -0,0 +1,401 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.thalesoliveira.workshopmongo.domain.CommentBucket;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.dto.CommentPageDTO;
+import com.thalesoliveira.workshopmongo.repository.CommentBucketRepository;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.search.PostSearchIndex;
+
+// Regras de negócio dos comentários.
+//
+// Cada comentário é gravado em DOIS lugares, sempre com operações atômicas ($push),
+// sem ler e regravar o post inteiro:
+// 1. No balde mais recente do post (coleção "comment_bucket"), que guarda o
+//    histórico completo em documentos de tamanho fixo.
+// 2. No próprio post: 'commentCount' e a lista 'comments', que mantém só os últimos
+//    'latestSize' comentários.
+// Depois disso, os comentários são somados nos resumos de analytics.
+//
+// São documentos diferentes, gravados sem transação, e uma falha no meio (queda de
+// conexão, por exemplo) pode ser seguida de uma nova tentativa com os mesmos
+// comentários (ver CommentBuffer). Por isso cada comentário tem um ID e cada passo
+// pode ser repetido sem efeito duplicado:
+// - Baldes: só entram os IDs que ainda não estão em nenhum balde do post.
+// - Post: é uma cópia do que está nos baldes (total e últimos comentários), gravada
+//   só se o total for maior que o atual; refazer não muda nada e gravações
+//   simultâneas não voltam o post para trás.
+// - Analytics: os IDs entram no balde marcados como "não somados" ('pendingStats');
+//   quem tira a marca é quem soma. Uma queda entre as duas coisas deixa o resumo com
+//   menos (o AnalyticsService.rebuild() acerta), nunca com comentários repetidos.
+// As buscas de posts por texto olham a lista do item 2 junto com o post e, para os
+// comentários antigos que já saíram dela, o índice de texto dos baldes
+// (findPostIds).
+@Service
+public class CommentService {
+
+	private static final Logger log = LoggerFactory.getLogger(CommentService.class);
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private CommentBucketRepository repo;
+
+	// As operações abaixo não passam pelo PostEventListener (não são save/delete),
+	// então atualizamos cache e índice de busca aqui mesmo
+	@Autowired
+	private EntityCache<Post> postCache;
+
+	@Autowired
+	private PostSearchIndex searchIndex;
+
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	// Resumos para os painéis (comentários por post e por usuário)
+	@Autowired
+	private AnalyticsService analytics;
+
+	// Máximo de comentários por balde
+	@Value("${app.comments.bucket-size:100}")
+	private int bucketSize;
+
+	// Quantos comentários recentes ficam embutidos no post
+	@Value("${app.comments.latest-size:10}")
+	private int latestSize;
+
+	// Adiciona comentários a um post (404 se o post não existir). Comentários sem ID
+	// ganham um aqui; chamar de novo com os mesmos comentários (já com ID) completa o
+	// que uma chamada anterior deixou pela metade, sem repetir nada
+	public void insert(String postId, List<CommentDTO> comments) {
+		if (comments.isEmpty()) {
+			return;
+		}
+		comments.forEach(c -> {
+			if (c.getId() == null) {
+				c.setId(new ObjectId().toHexString());
+			}
+		});
+
+		// Post ainda com o histórico embutido (sem 'commentCount'): migra antes, para os
+		// comentários novos entrarem nos baldes depois dos antigos
+		if (!mongoTemplate.exists(new Query(Criteria.where("id").is(postId).and("commentCount").exists(true)),
+				Post.class)) {
+			Query legacy = new Query(Criteria.where("id").is(postId));
+			legacy.fields().include("comments");
+			Post post = mongoTemplate.findOne(legacy, Post.class);
+			if (post == null) {
+				throw new ObjetoNotFoundException("Objeto não encontrado");
+			}
+			migrate(post);
+		}
+
+		// 1. Guarda o histórico nos baldes
+		appendToBuckets(postId, comments, true);
+
+		// 2. Atualiza o post: contagem + últimos comentários. O post muda, então
+		// também ganha nova versão (ETag) e data de modificação
+		refreshPost(postId);
+
+		// 3. Soma nos resumos
+		countComments(postId, comments);
+	}
+
+	// Uma página de comentários de um post, do mais novo para o mais antigo.
+	// A posição é (seq do balde, índice dentro do balde): a página começa no
+	// comentário imediatamente ANTERIOR a essa posição. 'fromSeq' null = do início.
+	public CommentPageDTO findPage(String postId, Integer fromSeq, Integer fromIndex, int limit) {
+		Criteria criteria = Criteria.where("postId").is(postId);
+		if (fromSeq != null) {
+			criteria = criteria.and("seq").lte(fromSeq);
+		}
+		// Lemos os baldes por cursor, do mais novo para o mais velho, e paramos assim
+		// que a página enche: nunca carregamos o histórico inteiro
+		Query query = new Query(criteria).with(Sort.by(Sort.Direction.DESC, "seq")).cursorBatchSize(2);
+
+		CommentPageDTO page = new CommentPageDTO();
+		try (Stream<CommentBucket> buckets = mongoTemplate.stream(query, CommentBucket.class)) {
+			Iterator<CommentBucket> it = buckets.iterator();
+			while (it.hasNext() && page.getNextSeq() == null) {
+				CommentBucket bucket = it.next();
+				List<CommentDTO> comments = bucket.getComments();
+				int start = bucket.getSeq().equals(fromSeq) ? Math.min(fromIndex, comments.size()) : comments.size();
+				for (int i = start - 1; i >= 0; i--) {
+					page.getComments().add(comments.get(i));
+					if (page.getComments().size() == limit) {
+						// Página cheia: a próxima continua do comentário anterior a este
+						page.setNextSeq(bucket.getSeq());
+						page.setNextIndex(i);
+						break;
+					}
+				}
+			}
+		}
+		return page;
+	}
+
+	// Primeira página com os comentários feitos ANTES de 'before', do mais novo para
+	// o mais antigo. Os comentários entram nos baldes em ordem de chegada, então o
+	// balde certo é o mais recente cujo primeiro comentário é anterior à data
+	// (índice comment_bucket_post_date); dele só lemos as datas.
+	public CommentPageDTO findPageBefore(String postId, Date before, int limit) {
+		Query query = new Query(Criteria.where("postId").is(postId).and("firstDate").lt(before))
+				.with(Sort.by(Sort.Direction.DESC, "firstDate")).limit(1);
+		query.fields().include("seq", "comments.date");
+		CommentBucket bucket = mongoTemplate.findOne(query, CommentBucket.class);
+		if (bucket == null) {
+			return new CommentPageDTO();
+		}
+		List<CommentDTO> comments = bucket.getComments();
+		int index = 0;
+		while (index < comments.size() && (comments.get(index).getDate() == null
+				|| comments.get(index).getDate().before(before))) {
+			index++;
+		}
+		return findPage(postId, bucket.getSeq(), index, limit);
+	}
+
+	// IDs dos posts com algum comentário, em todo o histórico dos baldes, que tem as
+	// palavras de 'text' (índice de texto comment_bucket_text). 'regex' (opcional)
+	// exige também o trecho, como o /posts/fullsearch faz com o post: um trecho que
+	// não é uma palavra inteira ("viag") não acha comentários antigos, só os embutidos
+	public Set<String> findPostIds(String text, String regex) {
+		Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text));
+		if (regex != null) {
+			query.addCriteria(Criteria.where("comments.text").regex(regex, "i"));
+		}
+		query.fields().include("postId");
+		Set<String> ids = new LinkedHashSet<>();
+		mongoTemplate.find(query, CommentBucket.class).forEach(b -> ids.add(b.getPostId()));
+		return ids;
+	}
+
+	// Remove o histórico de comentários de um post apagado
+	public void deleteByPost(String postId) {
+		repo.deleteByPostId(postId);
+	}
+
+	public void deleteAll() {
+		repo.deleteAll();
+	}
+
+	// Posts gravados antes dos baldes existirem (sem 'commentCount' no banco) têm
+	// todos os comentários embutidos. Na subida da aplicação, movemos esse histórico
+	// para os baldes e deixamos no post só a contagem e os mais recentes.
+	// A aplicação já está atendendo requisições: um comentário novo num post ainda
+	// não migrado migra esse post antes (insert), e a migração de um post pode rodar
+	// de novo (queda no meio, outra instância subindo junto) sem duplicar nada.
+	@EventListener(ApplicationReadyEvent.class)
+	public void migrateEmbeddedComments() {
+		Query legacy = new Query(Criteria.where("commentCount").exists(false)).cursorBatchSize(100);
+		legacy.fields().include("comments");
+		int migrated = 0;
+		try (Stream<Post> posts = mongoTemplate.stream(legacy, Post.class)) {
+			for (Iterator<Post> it = posts.iterator(); it.hasNext();) {
+				if (migrate(it.next())) {
+					migrated++;
+				}
+			}
+		}
+		if (migrated > 0) {
+			log.info("Comentários de {} posts movidos para a coleção comment_bucket", migrated);
+		}
+	}
+
+	// Move para os baldes os comentários embutidos de um post antigo. Cada um ganha um
+	// ID fixo (ID do post + posição na lista, que não muda enquanto o post não for
+	// migrado), então os baldes ignoram os que uma execução anterior já gravou; e o
+	// post só é trocado enquanto ainda não tem 'commentCount'. Os comentários antigos
+	// não são marcados para os resumos: quem os soma é o rebuild() do analytics.
+	// Devolve false se outra execução já tinha migrado o post
+	private boolean migrate(Post post) {
+		List<CommentDTO> comments = post.getComments() == null ? new ArrayList<>() : post.getComments();
+		for (int i = 0; i < comments.size(); i++) {
+			if (comments.get(i).getId() == null) {
+				comments.get(i).setId(post.getId() + "-" + i);
+			}
+		}
+		appendToBuckets(post.getId(), comments, false);
+		return refreshPost(post.getId());
+	}
+
+	// Copia para o post o que está nos baldes: o total de comentários e os últimos
+	// 'latestSize' (tirados dos dois baldes mais recentes). Só grava se o post estiver
+	// atrás (total menor, ou post ainda não migrado): cada chamada lê os baldes depois
+	// da própria gravação, e a de maior total é a que fica. Devolve true se gravou
+	private boolean refreshPost(String postId) {
+		Query newest = new Query(Criteria.where("postId").is(postId)).with(Sort.by(Sort.Direction.DESC, "seq"))
+				.limit(2);
+		newest.fields().include("seq", "start", "count").slice("comments", -latestSize);
+		List<CommentBucket> buckets = mongoTemplate.find(newest, CommentBucket.class);
+
+		int total = buckets.isEmpty() ? 0 : start(buckets.get(0)) + buckets.get(0).getCount();
+		List<CommentDTO> latest = new ArrayList<>();
+		for (int i = buckets.size() - 1; i >= 0; i--) {
+			latest.addAll(buckets.get(i).getComments());
+		}
+		latest = new ArrayList<>(latest.subList(Math.max(0, latest.size() - latestSize), latest.size()));
+
+		Criteria behind = new Criteria().orOperator(Criteria.where("commentCount").exists(false),
+				Criteria.where("commentCount").lt(total));
+		Update update = new Update().set("commentCount", total).set("comments", latest).inc("version", 1)
+				.currentDate("lastModified");
+		Post post = mongoTemplate.findAndModify(new Query(Criteria.where("id").is(postId).andOperator(behind)), update,
+				FindAndModifyOptions.options().returnNew(true), Post.class);
+		if (post == null) {
+			return false;
+		}
+		postCache.invalidate(postId);
+		searchIndex.index(post);
+		collectionVersions.bump(Post.class);
+		return true;
+	}
+
+	// Soma nos resumos os comentários que ainda estão marcados nos baldes. A marca sai
+	// antes da soma: findAndModify devolve o balde como estava, então sabemos quais IDs
+	// eram nossos; uma nova tentativa não os encontra mais e não soma de novo
+	private void countComments(String postId, List<CommentDTO> comments) {
+		Set<String> ids = ids(comments);
+		Query marked = new Query(Criteria.where("postId").is(postId).and("pendingStats").in(ids));
+		marked.fields().include("pendingStats");
+		Update unmark = new Update().pullAll("pendingStats", ids.toArray());
+		Set<String> claimed = new HashSet<>();
+		CommentBucket bucket;
+		while ((bucket = mongoTemplate.findAndModify(marked, unmark, CommentBucket.class)) != null) {
+			bucket.getPendingStats().stream().filter(ids::contains).forEach(claimed::add);
+		}
+		List<CommentDTO> toCount = new ArrayList<>();
+		comments.forEach(c -> {
+			if (claimed.contains(c.getId())) {
+				toCount.add(c);
+			}
+		});
+		if (!toCount.isEmpty()) {
+			analytics.commentsAdded(postId, toCount);
+		}
+	}
+
+	// Acrescenta os comentários ao balde mais recente do post, abrindo baldes novos
+	// conforme eles enchem. Várias requisições podem estar gravando no mesmo post ao
+	// mesmo tempo, por isso cada $push só é aplicado se ainda couber no balde
+	// (filtro em 'count') e se nenhum daqueles IDs já estiver nele; se não for
+	// aplicado, conferimos de novo o que falta e tentamos outra vez.
+	// 'markForStats': os IDs também entram em 'pendingStats' (ver countComments)
+	private void appendToBuckets(String postId, List<CommentDTO> comments, boolean markForStats) {
+		List<CommentDTO> missing = notInBuckets(postId, comments);
+		while (!missing.isEmpty()) {
+			Query latest = new Query(Criteria.where("postId").is(postId)).with(Sort.by(Sort.Direction.DESC, "seq"));
+			latest.fields().include("seq", "start", "count");
+			CommentBucket bucket = mongoTemplate.findOne(latest, CommentBucket.class);
+
+			if (bucket == null) {
+				openBucket(postId, 0, 0);
+				continue;
+			}
+			if (bucket.getCount() >= bucketSize) {
+				openBucket(postId, bucket.getSeq() + 1, start(bucket) + bucket.getCount());
+				continue;
+			}
+
+			int room = bucketSize - bucket.getCount();
+			List<CommentDTO> part = missing.subList(0, Math.min(missing.size(), room));
+			Set<String> partIds = ids(part);
+			Date first = part.get(0).getDate();
+			Date last = part.get(part.size() - 1).getDate();
+
+			Update update = new Update().push("comments").each(part.toArray()).inc("count", part.size());
+			if (markForStats) {
+				update.addToSet("pendingStats").each(partIds.toArray());
+			}
+			if (first != null) {
+				update.min("firstDate", first);
+			}
+			if (last != null) {
+				update.max("lastDate", last);
+			}
+			Query fits = new Query(Criteria.where("id").is(bucket.getId()).and("count").lte(bucketSize - part.size())
+					.and("comments.id").nin(partIds));
+			UpdateResult result = mongoTemplate.updateFirst(fits, update, CommentBucket.class);
+			if (result.getModifiedCount() == 1) {
+				missing = new ArrayList<>(missing.subList(part.size(), missing.size()));
+			} else {
+				// Balde encheu ou outra gravação levou os mesmos comentários antes
+				missing = notInBuckets(postId, missing);
+			}
+		}
+	}
+
+	// Dos 'comments', os que ainda não estão em nenhum balde do post (índice
+	// comment_bucket_post_comment), na mesma ordem
+	private List<CommentDTO> notInBuckets(String postId, List<CommentDTO> comments) {
+		Query saved = new Query(Criteria.where("postId").is(postId).and("comments.id").in(ids(comments)));
+		saved.fields().include("comments.id");
+		Set<String> found = new HashSet<>();
+		for (CommentBucket bucket : mongoTemplate.find(saved, CommentBucket.class)) {
+			bucket.getComments().forEach(c -> found.add(c.getId()));
+		}
+		List<CommentDTO> missing = new ArrayList<>();
+		comments.forEach(c -> {
+			if (!found.contains(c.getId())) {
+				missing.add(c);
+			}
+		});
+		return missing;
+	}
+
+	// Cria o balde 'seq' vazio, depois de 'start' comentários. O índice único
+	// (postId, seq) garante que duas requisições simultâneas não criem o mesmo balde
+	// duas vezes.
+	private void openBucket(String postId, int seq, int start) {
+		try {
+			mongoTemplate.upsert(new Query(Criteria.where("postId").is(postId).and("seq").is(seq)),
+					new Update().setOnInsert("count", 0).setOnInsert("start", start)
+							.setOnInsert("comments", new ArrayList<>()),
+					CommentBucket.class);
+		} catch (DuplicateKeyException e) {
+			// Outra requisição criou o balde primeiro: tudo bem, é só usá-lo
+		}
+	}
+
+	// Baldes abertos antes de 'start' existir: os anteriores estavam todos cheios
+	private int start(CommentBucket bucket) {
+		return bucket.getStart() != null ? bucket.getStart() : bucket.getSeq() * bucketSize;
+	}
+
+	private static Set<String> ids(List<CommentDTO> comments) {
+		Set<String> ids = new HashSet<>();
+		comments.forEach(c -> ids.add(c.getId()));
+		return ids;
+	}
+}
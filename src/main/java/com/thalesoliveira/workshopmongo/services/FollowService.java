@@ -0,0 +1,87 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.thalesoliveira.workshopmongo.domain.Follow;
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+import com.thalesoliveira.workshopmongo.services.timeline.TimelineService;
+
+// Quem segue quem (coleção "follow"). Cada mudança atualiza a contagem de seguidores
+// (user_stats) e descarta o buffer de timeline de quem seguiu, que é recarregado
+// na próxima leitura já com (ou sem) os posts do seguido.
+@Service
+public class FollowService {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private AnalyticsService analytics;
+
+	@Autowired
+	private TimelineService timelines;
+
+	// Idempotente: seguir de novo quem já é seguido não muda nada
+	public void follow(String followerId, String followeeId) {
+		if (followerId.equals(followeeId)) {
+			throw new ParametroInvalidoException("Um usuário não pode seguir a si mesmo");
+		}
+		// 404 se algum dos dois não existir (normalmente vem do cache)
+		userService.findById(followerId);
+		userService.findById(followeeId);
+
+		UpdateResult result;
+		try {
+			result = mongoTemplate.upsert(pair(followerId, followeeId), new Update().setOnInsert("date", new Date()),
+					Follow.class);
+		} catch (DuplicateKeyException e) {
+			// Duas requisições iguais ao mesmo tempo: o índice único deixou só uma passar
+			return;
+		}
+		if (result.getUpsertedId() != null) {
+			long followers = analytics.followersChanged(followeeId, 1);
+			timelines.followingChanged(followerId, followers - 1, followers);
+		}
+	}
+
+	public void unfollow(String followerId, String followeeId) {
+		if (mongoTemplate.remove(pair(followerId, followeeId), Follow.class).getDeletedCount() > 0) {
+			long followers = analytics.followersChanged(followeeId, -1);
+			timelines.followingChanged(followerId, followers + 1, followers);
+		}
+	}
+
+	// Usuário apagado: sai das contagens de quem ele seguia e todos os pares com ele somem
+	public void deleteByUser(String userId) {
+		Query following = new Query(Criteria.where("followerId").is(userId));
+		following.fields().include("followeeId");
+		for (Follow follow : mongoTemplate.find(following, Follow.class)) {
+			analytics.followersChanged(follow.getFolloweeId(), -1);
+		}
+		mongoTemplate.remove(following, Follow.class);
+		mongoTemplate.remove(new Query(Criteria.where("followeeId").is(userId)), Follow.class);
+		timelines.invalidateAll();
+	}
+
+	public void deleteAll() {
+		mongoTemplate.remove(new Query(), Follow.class);
+		analytics.clearFollowers();
+		timelines.invalidateAll();
+	}
+
+	private static Query pair(String followerId, String followeeId) {
+		return new Query(Criteria.where("followerId").is(followerId).and("followeeId").is(followeeId));
+	}
+}
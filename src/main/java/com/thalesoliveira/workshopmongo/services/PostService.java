@@ -1,15 +1,45 @@
 package com.thalesoliveira.workshopmongo.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.client.result.DeleteResult;
+import com.thalesoliveira.workshopmongo.domain.CollectionVersion;
 import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.PostSummaryDTO;
 import com.thalesoliveira.workshopmongo.repository.PostRepository;
+import com.thalesoliveira.workshopmongo.services.cache.BatchLoader;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+import com.thalesoliveira.workshopmongo.services.cache.SingleFlight;
+import com.thalesoliveira.workshopmongo.services.search.AutocompleteIndex;
+import com.thalesoliveira.workshopmongo.services.search.NgramIndex;
+import com.thalesoliveira.workshopmongo.services.search.PostSearchIndex;
 import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+import com.thalesoliveira.workshopmongo.services.timeline.TimelineService;
 
 // Indica que esta classe é um serviço do Spring, responsável por conter a lógica de negócio 
 //(regras da aplicação) antes de salvar no banco
@@ -21,12 +51,68 @@ public class PostService {
 	@Autowired
 	private PostRepository repo;
 
+	// Acesso "de baixo nível" ao MongoDB, para consultas que o Repository não
+	// consegue expressar (ordenação composta + filtro de cursor)
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// Índice de trechos de texto em memória (trigramas) usado nas buscas por texto
+	@Autowired
+	private PostSearchIndex searchIndex;
+
+	// Cache de posts por ID (ver CacheConfig). É invalidado pelo PostEventListener
+	// sempre que um post é gravado ou apagado.
+	@Autowired
+	private EntityCache<Post> cache;
+
+	// Busca por ID em lote, atrás do cache (ver CacheConfig)
+	@Autowired
+	private BatchLoader<Post> batchLoader;
+
+	// Cache dos resultados das buscas por texto: só os IDs, na ordem do resultado;
+	// os posts em si vêm do cache de posts, sempre atualizado. A chave leva a versão
+	// (compartilhada entre as instâncias, ver CollectionVersionService) do que a
+	// busca olha: depois de uma gravação, as buscas antigas simplesmente deixam de
+	// ser encontradas (e saem por LRU/validade)
+	// - título: só a parte TITLES (comentários novos não invalidam);
+	// - busca completa e de texto: a coleção inteira (elas olham os comentários).
+	@Autowired
+	private EntityCache<List<String>> searchCache;
+
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	// Usados só na remoção de um post (ver delete)
+	@Autowired
+	private AutocompleteIndex autocomplete;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private AnalyticsService analytics;
+
+	// @Lazy porque o TimelineService também depende deste serviço
+	@Lazy
+	@Autowired
+	private TimelineService timelines;
+
+	// Buscas iguais que chegam juntas, sem nada no cache, viram uma consulta só. Cada
+	// uma recebe os seus próprios posts (cópias), como do cache
+	private final SingleFlight<List<Post>> searchFlights = new SingleFlight<>(posts -> {
+		List<Post> copy = new ArrayList<>(posts.size());
+		posts.forEach(p -> copy.add(new Post(p)));
+		return copy;
+	});
+
 	public Post findById(String id) {
 		// Chama o repositório para buscar pelo ID. O retorno é 'Optional' porque o
 		// resultado é incerto:
 		// funciona como uma "caixa" que pode conter o usuário ou estar vazia (null
 		// safe).
-		Optional<Post> obj = repo.findById(id);
+		// O cache só chama o banco quando não tem o post guardado (ou ele expirou);
+		// faltas simultâneas de vários IDs vão juntas numa consulta (BatchLoader).
+		Optional<Post> obj = Optional.ofNullable(cache.get(id, batchLoader::load));
 		// Tenta abrir a "caixa":
 		// 1. Se tiver um usuário dentro, retorna o objeto User.
 		// 2. Se a caixa estiver vazia (orElseThrow), dispara a sua exceção
@@ -34,24 +120,240 @@ public class PostService {
 		return obj.orElseThrow(() -> new ObjetoNotFoundException("Objeto não encontrado"));
 	}
 
-	// Método responsável por buscar TODOS os posts existentes no banco de dados
-	public List<Post> findAll() {
-		// O repo.findAll() é um método padrão do MongoRepository que retorna uma lista
-		// completa
-		return repo.findAll();
+	// Remove um post (404 se ele não existir) e tudo o que depende dele. A limpeza
+	// fica aqui e não no PostEventListener: o evento de remoção sai mesmo quando o
+	// filtro não apagou nada, e descontar os resumos ou apagar os comentários de um
+	// post que continua existindo estragaria os dados.
+	public void delete(String id) {
+		DeleteResult result = mongoTemplate.remove(new Query(Criteria.where("id").is(id)), Post.class);
+		if (result.getDeletedCount() == 0) {
+			throw new ObjetoNotFoundException("Objeto não encontrado");
+		}
+		collectionVersions.bump(Post.class, CollectionVersionService.TITLES);
+		cache.invalidate(id);
+		searchIndex.remove(id);
+		autocomplete.removePost(id);
+		// Antes dos baldes: os comentários do post saem dos totais de quem comentou
+		analytics.postDeleted(id);
+		commentService.deleteByPost(id);
+		// Remoções são raras: os buffers de timeline são recarregados sem o post
+		timelines.invalidateAll();
+	}
+
+	// Só a versão e a data de modificação do post (para o GET condicional), numa
+	// consulta que traz só esses dois campos. Sempre do banco, nunca do cache: o cache
+	// é desta instância, e uma gravação feita em outra não o invalida (o 304 sairia
+	// com uma versão velha até a entrada expirar)
+	public Post findVersion(String id) {
+		Query query = new Query(Criteria.where("id").is(id));
+		query.fields().include("version", "lastModified");
+		Post obj = mongoTemplate.findOne(query, Post.class);
+		if (obj == null) {
+			throw new ObjetoNotFoundException("Objeto não encontrado");
+		}
+		return obj;
+	}
+
+	// Método responsável por buscar UMA PÁGINA de posts (paginação por cursor).
+	// Ordem: mais recentes primeiro (date desc) e, em caso de empate na data, _id desc.
+	// 'lastDate'/'lastId' são a chave do último post da página anterior (null = primeira página).
+	// Nunca carregamos a coleção inteira: o Mongo devolve no máximo 'limit' documentos.
+	public List<Post> findPage(Date lastDate, String lastId, int limit) {
+		return mongoTemplate.find(pageQuery(lastDate, lastId, limit), Post.class);
+	}
+
+	// Posts de UM autor, mais recentes primeiro, com a mesma paginação por cursor.
+	// É UMA consulta só, filtrando pelo 'author.id' embutido em cada post (com índice
+	// author.id + date, ver Post), em vez de resolver a lista de @DBRef do
+	// usuário, que faria uma ida ao banco para cada post.
+	public List<Post> findByAuthor(String authorId, Date lastDate, String lastId, int limit) {
+		Query query = pageQuery(lastDate, lastId, limit).addCriteria(Criteria.where("author.id").is(authorId));
+		return mongoTemplate.find(query, Post.class);
+	}
+
+	// Só data e id dos posts de VÁRIOS autores, mesma ordem e cursor do findPage (usa o
+	// índice author.id + date de cada autor; o Mongo junta as listas já ordenadas)
+	public List<Post> findKeysByAuthors(Collection<String> authorIds, Date lastDate, String lastId, int limit) {
+		Query query = pageQuery(lastDate, lastId, limit).addCriteria(Criteria.where("author.id").in(authorIds));
+		query.fields().include("id", "date");
+		return mongoTemplate.find(query, Post.class);
+	}
+
+	// Resumos dos posts com esses ids, na mesma ordem da lista (ids que não existem
+	// mais ficam de fora)
+	public List<PostSummaryDTO> findSummaries(List<String> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Aggregation aggregation = Aggregation.newAggregation(Post.class,
+				Aggregation.match(Criteria.where("id").in(ids)), summaryProjection());
+		Map<String, PostSummaryDTO> byId = new HashMap<>();
+		for (PostSummaryDTO summary : mongoTemplate.aggregate(aggregation, PostSummaryDTO.class)) {
+			byId.put(summary.getId(), summary);
+		}
+		List<PostSummaryDTO> result = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			if (byId.containsKey(id)) {
+				result.add(byId.get(id));
+			}
+		}
+		return result;
+	}
+
+	// Mesma página do findPage, mas na versão resumida (PostSummaryDTO).
+	// Usamos uma agregação para o próprio Mongo montar o resumo: ele devolve só
+	// id, data, título, autor e a quantidade de comentários, sem enviar os comentários.
+	public List<PostSummaryDTO> findSummaryPage(Date lastDate, String lastId, int limit) {
+		List<AggregationOperation> stages = new ArrayList<>();
+		Criteria after = afterCursor(lastDate, lastId);
+		if (after != null) {
+			stages.add(Aggregation.match(after));
+		}
+		stages.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "date", "id")));
+		stages.add(Aggregation.limit(limit));
+		stages.add(summaryProjection());
+
+		return mongoTemplate.aggregate(Aggregation.newAggregation(Post.class, stages), PostSummaryDTO.class)
+				.getMappedResults();
+	}
+
+	// commentCount já vem pronto no post; posts antigos, ainda sem o campo, caem
+	// no tamanho da lista de comentários embutida
+	private static AggregationOperation summaryProjection() {
+		return Aggregation.project("date", "title", "author")
+				.and(ConditionalOperators.ifNull("commentCount").thenValueOf(
+						ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("comments").then(new ArrayList<>()))))
+				.as("commentCount");
+	}
+
+	// Monta a consulta de uma página: ordenação (date desc, _id desc), limite e,
+	// se houver cursor, o filtro "depois do último item entregue".
+	// Também usada pela versão reativa (ReactivePostService), com os mesmos cursores
+	public static Query pageQuery(Date lastDate, String lastId, int limit) {
+		Query query = new Query().with(Sort.by(Sort.Direction.DESC, "date", "id")).limit(limit);
+		Criteria after = afterCursor(lastDate, lastId);
+		if (after != null) {
+			query.addCriteria(after);
+		}
+		return query;
+	}
+
+	// "Depois" do último item, na ordem decrescente, significa:
+	// data menor OU (mesma data E _id menor). Sem cursor (primeira página) = null.
+	private static Criteria afterCursor(Date lastDate, String lastId) {
+		if (lastId == null) {
+			return null;
+		}
+		return new Criteria().orOperator(
+				Criteria.where("date").lt(lastDate),
+				new Criteria().andOperator(Criteria.where("date").is(lastDate), Criteria.where("id").lt(lastId)));
+	}
+
+	// Abre um cursor do MongoDB sobre a coleção inteira e devolve os posts como um
+	// Stream "preguiçoso": os documentos chegam em lotes de 'batchSize' conforme
+	// quem consome vai lendo, em vez de montar uma List gigante na memória.
+	// IMPORTANTE: quem chama deve fechar o Stream (try-with-resources) para liberar
+	// o cursor no servidor.
+	public Stream<Post> streamAll(int batchSize) {
+		Query query = new Query().cursorBatchSize(batchSize);
+		return mongoTemplate.stream(query, Post.class);
 	}
 
 	// Método de serviço responsável por buscar posts contendo um texto
 	public List<Post> findByTitle(String text) {
-
-		// Chama o nosso método personalizado 'searchTitle' lá do Repository.
-		// Diferente do anterior, este aqui usa a anotação @Query com regex.
-		// A grande vantagem agora é que ele ignora maiúsculas e minúsculas (Case
-		// Insensitive) por causa da opção 'i' que configuramos no banco.
-		return repo.searchTitle(text);
+		return cachedSearch(collectionVersions.get(Post.class, CollectionVersionService.TITLES), "title", text,
+				null, null, () -> searchByTitle(text));
 	}
 
 	public List<Post> fullSearch(String text, Date minDate, Date maxDate) {
+		return cachedSearch(collectionVersions.get(Post.class), "full", text, minDate, maxDate,
+				() -> searchFull(text, minDate, maxDate));
+	}
+
+	public List<Post> textSearch(String text, Date minDate, Date maxDate) {
+		// $text não aceita busca vazia, e sem texto a "busca" seria o período inteiro,
+		// sem limite nenhum: para listar posts existe a listagem paginada (/posts)
+		if (text == null || text.isBlank()) {
+			throw new ParametroInvalidoException("Informe o texto da busca");
+		}
+		return cachedSearch(collectionVersions.get(Post.class), "text", text, minDate, maxDate,
+				() -> searchText(text, minDate, maxDate));
+	}
+
+	private List<Post> cachedSearch(CollectionVersion version, String kind, String text, Date minDate,
+			Date maxDate, Supplier<List<Post>> search) {
+		// Gravação desta instância ainda sem versão: nada de cache até ela ser numerada
+		if (version.getVersion() == null) {
+			return search.get();
+		}
+		String key = version.getVersion() + "|" + kind + "|" + searchKey(text) + "|"
+				+ (minDate == null ? "" : minDate.getTime()) + "|" + (maxDate == null ? "" : maxDate.getTime());
+
+		// Na falta, a busca já traz os posts: não precisa buscá-los de novo pelos IDs.
+		// A lista de posts é dividida entre as buscas iguais simultâneas (SingleFlight)
+		AtomicReference<List<Post>> searched = new AtomicReference<>();
+		List<String> ids = searchCache.get(key, k -> {
+			List<Post> posts = searchFlights.run(k, search);
+			searched.set(posts);
+			List<String> result = new ArrayList<>(posts.size());
+			posts.forEach(p -> result.add(p.getId()));
+			return List.copyOf(result);
+		});
+		if (searched.get() != null) {
+			return new ArrayList<>(searched.get());
+		}
+		Map<String, Post> found = cache.getAll(ids, this::loadByIds);
+		List<Post> list = new ArrayList<>(ids.size());
+		for (String id : ids) {
+			// Um post apagado depois da busca muda a versão, mas pode ainda ser pedido
+			// por quem leu a versão antiga: some do resultado
+			Post post = found.get(id);
+			if (post != null) {
+				list.add(post);
+			}
+		}
+		return list;
+	}
+
+	// Posts por ID, com UMA consulta ($in), para o cache.getAll
+	private Map<String, Post> loadByIds(Collection<String> ids) {
+		Map<String, Post> found = new HashMap<>();
+		for (Post post : mongoTemplate.find(new Query(Criteria.where("id").in(ids)), Post.class)) {
+			found.put(post.getId(), post);
+		}
+		return found;
+	}
+
+	// Todas as buscas ignoram maiúsculas/minúsculas, então "Viagem" e "viagem" são a
+	// mesma chave. Com '\' não: numa expressão regular, "\W" e "\w" são diferentes
+	private static String searchKey(String text) {
+		if (text == null) {
+			return "";
+		}
+		return text.indexOf('\\') >= 0 ? text : NgramIndex.normalize(text);
+	}
+
+	private List<Post> searchByTitle(String text) {
+
+		// 1. Pergunta ao índice em memória quais posts PODEM ter esse trecho no título
+		List<String> ids = searchIndex.searchTitle(text);
+
+		// 2. Se o índice não consegue responder (texto de 1 letra, caracteres de regex,
+		// índice ainda carregando...), usa o nosso método personalizado 'searchTitle'
+		// lá do Repository: a anotação @Query com regex, que ignora maiúsculas e
+		// minúsculas (Case Insensitive) por causa da opção 'i' que configuramos no banco.
+		if (ids == null) {
+			return repo.searchTitle(text);
+		}
+
+		// 3. Busca no Mongo apenas os posts candidatos (pelo _id, que tem índice) e
+		// confirma na memória que o trecho realmente aparece no título
+		List<Post> list = findAllById(ids, null);
+		list.removeIf(p -> !PostSearchIndex.titleMatches(p, text));
+		return list;
+	}
+
+	private List<Post> searchFull(String text, Date minDate, Date maxDate) {
 
 		// AJUSTE DE DATA (O Pulo do Gato):
 		// Por padrão, a data 'maxDate' vem setada como meia-noite (00:00:00).
@@ -61,9 +363,63 @@ public class PostService {
 		// Cálculo: 24 horas * 60 minutos * 60 segundos * 1000 milissegundos = 1 dia.
 		maxDate = new Date(maxDate.getTime() + 24 * 60 * 60 * 1000);
 
-		// Agora sim, chama o repositório passando a data final ajustada (que agora é
-		// 00:00 do dia SEGUINTE),
-		// garantindo que pegaremos todos os posts do último dia até o último segundo.
-		return repo.fullSearch(text, minDate, maxDate);
+		// Mesmo esquema do findByTitle: primeiro os candidatos do índice em memória
+		List<String> ids = searchIndex.searchFull(text);
+		Criteria period = Criteria.where("date").gte(minDate).lte(maxDate);
+		if (ids == null) {
+			// Agora sim, chama o repositório passando a data final ajustada (que agora é
+			// 00:00 do dia SEGUINTE),
+			// garantindo que pegaremos todos os posts do último dia até o último segundo.
+			return withOlderComments(new ArrayList<>(repo.fullSearch(text, minDate, maxDate)), text, text, period);
+		}
+
+		// O filtro de período continua sendo feito pelo Mongo, junto com o dos ids
+		List<Post> list = findAllById(ids, period);
+		list.removeIf(p -> !PostSearchIndex.fullMatches(p, text));
+		return withOlderComments(list, text, text, period);
+	}
+
+	// Acrescenta ao fim de 'list' os posts que só batem por um comentário antigo, que
+	// já saiu da lista embutida no post e está só nos baldes (índice de texto
+	// comment_bucket_text, ver CommentService.findPostIds)
+	private List<Post> withOlderComments(List<Post> list, String text, String regex, Criteria period) {
+		if (text == null || text.isBlank()) {
+			return list;
+		}
+		Set<String> ids = commentService.findPostIds(text, regex);
+		list.forEach(p -> ids.remove(p.getId()));
+		list.addAll(findAllById(new ArrayList<>(ids), period));
+		return list;
+	}
+
+	// Busca os posts cujo _id está na lista (operador $in) e que atendem 'filter'
+	// (filtro opcional, pode ser null)
+	private List<Post> findAllById(List<String> ids, Criteria filter) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Criteria byId = Criteria.where("id").in(ids);
+		Criteria criteria = filter == null ? byId : new Criteria().andOperator(byId, filter);
+		return mongoTemplate.find(new Query(criteria), Post.class);
+	}
+
+	// Busca completa usando o ÍNDICE DE TEXTO do MongoDB (ver IndexManager).
+	// Diferente do $regex, o $text consulta o índice invertido de palavras: o custo
+	// cresce com a quantidade de posts que batem, e não com o tamanho da coleção.
+	// O resultado vem ordenado pela relevância (score) calculada pelo Mongo, que
+	// leva em conta os pesos de título, corpo e comentários definidos no índice;
+	// os posts que só batem em comentários antigos (nos baldes) vêm depois.
+	private List<Post> searchText(String text, Date minDate, Date maxDate) {
+
+		// Mesmo ajuste de data do fullSearch: inclui o dia inteiro de 'maxDate'
+		maxDate = new Date(maxDate.getTime() + 24 * 60 * 60 * 1000);
+		Criteria period = Criteria.where("date").gte(minDate).lte(maxDate);
+
+		// TextCriteria monta o { $text: { $search: ... } } e o sortByScore() projeta o
+		// { $meta: "textScore" } e ordena por ele (mais relevante primeiro)
+		Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text)).sortByScore()
+				.addCriteria(period);
+		// Depois dos mais relevantes, os que só batem em comentários antigos
+		return withOlderComments(mongoTemplate.find(query, Post.class), text, null, period);
 	}
 }
@@ -1,15 +1,38 @@
 package com.thalesoliveira.workshopmongo.services;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.DeleteResult;
 import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.BatchItemDTO;
 import com.thalesoliveira.workshopmongo.dto.UserDTO;
 import com.thalesoliveira.workshopmongo.repository.UserRepository;
+import com.thalesoliveira.workshopmongo.services.cache.BatchLoader;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
 import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.exception.VersaoDesatualizadaException;
+import com.thalesoliveira.workshopmongo.services.search.AutocompleteIndex;
 
 // Indica que esta classe é um serviço do Spring, responsável por conter a lógica de negócio 
 //(regras da aplicação) antes de salvar no banco
@@ -21,10 +44,51 @@ public class UserService {
 	@Autowired
 	private UserRepository repo;
 
-	// Repassa a chamada para a camada de repositório (repo) buscar todos os objetos
-	// User no banco de dados e retorna essa lista
-	public List<User> findAll() {
-		return repo.findAll();
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// Cache de usuários por ID (ver CacheConfig), invalidado pelo UserEventListener
+	@Autowired
+	private EntityCache<User> cache;
+
+	// Busca por ID em lote, atrás do cache (ver CacheConfig)
+	@Autowired
+	private BatchLoader<User> batchLoader;
+
+	@Autowired
+	private AuthorRenameService authorRenameService;
+
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	// Nomes de usuários no autocomplete da busca
+	@Autowired
+	private AutocompleteIndex autocomplete;
+
+	// Relações de quem segue quem, apagadas junto com o usuário. @Lazy porque o
+	// FollowService também depende deste serviço (confere se os usuários existem)
+	@Lazy
+	@Autowired
+	private FollowService followService;
+
+	// Busca UMA PÁGINA de usuários ordenada por _id (paginação por cursor).
+	// 'lastId' é o _id do último usuário da página anterior (null = primeira página).
+	// Como o _id já tem índice por padrão, cada página é uma leitura curta no índice.
+	// O as(UserDTO.class) faz o Mongo devolver só os campos do DTO (projeção): a
+	// lista 'posts' (DBRef) nem sai do banco e não criamos o User só para descartá-lo.
+	public List<UserDTO> findPage(String lastId, int limit) {
+		Query query = new Query().with(Sort.by(Sort.Direction.ASC, "id")).limit(limit);
+		if (lastId != null) {
+			query.addCriteria(Criteria.where("id").gt(lastId));
+		}
+		return mongoTemplate.query(User.class).as(UserDTO.class).matching(query).all();
+	}
+
+	// Percorre a coleção inteira por cursor (ver PostService.streamAll), com a mesma
+	// projeção direta em UserDTO do findPage
+	public Stream<UserDTO> streamAll(int batchSize) {
+		Query query = new Query().cursorBatchSize(batchSize);
+		return mongoTemplate.query(User.class).as(UserDTO.class).matching(query).stream();
 	}
 
 	public User findById(String id) {
@@ -32,7 +96,9 @@ public class UserService {
 		// resultado é incerto:
 		// funciona como uma "caixa" que pode conter o usuário ou estar vazia (null
 		// safe).
-		Optional<User> obj = repo.findById(id);
+		// O cache só chama o banco quando não tem o usuário guardado (ou ele expirou);
+		// faltas simultâneas de vários IDs vão juntas numa consulta (BatchLoader).
+		Optional<User> obj = Optional.ofNullable(cache.get(id, batchLoader::load));
 		// Tenta abrir a "caixa":
 		// 1. Se tiver um usuário dentro, retorna o objeto User.
 		// 2. Se a caixa estiver vazia (orElseThrow), dispara a sua exceção
@@ -40,6 +106,20 @@ public class UserService {
 		return obj.orElseThrow(() -> new ObjetoNotFoundException("Objeto não encontrado"));
 	}
 
+	// Só a versão e a data de modificação do usuário (para o GET condicional), numa
+	// consulta que traz só esses dois campos. Sempre do banco, nunca do cache: o cache
+	// é desta instância, e uma gravação feita em outra não o invalida (o 304 sairia
+	// com uma versão velha até a entrada expirar)
+	public User findVersion(String id) {
+		Query query = new Query(Criteria.where("id").is(id));
+		query.fields().include("version", "lastModified");
+		User obj = mongoTemplate.findOne(query, User.class);
+		if (obj == null) {
+			throw new ObjetoNotFoundException("Objeto não encontrado");
+		}
+		return obj;
+	}
+
 	// Método responsável por receber um objeto User e solicitar sua gravação no
 	// banco de dados
 	public User insert(User obj) {
@@ -48,37 +128,138 @@ public class UserService {
 		return repo.insert(obj);
 	}
 
-	// Método responsável por excluir um usuário do banco de dados
-	public void delete(String id) {
-		// Passo 1: Busca o usuário pelo ID para garantir que ele existe.
-		// Se o ID não for encontrado, este método lança a exceção
-		// "ObjectNotFoundException" e o código para aqui (não tenta deletar).
-		findById(id);
+	// Grava um lote de usuários com UMA operação "bulk" não ordenada, em vez de um
+	// insert por usuário. Não ordenada (UNORDERED) = um item com erro (ex: e-mail
+	// duplicado) não impede os outros de serem gravados.
+	// 'firstIndex' é a posição do primeiro usuário do lote no arquivo enviado, para o
+	// resultado de cada item apontar a linha certa.
+	public List<BatchItemDTO> insertAll(List<User> users, int firstIndex) {
+
+		// Geramos os IDs aqui para poder devolvê-los na resposta, item a item
+		for (User u : users) {
+			if (u.getId() == null) {
+				u.setId(new ObjectId().toHexString());
+			}
+			u.setVersion(0L);
+		}
+
+		Map<Integer, String> errors = new HashMap<>();
+		BulkOperations ops = mongoTemplate.bulkOps(BulkMode.UNORDERED, User.class);
+		ops.insert(users);
+		try {
+			ops.execute();
+		} catch (BulkOperationException e) {
+			// Os itens que deram certo continuam gravados; guardamos o erro dos outros
+			for (BulkWriteError error : e.getErrors()) {
+				errors.put(error.getIndex(), error.getMessage());
+			}
+		}
+
+		collectionVersions.bump(User.class);
+
+		// O bulk não dispara o UserEventListener: fazemos aqui o que ele faria no
+		// insert, inclusive limpar do cache um "não encontrado" guardado para o ID
+		for (int i = 0; i < users.size(); i++) {
+			if (!errors.containsKey(i)) {
+				cache.invalidate(users.get(i).getId());
+				autocomplete.indexUser(users.get(i).getId(), users.get(i).getName());
+			}
+		}
+
+		List<BatchItemDTO> result = new ArrayList<>(users.size());
+		for (int i = 0; i < users.size(); i++) {
+			String error = errors.get(i);
+			result.add(new BatchItemDTO(firstIndex + i, error == null ? users.get(i).getId() : null, error));
+		}
+		return result;
+	}
 
-		// Passo 2: Se passou pela linha de cima, significa que o usuário existe.
-		// Então, chama o repositório para efetuar a exclusão física no MongoDB.
-		repo.deleteById(id);
+	// Método responsável por excluir um usuário do banco de dados.
+	// Uma ida ao banco só: o próprio delete diz quantos documentos apagou, e zero
+	// significa que o ID não existe (404). Com 'expectedVersion' (If-Match), só apaga
+	// se o usuário ainda estiver nessa versão.
+	// A limpeza (seguidores, autocomplete, versão da coleção) fica aqui e não no
+	// UserEventListener: o evento de remoção sai mesmo quando nada foi apagado (412,
+	// 404), e aí um usuário que continua existindo perderia os seus "follows".
+	public void delete(String id, Long expectedVersion) {
+		DeleteResult result = mongoTemplate.remove(byIdAndVersion(id, expectedVersion), User.class);
+		if (result.getDeletedCount() == 0) {
+			throw notFoundOrStale(id, expectedVersion);
+		}
+		collectionVersions.bump(User.class);
+		cache.invalidate(id);
+		followService.deleteByUser(id);
+		autocomplete.removeUser(id);
 	}
 
-	// Método responsável por atualizar um usuário existente
-	public User update(User obj) {
+	// Método responsável por atualizar um usuário existente.
+	// Em vez de ler o usuário, alterar e regravar o documento inteiro (incluindo a
+	// lista 'posts'), mandamos UM comando atômico que muda só nome e email e sobe a
+	// versão. O findAndModify devolve o documento como estava ANTES (só nome e
+	// versão): null = nenhum documento casou com o filtro (404, ou 412 com If-Match);
+	// o nome antigo diz se precisamos propagar a mudança para os posts.
+	// Devolve o usuário com a nova versão (ETag da resposta).
+	public User update(User obj, Long expectedVersion) {
+		Query query = byIdAndVersion(obj.getId(), expectedVersion);
+		query.fields().include("name", "version");
 
-		// Busca o usuário no banco usando o nosso método auxiliar 'findById'.
-		// Importante: Não usa 'repo.findById' aqui diretamente para reaproveitar a
-		// lógica que já trata a exceção 'ObjectNotFoundException' caso o ID não exista.
-		User newObj = findById(obj.getId());
+		Update update = new Update().inc("version", 1).currentDate("lastModified");
+		updateData(update, obj);
 
-		// Atualiza os dados do objeto recuperado (newObj) com os dados novos que vieram
-		// da requisição (obj)
-		updateData(newObj, obj);
+		User previous = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false),
+				User.class);
+		if (previous == null) {
+			throw notFoundOrStale(obj.getId(), expectedVersion);
+		}
+
+		// Atualização parcial não dispara o UserEventListener: cache e versão da
+		// coleção são tratados aqui
+		cache.invalidate(obj.getId());
+		collectionVersions.bump(User.class);
+
+		// Se o nome mudou, agenda a atualização das cópias do nome (AuthorDTO) que
+		// ficam nos posts e comentários. Isso roda em segundo plano, sem atrasar o PUT.
+		if (!Objects.equals(previous.getName(), obj.getName())) {
+			authorRenameService.enqueue(obj.getId(), obj.getName());
+			autocomplete.indexUser(obj.getId(), obj.getName());
+		}
+
+		User updated = new User(obj.getId(), obj.getName(), obj.getEmail());
+		updated.setVersion((previous.getVersion() == null ? 0L : previous.getVersion()) + 1);
+		return updated;
+	}
+
+	// Campo nulo no PUT some do documento, como acontecia ao regravar o usuário
+	// inteiro (e assim não ocupa o índice único de email)
+	private void updateData(Update update, User obj) {
+		setOrUnset(update, "name", obj.getName());
+		setOrUnset(update, "email", obj.getEmail());
+	}
+
+	private static void setOrUnset(Update update, String field, Object value) {
+		if (value == null) {
+			update.unset(field);
+		} else {
+			update.set(field, value);
+		}
+	}
 
-		// Salva as alterações no banco de dados
-		return repo.save(newObj);
+	private static Query byIdAndVersion(String id, Long expectedVersion) {
+		Query query = new Query(Criteria.where("id").is(id));
+		if (expectedVersion != null) {
+			query.addCriteria(Criteria.where("version").is(expectedVersion));
+		}
+		return query;
 	}
 
-	private void updateData(User newObj, User obj) {
-		newObj.setName(obj.getName());
-		newObj.setEmail(obj.getEmail());
+	// A operação não encontrou o documento. Sem If-Match, é 404. Com If-Match,
+	// uma consulta a mais (só neste caso de erro) diferencia "não existe" (404)
+	// de "existe, mas em outra versão" (412).
+	private RuntimeException notFoundOrStale(String id, Long expectedVersion) {
+		if (expectedVersion != null && mongoTemplate.exists(byIdAndVersion(id, null), User.class)) {
+			return new VersaoDesatualizadaException("O usuário foi alterado: versão atual diferente da informada");
+		}
+		return new ObjetoNotFoundException("Objeto não encontrado");
 	}
 
 	// Método auxiliar responsável por converter um objeto UserDTO (focado na
@@ -0,0 +1,160 @@
+package com.thalesoliveira.workshopmongo.services.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.thalesoliveira.workshopmongo.dto.BatchStatsDTO;
+
+// Junta buscas por ID que chegam quase ao mesmo tempo numa consulta só ($in), no
+// estilo do DataLoader do GraphQL. Fica atrás do EntityCache: só as faltas chegam aqui.
+//
+// A primeira busca abre um lote e espera 'window' por companhia; quem chega nesse
+// meio tempo entra no mesmo lote. O lote é executado quando a janela acaba ou quando
+// atinge 'maxBatch' IDs, pela thread que o abriu; cada uma recebe o seu documento
+// (ou null, se o ID não existe). Sem thread própria: quem espera é quem pediu.
+// Uma busca sozinha (nenhuma outra em andamento) não espera a janela: sem tráfego
+// não há com quem juntar, e a espera seria só atraso.
+// O mesmo ID pedido por várias buscas do lote é consultado uma vez; a primeira
+// recebe o documento e as outras uma cópia ('copier'), como no EntityCache.
+// Com a janela em 0, cada busca vai direto ao banco, como antes.
+public class BatchLoader<V> {
+
+	private final String name;
+	private final Function<Collection<String>, Map<String, V>> bulkLoader;
+	private final int maxBatch;
+	private final long windowNanos;
+	private final UnaryOperator<V> copier;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition full = lock.newCondition();
+
+	// Lote aberto, recebendo IDs (null = nenhum)
+	private Batch<V> open;
+
+	// Buscas em andamento (esperando um lote ou executando)
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder lookups = new LongAdder();
+	private volatile int largest;
+
+	// 'bulkLoader' recebe os IDs do lote e devolve os documentos encontrados por ID.
+	// Para valores imutáveis: sem cópia
+	public BatchLoader(String name, Function<Collection<String>, Map<String, V>> bulkLoader, int maxBatch,
+			long windowMicros) {
+		this(name, bulkLoader, maxBatch, windowMicros, UnaryOperator.identity());
+	}
+
+	public BatchLoader(String name, Function<Collection<String>, Map<String, V>> bulkLoader, int maxBatch,
+			long windowMicros, UnaryOperator<V> copier) {
+		this.name = name;
+		this.bulkLoader = bulkLoader;
+		this.maxBatch = Math.max(1, maxBatch);
+		this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+		this.copier = copier;
+	}
+
+	// O documento com esse ID, ou null se ele não existe
+	public V load(String id) {
+		lookups.increment();
+		if (windowNanos <= 0 || maxBatch == 1) {
+			batches.increment();
+			return bulkLoader.apply(Collections.singletonList(id)).get(id);
+		}
+
+		Batch<V> batch;
+		CompletableFuture<V> result;
+		boolean leader = false;
+		boolean duplicate;
+		lock.lock();
+		try {
+			boolean alone = active.incrementAndGet() == 1;
+			if (open == null) {
+				open = new Batch<>();
+				leader = true;
+			}
+			batch = open;
+			// O mesmo ID duas vezes no lote: uma entrada só, o resultado é dividido
+			duplicate = batch.ids.containsKey(id);
+			result = batch.ids.computeIfAbsent(id, key -> new CompletableFuture<>());
+			// Lote cheio, ou busca sozinha: fecha já, sem esperar a janela
+			if (batch.ids.size() >= maxBatch || (leader && alone)) {
+				open = null;
+				full.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			if (leader) {
+				awaitWindow(batch);
+				execute(batch);
+			}
+			V value = result.join();
+			return duplicate && value != null ? copier.apply(value) : value;
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		} finally {
+			active.decrementAndGet();
+		}
+	}
+
+	public BatchStatsDTO stats() {
+		long b = batches.sum();
+		long l = lookups.sum();
+		return new BatchStatsDTO(name, b, l, b == 0 ? 0.0 : (double) l / b, largest);
+	}
+
+	// Espera a janela acabar ou o lote encher; depois disso ninguém mais entra nele
+	private void awaitWindow(Batch<V> batch) {
+		lock.lock();
+		try {
+			long left = windowNanos;
+			while (open == batch && left > 0) {
+				left = full.awaitNanos(left);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (open == batch) {
+				open = null;
+			}
+			lock.unlock();
+		}
+	}
+
+	private void execute(Batch<V> batch) {
+		batches.increment();
+		int size = batch.ids.size();
+		if (size > largest) {
+			largest = size;
+		}
+		try {
+			Map<String, V> found = bulkLoader.apply(batch.ids.keySet());
+			batch.ids.forEach((id, future) -> future.complete(found.get(id)));
+		} catch (RuntimeException | Error e) {
+			// Todos os que esperavam recebem o mesmo erro
+			batch.ids.values().forEach(future -> future.completeExceptionally(e));
+		}
+	}
+
+	private static class Batch<V> {
+		// Preenchido só com o lock na mão e lido pelo líder depois que o lote fechou
+		final Map<String, CompletableFuture<V>> ids = new LinkedHashMap<>();
+	}
+}
@@ -0,0 +1,220 @@
+package com.thalesoliveira.workshopmongo.services.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.thalesoliveira.workshopmongo.dto.CacheStatsDTO;
+
+// Cache "read-through" de entidades por ID, na frente do MongoDB.
+//
+// - Tamanho limitado: quando enche, sai quem foi usado há mais tempo (LRU). Como o
+//   tráfego se concentra em poucos posts "quentes", eles ficam sempre no cache.
+// - Validade (TTL): cada entrada expira depois de 'ttlMillis', mesmo se ninguém
+//   invalidar, o que limita o tempo de uma eventual informação velha.
+// - Cache negativo: um ID que não existe também é guardado (por 'negativeTtlMillis',
+//   bem menor), para que repetidos 404 do mesmo ID não batam no banco toda vez.
+// - Cópias: o cache guarda uma cópia do que foi lido e entrega uma cópia nova a cada
+//   acerto ('copier'), então quem altera o objeto recebido (ex.: o update, antes do
+//   save) não muda o que as outras requisições estão lendo.
+public class EntityCache<V> {
+
+	// Quantidade de "faixas" de IDs com contador de invalidação próprio (ver epochs)
+	private static final int STRIPES = 64;
+
+	private final String name;
+	private final int maxSize;
+	private final long ttlMillis;
+	private final long negativeTtlMillis;
+	private final UnaryOperator<V> copier;
+
+	// accessOrder = true: cada get() move a entrada para o fim, então o começo do
+	// mapa é sempre o item menos usado recentemente
+	private final LinkedHashMap<String, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+	// Incrementado a cada invalidação, na faixa do ID invalidado. Evita que uma
+	// leitura que começou ANTES de uma gravação coloque no cache o valor antigo DEPOIS
+	// que a gravação invalidou a entrada. Por faixa, e não um só para o cache todo:
+	// com muitas gravações, um contador global descartaria quase toda leitura em
+	// andamento, de qualquer ID; assim só as da mesma faixa (1/64 dos IDs) se perdem.
+	private final long[] epochs = new long[STRIPES];
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder negativeHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	// Para valores imutáveis, que podem ser entregues sem cópia
+	public EntityCache(String name, int maxSize, long ttlMillis, long negativeTtlMillis) {
+		this(name, maxSize, ttlMillis, negativeTtlMillis, UnaryOperator.identity());
+	}
+
+	public EntityCache(String name, int maxSize, long ttlMillis, long negativeTtlMillis, UnaryOperator<V> copier) {
+		this.name = name;
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.negativeTtlMillis = negativeTtlMillis;
+		this.copier = copier;
+	}
+
+	// Devolve o valor do cache ou, se não tiver (ou expirou), chama o 'loader' (que
+	// vai ao banco) e guarda o resultado. O loader devolve null quando o ID não existe.
+	public V get(String id, Function<String, V> loader) {
+		V cached = null;
+		long startEpoch;
+		synchronized (this) {
+			Entry<V> entry = map.get(id);
+			if (entry != null) {
+				if (entry.expiresAt > System.currentTimeMillis()) {
+					if (entry.value == null) {
+						negativeHits.increment();
+						return null;
+					}
+					hits.increment();
+					cached = entry.value;
+				} else {
+					map.remove(id);
+					expirations.increment();
+				}
+			}
+			startEpoch = epochs[stripe(id)];
+		}
+		// O valor guardado nunca é alterado, então a cópia pode ser feita fora do lock
+		if (cached != null) {
+			return copier.apply(cached);
+		}
+
+		// A consulta ao banco fica FORA do synchronized: outras threads continuam
+		// lendo o cache enquanto esperamos o Mongo
+		misses.increment();
+		V value = loader.apply(id);
+		V stored = value == null ? null : copier.apply(value);
+
+		synchronized (this) {
+			if (startEpoch == epochs[stripe(id)]) {
+				long ttl = value == null ? negativeTtlMillis : ttlMillis;
+				map.put(id, new Entry<>(stored, System.currentTimeMillis() + ttl));
+				evictIfNeeded();
+			}
+		}
+		return value;
+	}
+
+	// Vários IDs de uma vez: os que estão no cache saem dele e os que faltam são
+	// buscados com UMA chamada ao 'loader' (que devolve os encontrados por ID).
+	// No mapa devolvido ficam só os que existem
+	public Map<String, V> getAll(Collection<String> ids, Function<Collection<String>, Map<String, V>> loader) {
+		Map<String, V> result = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		long[] startEpochs;
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (String id : ids) {
+				Entry<V> entry = map.get(id);
+				if (entry != null && entry.expiresAt > now) {
+					if (entry.value == null) {
+						negativeHits.increment();
+					} else {
+						hits.increment();
+						result.put(id, entry.value);
+					}
+					continue;
+				}
+				if (entry != null) {
+					map.remove(id);
+					expirations.increment();
+				}
+				missing.add(id);
+			}
+			startEpochs = new long[missing.size()];
+			for (int i = 0; i < startEpochs.length; i++) {
+				startEpochs[i] = epochs[stripe(missing.get(i))];
+			}
+		}
+		result.replaceAll((id, value) -> copier.apply(value));
+		if (missing.isEmpty()) {
+			return result;
+		}
+
+		misses.add(missing.size());
+		Map<String, V> found = loader.apply(missing);
+		List<V> stored = new ArrayList<>(missing.size());
+		for (String id : missing) {
+			V value = found.get(id);
+			stored.add(value == null ? null : copier.apply(value));
+		}
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			for (int i = 0; i < startEpochs.length; i++) {
+				// Só fica de fora quem teve a faixa invalidada durante a consulta
+				String id = missing.get(i);
+				if (startEpochs[i] == epochs[stripe(id)]) {
+					V value = stored.get(i);
+					map.put(id, new Entry<>(value, now + (value == null ? negativeTtlMillis : ttlMillis)));
+				}
+			}
+			evictIfNeeded();
+		}
+		result.putAll(found);
+		return result;
+	}
+
+	// Só olha o cache, sem ir ao banco: (uma cópia do) valor guardado e ainda
+	// válido, ou null
+	public V peek(String id) {
+		V value;
+		synchronized (this) {
+			Entry<V> entry = map.get(id);
+			value = entry != null && entry.expiresAt > System.currentTimeMillis() ? entry.value : null;
+		}
+		return value == null ? null : copier.apply(value);
+	}
+
+	public synchronized void invalidate(String id) {
+		epochs[stripe(id)]++;
+		map.remove(id);
+	}
+
+	public synchronized void invalidateAll() {
+		for (int i = 0; i < STRIPES; i++) {
+			epochs[i]++;
+		}
+		map.clear();
+	}
+
+	public synchronized CacheStatsDTO stats() {
+		return new CacheStatsDTO(name, map.size(), maxSize, hits.sum(), negativeHits.sum(), misses.sum(),
+				evictions.sum(), expirations.sum());
+	}
+
+	private static int stripe(String id) {
+		return (id.hashCode() & 0x7fffffff) % STRIPES;
+	}
+
+	private void evictIfNeeded() {
+		Iterator<Map.Entry<String, Entry<V>>> it = map.entrySet().iterator();
+		while (map.size() > maxSize && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	private static class Entry<V> {
+		final V value;
+		final long expiresAt;
+
+		Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
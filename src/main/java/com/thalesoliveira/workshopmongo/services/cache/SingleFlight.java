@@ -0,0 +1,65 @@
+package com.thalesoliveira.workshopmongo.services.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// "Voo único": se várias threads pedem a mesma chave ao mesmo tempo, só a primeira
+// executa o 'loader'; as outras esperam e recebem o mesmo resultado (ou a mesma
+// exceção). Usado atrás de um EntityCache para que N faltas iguais e simultâneas
+// virem UMA consulta ao banco, em vez de N.
+// Como no EntityCache, quem esperou recebe uma cópia ('copier'): o resultado não é
+// um objeto dividido entre requisições que podem alterá-lo.
+public class SingleFlight<V> {
+
+	private final ConcurrentHashMap<String, CompletableFuture<V>> running = new ConcurrentHashMap<>();
+
+	private final UnaryOperator<V> copier;
+
+	// Chamadas que aproveitaram a execução de outra
+	private final LongAdder shared = new LongAdder();
+
+	// Para valores imutáveis: todos recebem o mesmo objeto
+	public SingleFlight() {
+		this(UnaryOperator.identity());
+	}
+
+	public SingleFlight(UnaryOperator<V> copier) {
+		this.copier = copier;
+	}
+
+	public V run(String key, Supplier<V> loader) {
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> other = running.putIfAbsent(key, mine);
+		if (other != null) {
+			shared.increment();
+			try {
+				V value = other.join();
+				return value == null ? null : copier.apply(value);
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw e;
+			}
+		}
+		try {
+			V value = loader.get();
+			mine.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			// A partir daqui, um novo pedido da mesma chave vai ao cache (ou ao banco)
+			running.remove(key, mine);
+		}
+	}
+
+	public long getShared() {
+		return shared.sum();
+	}
+}
@@ -0,0 +1,12 @@
+package com.thalesoliveira.workshopmongo.services.exception;
+
+public class ParametroInvalidoException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	// Lançada quando o cliente envia um parâmetro que não conseguimos interpretar
+	// (ex: um cursor de paginação adulterado). Vira um 400 Bad Request no handler.
+	public ParametroInvalidoException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,20 @@
+package com.thalesoliveira.workshopmongo.services.exception;
+
+public class SobrecargaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	// Segundos que o cliente deve esperar antes de tentar de novo (Retry-After)
+	private final int retryAfterSeconds;
+
+	// Lançada quando uma classe de endpoints está no limite de requisições
+	// simultâneas e a fila de espera também está cheia. Vira um 503 no handler.
+	public SobrecargaException(String msg, int retryAfterSeconds) {
+		super(msg);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
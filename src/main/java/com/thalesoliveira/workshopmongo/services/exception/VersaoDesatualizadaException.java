@@ -0,0 +1,12 @@
+package com.thalesoliveira.workshopmongo.services.exception;
+
+public class VersaoDesatualizadaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	// Lançada quando o cliente pede para alterar uma versão específica (If-Match) e o
+	// registro já está em outra versão. Vira um 412 Precondition Failed no handler.
+	public VersaoDesatualizadaException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,185 @@
+package com.thalesoliveira.workshopmongo.services.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition.TextIndexDefinitionBuilder;
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.domain.CommentBucket;
+import com.thalesoliveira.workshopmongo.domain.Follow;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.PostStats;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.domain.UserStats;
+import com.thalesoliveira.workshopmongo.dto.IndexReportDTO;
+
+// Conjunto de índices gerenciado pela aplicação.
+//
+// Os índices são declarados nas próprias entidades (@Indexed, @CompoundIndex) e
+// lidos daqui com o IndexResolver do Spring Data; só os índices de texto, que
+// precisam de nome, pesos e idioma específicos, são declarados em código
+// (textIndex() e commentTextIndex()).
+// Na subida, ensureIndexes() cria o que falta; report() compara o declarado com o
+// que existe no banco e com o uso de cada índice ($indexStats).
+@Component
+public class IndexManager {
+
+	private static final Logger log = LoggerFactory.getLogger(IndexManager.class);
+
+	// Entidades cujos índices a aplicação gerencia
+	private static final List<Class<?>> MANAGED = List.of(Post.class, User.class, CommentBucket.class,
+			PostStats.class, UserStats.class, Follow.class);
+
+	public static final String OK = "ok";
+	public static final String MISSING = "missing";
+	public static final String FAILED = "failed";
+	public static final String UNUSED = "unused";
+	public static final String UNDECLARED = "undeclared";
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// Erro da última tentativa de criação, por "coleção.índice"
+	private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+	// Cria (ou confere) todos os índices declarados. createIndex não faz nada se o
+	// índice já existe igual; se existe com o mesmo nome e outra definição, ou se os
+	// dados impedem a criação (ex: emails repetidos num índice único), o erro é
+	// registrado e aparece no report() como "failed", sem derrubar a aplicação.
+	public void ensureIndexes() {
+		for (Class<?> type : MANAGED) {
+			ensureIndexes(type, mongoTemplate.getCollectionName(type));
+		}
+	}
+
+	// Os índices declarados em 'type', criados numa coleção qualquer. Usado para
+	// montar uma coleção nova já indexada antes de ela tomar o lugar da atual (ver
+	// AnalyticsService.rebuild)
+	public void ensureIndexes(Class<?> type, String collection) {
+		IndexOperations ops = mongoTemplate.indexOps(collection);
+		for (IndexDefinition definition : declared(type)) {
+			String key = collection + "." + nameOf(definition);
+			try {
+				ops.createIndex(definition);
+				failures.remove(key);
+			} catch (RuntimeException e) {
+				failures.put(key, e.getMessage());
+				log.warn("Não foi possível criar o índice {}: {}", key, e.getMessage());
+			}
+		}
+	}
+
+	// Situação de cada índice, declarado ou existente:
+	// - ok: declarado e presente
+	// - missing / failed: declarado e ausente (failed = a criação deu erro)
+	// - unused: presente e nunca usado desde que o servidor subiu
+	// - undeclared: presente no banco, mas não declarado aqui (candidato a remoção)
+	public List<IndexReportDTO> report() {
+		List<IndexReportDTO> report = new ArrayList<>();
+		for (Class<?> type : MANAGED) {
+			String collection = mongoTemplate.getCollectionName(type);
+			Map<String, IndexInfo> existing = new LinkedHashMap<>();
+			for (IndexInfo info : mongoTemplate.indexOps(type).getIndexInfo()) {
+				existing.put(info.getName(), info);
+			}
+			Map<String, Long> accesses = accesses(collection);
+
+			for (IndexDefinition definition : declared(type)) {
+				String name = nameOf(definition);
+				IndexInfo info = existing.remove(name);
+				String error = failures.get(collection + "." + name);
+				String status = info == null ? (error == null ? MISSING : FAILED) : usage(accesses.get(name));
+				report.add(new IndexReportDTO(collection, name, definition.getIndexKeys().toJson(), true,
+						info != null, accesses.get(name), status, error));
+			}
+			for (IndexInfo info : existing.values()) {
+				if (!"_id_".equals(info.getName())) {
+					List<String> fields = new ArrayList<>();
+					info.getIndexFields().forEach(f -> fields.add(f.getKey()));
+					report.add(new IndexReportDTO(collection, info.getName(), String.join(", ", fields), false, true,
+							accesses.get(info.getName()), UNDECLARED, null));
+				}
+			}
+		}
+		return report;
+	}
+
+	private List<IndexDefinition> declared(Class<?> type) {
+		List<IndexDefinition> definitions = new ArrayList<>();
+		IndexResolver.create(mongoTemplate.getConverter().getMappingContext()).resolveIndexFor(type)
+				.forEach(definitions::add);
+		if (type == Post.class) {
+			definitions.add(textIndex());
+		}
+		if (type == CommentBucket.class) {
+			definitions.add(commentTextIndex());
+		}
+		return definitions;
+	}
+
+	// Índice de texto da coleção "post" usado pelo PostService.textSearch.
+	// Os pesos dizem o quanto cada campo vale no cálculo de relevância:
+	// uma palavra no título conta 10x mais que num comentário. Só os comentários
+	// recentes, embutidos no post, entram neste índice; o histórico completo fica no
+	// commentTextIndex() (ver CommentService.findPostIds).
+	// O idioma padrão "portuguese" faz o Mongo ignorar palavras vazias (de, para,
+	// um...) e reduzir as palavras ao radical (viajar/viagem -> "viaj").
+	private static TextIndexDefinition textIndex() {
+		return new TextIndexDefinitionBuilder()
+				.named("post_text")
+				.onField("title", 10F)
+				.onField("body", 3F)
+				.onField("comments.text", 1F)
+				.withDefaultLanguage("portuguese")
+				.build();
+	}
+
+	// Índice de texto dos baldes: acha os posts por comentários que já saíram da
+	// lista embutida no post. Mesmo idioma do post_text
+	private static TextIndexDefinition commentTextIndex() {
+		return new TextIndexDefinitionBuilder()
+				.named("comment_bucket_text")
+				.onField("comments.text")
+				.withDefaultLanguage("portuguese")
+				.build();
+	}
+
+	// Quantas vezes cada índice foi usado desde que o servidor MongoDB subiu.
+	// Vazio se o usuário do banco não tiver permissão para $indexStats.
+	private Map<String, Long> accesses(String collection) {
+		Map<String, Long> accesses = new HashMap<>();
+		try {
+			for (Document stats : mongoTemplate.getCollection(collection)
+					.aggregate(List.of(new Document("$indexStats", new Document())))) {
+				Document ops = stats.get("accesses", Document.class);
+				accesses.put(stats.getString("name"), ops == null ? null : ((Number) ops.get("ops")).longValue());
+			}
+		} catch (RuntimeException e) {
+			log.debug("$indexStats indisponível para {}: {}", collection, e.getMessage());
+		}
+		return accesses;
+	}
+
+	private static String usage(Long accesses) {
+		return accesses != null && accesses == 0 ? UNUSED : OK;
+	}
+
+	private static String nameOf(IndexDefinition definition) {
+		return definition.getIndexOptions().getString("name");
+	}
+}
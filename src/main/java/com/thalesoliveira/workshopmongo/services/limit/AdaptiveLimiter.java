@@ -0,0 +1,113 @@
+package com.thalesoliveira.workshopmongo.services.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.thalesoliveira.workshopmongo.dto.LimiterStatsDTO;
+
+// Limite de requisições simultâneas de uma classe de endpoints, ajustado sozinho
+// pela latência observada (AIMD, como o controle de congestionamento do TCP):
+// - resposta dentro da meta com o limite em uso: limite + 1/limite (sobe ~1 a
+//   cada "limite" respostas boas);
+// - resposta acima da meta: limite * 0.9, no máximo uma vez por intervalo da meta
+//   (uma rajada de respostas lentas da mesma leva conta como um sinal só).
+// Acima do limite, a requisição espera numa fila curta e limitada; fila cheia, ou
+// espera maior que 'queueTimeout', e ela é recusada na hora (503).
+public class AdaptiveLimiter {
+
+	private static final double BACKOFF = 0.9;
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+	private final int maxQueue;
+	private final long queueTimeoutMillis;
+	private final long targetNanos;
+
+	private double limit;
+	private int inFlight;
+	private int queued;
+	private long lastDecrease;
+
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder slow = new LongAdder();
+
+	public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, int maxQueue,
+			long queueTimeoutMillis, long targetMillis) {
+		this.name = name;
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.maxQueue = maxQueue;
+		this.queueTimeoutMillis = queueTimeoutMillis;
+		this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// true = pode executar (e depois chamar release); false = recusada
+	public synchronized boolean acquire() {
+		if (inFlight < (int) limit) {
+			inFlight++;
+			accepted.increment();
+			return true;
+		}
+		if (queued >= maxQueue) {
+			rejected.increment();
+			return false;
+		}
+		queued++;
+		try {
+			long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+			while (inFlight >= (int) limit) {
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0) {
+					rejected.increment();
+					return false;
+				}
+				wait(left);
+			}
+			inFlight++;
+			accepted.increment();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rejected.increment();
+			return false;
+		} finally {
+			queued--;
+		}
+	}
+
+	// Fim de uma requisição aceita, com quanto ela demorou (sem contar a fila)
+	public synchronized void release(long latencyNanos) {
+		inFlight--;
+		if (latencyNanos > targetNanos) {
+			slow.increment();
+			long now = System.nanoTime();
+			if (now - lastDecrease > targetNanos) {
+				limit = Math.max(minLimit, limit * BACKOFF);
+				lastDecrease = now;
+			}
+		} else if (queued > 0 || inFlight + 1 >= (int) limit) {
+			// Só cresce quando o limite está de fato sendo usado; senão ele subiria
+			// sem nunca ter sido testado
+			limit = Math.min(maxLimit, limit + 1.0 / limit);
+		}
+		notifyAll();
+	}
+
+	// Fim de uma requisição aceita cuja duração não diz nada sobre a carga (ex: uma
+	// resposta assíncrona que ficou aberta enquanto o cliente lia): só libera a vaga
+	public synchronized void release() {
+		inFlight--;
+		notifyAll();
+	}
+
+	public synchronized LimiterStatsDTO stats() {
+		return new LimiterStatsDTO(name, (int) limit, inFlight, queued, accepted.sum(), rejected.sum(), slow.sum());
+	}
+}
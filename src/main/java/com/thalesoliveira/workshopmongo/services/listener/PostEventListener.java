@@ -0,0 +1,92 @@
+package com.thalesoliveira.workshopmongo.services.listener;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.services.AnalyticsService;
+import com.thalesoliveira.workshopmongo.services.CollectionVersionService;
+import com.thalesoliveira.workshopmongo.services.CommentService;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+import com.thalesoliveira.workshopmongo.services.search.AutocompleteIndex;
+import com.thalesoliveira.workshopmongo.services.search.PostSearchIndex;
+import com.thalesoliveira.workshopmongo.services.timeline.TimelineService;
+
+// "Escuta" os eventos que o Spring Data dispara a cada gravação/remoção de Post
+// feita pelo Repository ou pelo MongoTemplate (save, insert, delete...), para
+// manter as estruturas em memória sincronizadas com o banco.
+@Component
+public class PostEventListener extends AbstractMongoEventListener<Post> {
+
+	@Autowired
+	private PostSearchIndex searchIndex;
+
+	@Autowired
+	private AutocompleteIndex autocomplete;
+
+	@Autowired
+	private EntityCache<Post> cache;
+
+	// Toda gravação muda a versão da coleção (ETag das listagens) e a dos títulos
+	// (cache da busca por título)
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private AnalyticsService analytics;
+
+	@Autowired
+	private TimelineService timelines;
+
+	// Depois que o post foi gravado no banco (já com o ID gerado)
+	@Override
+	public void onAfterSave(AfterSaveEvent<Post> event) {
+		collectionVersions.bump(Post.class, CollectionVersionService.TITLES);
+		cache.invalidate(event.getSource().getId());
+		searchIndex.index(event.getSource());
+		autocomplete.indexPost(event.getSource());
+		// Versão 0 = acabou de ser inserido (um save de post existente já sobe a versão):
+		// só conta nos resumos uma vez
+		Long version = event.getSource().getVersion();
+		if (version != null && version == 0) {
+			analytics.postCreated(event.getSource());
+			timelines.postCreated(event.getSource());
+		}
+	}
+
+	// Depois de uma remoção. O evento sai mesmo quando o filtro não apagou nada, por
+	// isso a remoção de UM post faz a limpeza no PostService.delete, que sabe quantos
+	// documentos saíram; aqui só tiramos o ID do cache (inofensivo).
+	// Com outro filtro (deleteAll...) não sabemos quem saiu: recarregamos tudo. As
+	// recargas leem a coleção inteira e rodam no agendador, sem prender quem apagou;
+	// até lá os índices em memória só podem ter posts a mais, que as buscas descartam
+	// ao buscá-los no banco.
+	@Override
+	public void onAfterDelete(AfterDeleteEvent<Post> event) {
+		Document filter = event.getSource();
+		Object id = filter.get("_id");
+		if (id != null && !(id instanceof Document)) {
+			cache.invalidate(id.toString());
+			return;
+		}
+		collectionVersions.bump(Post.class, CollectionVersionService.TITLES);
+		timelines.invalidateAll();
+		if (filter.isEmpty()) {
+			// deleteAll: os baldes de comentários também vão embora
+			commentService.deleteAll();
+			analytics.clear();
+		} else {
+			analytics.rebuildAsync();
+		}
+		cache.invalidateAll();
+		searchIndex.rebuildAsync();
+		autocomplete.rebuildAsync();
+	}
+}
@@ -0,0 +1,62 @@
+package com.thalesoliveira.workshopmongo.services.listener;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.services.CollectionVersionService;
+import com.thalesoliveira.workshopmongo.services.FollowService;
+import com.thalesoliveira.workshopmongo.services.cache.EntityCache;
+import com.thalesoliveira.workshopmongo.services.search.AutocompleteIndex;
+
+// Mesmo papel do PostEventListener, para a coleção "user": mantém o cache de
+// usuários coerente com o que foi gravado/apagado no banco
+@Component
+public class UserEventListener extends AbstractMongoEventListener<User> {
+
+	@Autowired
+	private EntityCache<User> cache;
+
+	// Toda gravação muda a versão da coleção (ETag das listagens)
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	@Autowired
+	private FollowService followService;
+
+	@Autowired
+	private AutocompleteIndex autocomplete;
+
+	// Vale para insert e update: no insert, limpa um eventual "não encontrado"
+	// guardado para esse ID
+	@Override
+	public void onAfterSave(AfterSaveEvent<User> event) {
+		collectionVersions.bump(User.class);
+		cache.invalidate(event.getSource().getId());
+		autocomplete.indexUser(event.getSource().getId(), event.getSource().getName());
+	}
+
+	// Depois de uma remoção. O evento sai mesmo quando o filtro não apagou nada, por
+	// isso o delete de UM usuário faz a limpeza no UserService.delete, que sabe
+	// quantos documentos saíram; aqui só tiramos o ID do cache (inofensivo).
+	// Com outro filtro (deleteAll...) não sabemos quem saiu: recarregamos tudo.
+	@Override
+	public void onAfterDelete(AfterDeleteEvent<User> event) {
+		Document filter = event.getSource();
+		Object id = filter.get("_id");
+		if (id != null && !(id instanceof Document)) {
+			cache.invalidate(id.toString());
+			return;
+		}
+		collectionVersions.bump(User.class);
+		if (filter.isEmpty()) {
+			followService.deleteAll();
+		}
+		cache.invalidateAll();
+		autocomplete.rebuildAsync();
+	}
+}
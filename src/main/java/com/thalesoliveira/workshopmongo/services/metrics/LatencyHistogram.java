@@ -0,0 +1,69 @@
+package com.thalesoliveira.workshopmongo.services.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.thalesoliveira.workshopmongo.dto.LatencyStatsDTO;
+
+// Histograma de latências com faixas em potências de 2 (em microssegundos):
+// [0,1), [1,2), [2,4), [4,8)... Gasta memória fixa (uma LongAdder por faixa) e
+// pode ser alimentado por várias threads ao mesmo tempo sem lock. Os percentis
+// saem com a precisão da faixa (no máximo 2x o valor real), o que basta para
+// dizer "onde está o tempo".
+public class LatencyHistogram {
+
+	// 2^40 us = ~12 dias: nenhuma latência real passa disso
+	private static final int BUCKETS = 41;
+
+	private final String name;
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+
+	public LatencyHistogram(String name) {
+		this.name = name;
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		long micros = Math.max(0L, nanos / 1000);
+		// Faixa i = quantidade de bits do valor: 0 -> 0, 1 -> 1, 2..3 -> 2, 4..7 -> 3...
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets[bucket].increment();
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	public LatencyStatsDTO stats() {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		double max = maxNanos.get() / 1e6;
+		double mean = total == 0 ? 0.0 : totalNanos.sum() / 1e6 / total;
+		return new LatencyStatsDTO(name, total, mean, percentile(counts, total, 0.50, max),
+				percentile(counts, total, 0.95, max), percentile(counts, total, 0.99, max), max);
+	}
+
+	// Limite superior (em ms) da faixa onde cai o percentil pedido
+	private static double percentile(long[] counts, long total, double p, double max) {
+		if (total == 0) {
+			return 0.0;
+		}
+		long target = (long) Math.ceil(total * p);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min((1L << i) / 1000.0, max);
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,43 @@
+package com.thalesoliveira.workshopmongo.services.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.dto.LatencyStatsDTO;
+
+// Guarda os histogramas de latência da aplicação, criados sob demanda por nome:
+// - comandos do Mongo: "coleção comando operação" (ex: "post find PostRepository.searchTitle")
+// - fases das requisições: "método rota fase" (ex: "GET /posts/fullsearch query")
+@Component
+public class LatencyMetrics {
+
+	private final ConcurrentHashMap<String, LatencyHistogram> mongo = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, LatencyHistogram> requests = new ConcurrentHashMap<>();
+
+	public void recordMongo(String key, long nanos) {
+		mongo.computeIfAbsent(key, LatencyHistogram::new).record(nanos);
+	}
+
+	public void recordRequest(String key, long nanos) {
+		requests.computeIfAbsent(key, LatencyHistogram::new).record(nanos);
+	}
+
+	public List<LatencyStatsDTO> mongoStats() {
+		return stats(mongo);
+	}
+
+	public List<LatencyStatsDTO> requestStats() {
+		return stats(requests);
+	}
+
+	private static List<LatencyStatsDTO> stats(ConcurrentHashMap<String, LatencyHistogram> histograms) {
+		List<LatencyStatsDTO> list = new ArrayList<>();
+		histograms.values().forEach(h -> list.add(h.stats()));
+		list.sort(Comparator.comparing(LatencyStatsDTO::getName));
+		return list;
+	}
+}
@@ -0,0 +1,112 @@
+package com.thalesoliveira.workshopmongo.services.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+// Listener do driver do MongoDB: é avisado do início e do fim de cada comando
+// enviado ao banco (find, aggregate, update, getMore...) e mede quanto cada um levou.
+//
+// Cada medição vai para o histograma "coleção comando operação", onde a operação é
+// o método de repositório que disparou o comando (ex: PostRepository.searchTitle),
+// ou "template" quando a consulta foi feita direto pelo MongoTemplate.
+// Comandos de leitura lentos são repassados ao SlowQueryLog.
+public class MongoCommandTimer implements CommandListener {
+
+	// Método de repositório em execução nesta thread (ver MetricsConfig)
+	private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+
+	private static final String NO_OPERATION = "template";
+
+	// Comandos que o MongoDB sabe explicar (explain)
+	private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct");
+
+	private final LatencyMetrics metrics;
+	private final SlowQueryLog slowQueryLog;
+
+	// Dados do início de cada comando em andamento, pelo requestId do driver
+	private final ConcurrentHashMap<Integer, Started> inFlight = new ConcurrentHashMap<>();
+
+	public MongoCommandTimer(LatencyMetrics metrics, SlowQueryLog slowQueryLog) {
+		this.metrics = metrics;
+		this.slowQueryLog = slowQueryLog;
+	}
+
+	// Marca a thread atual como executando 'operation' e devolve a marca anterior,
+	// que deve ser restaurada com restoreOperation ao final
+	public static String enterOperation(String operation) {
+		String previous = OPERATION.get();
+		OPERATION.set(operation);
+		return previous;
+	}
+
+	public static void restoreOperation(String previous) {
+		if (previous == null) {
+			OPERATION.remove();
+		} else {
+			OPERATION.set(previous);
+		}
+	}
+
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+		String commandName = event.getCommandName();
+		BsonDocument command = event.getCommand();
+		String operation = OPERATION.get();
+		// O documento do comando só vale durante este método: guardamos uma cópia
+		// apenas das leituras, que são as que podem virar um explain depois
+		BsonDocument copy = EXPLAINABLE.contains(commandName) ? command.clone() : null;
+		inFlight.put(event.getRequestId(), new Started(collectionOf(commandName, command),
+				operation == null ? NO_OPERATION : operation, copy));
+	}
+
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+		finish(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	@Override
+	public void commandFailed(CommandFailedEvent event) {
+		finish(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+	}
+
+	private void finish(int requestId, String commandName, long nanos) {
+		Started started = inFlight.remove(requestId);
+		if (started == null) {
+			return;
+		}
+		metrics.recordMongo(started.collection + " " + commandName + " " + started.operation, nanos);
+		// O driver síncrono avisa na própria thread da requisição
+		RequestPhases.addMongoTime(nanos);
+		if (started.command != null) {
+			slowQueryLog.offer(started.collection, commandName, started.operation, nanos, started.command);
+		}
+	}
+
+	// Na maioria dos comandos o valor do próprio comando é a coleção ({find: "post"});
+	// no getMore a coleção vem num campo separado
+	private static String collectionOf(String commandName, BsonDocument command) {
+		BsonValue value = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+		return value != null && value.isString() ? value.asString().getValue() : "-";
+	}
+
+	private static class Started {
+		final String collection;
+		final String operation;
+		final BsonDocument command;
+
+		Started(String collection, String operation, BsonDocument command) {
+			this.collection = collection;
+			this.operation = operation;
+			this.command = command;
+		}
+	}
+}
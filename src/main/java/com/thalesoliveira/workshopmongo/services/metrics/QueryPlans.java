@@ -0,0 +1,99 @@
+package com.thalesoliveira.workshopmongo.services.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+
+// Ferramentas para pedir ao MongoDB o plano de execução (explain) de um comando
+// e resumi-lo. Usado pelo SlowQueryLog e pelos testes de plano de consulta.
+public class QueryPlans {
+
+	private QueryPlans() {
+	}
+
+	// Roda explain (modo queryPlanner: só planeja, não executa) sobre uma cópia do
+	// comando e devolve a seção queryPlanner (null se o Mongo não devolveu plano)
+	public static Document explain(MongoDatabase db, BsonDocument command) {
+		Document explain = db.runCommand(
+				new BsonDocument("explain", explainable(command)).append("verbosity", new BsonString("queryPlanner")));
+		return queryPlanner(explain);
+	}
+
+	// Como explain(), mas EXECUTA o comando (modo executionStats) e devolve a seção
+	// executionStats: quantas chaves de índice (totalKeysExamined) e documentos
+	// (totalDocsExamined) foram lidos para devolver 'nReturned'
+	public static Document executionStats(MongoDatabase db, BsonDocument command) {
+		Document explain = db.runCommand(
+				new BsonDocument("explain", explainable(command)).append("verbosity", new BsonString("executionStats")));
+		return section(explain, "executionStats");
+	}
+
+	// Resume o plano vencedor, do estágio final até a leitura:
+	// ex. "LIMIT <- FETCH <- IXSCAN(post_author_date)" ou "SORT <- COLLSCAN"
+	public static String summarize(Document queryPlanner) {
+		return queryPlanner == null ? null : summarizeStage(queryPlanner.get("winningPlan", Document.class));
+	}
+
+	// true se o plano vencedor lê a coleção inteira em algum ponto
+	public static boolean usesCollectionScan(Document queryPlanner) {
+		String summary = summarize(queryPlanner);
+		return summary != null && summary.contains("COLLSCAN");
+	}
+
+	// Tira do comando os campos que o driver acrescenta (sessão, banco, cluster time),
+	// que o explain não aceita
+	private static BsonDocument explainable(BsonDocument command) {
+		BsonDocument copy = new BsonDocument();
+		command.forEach((key, value) -> {
+			if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+				copy.append(key, value);
+			}
+		});
+		return copy;
+	}
+
+	private static Document queryPlanner(Document explain) {
+		return section(explain, "queryPlanner");
+	}
+
+	// No find a seção vem na raiz; no aggregate, dentro do primeiro estágio ($cursor)
+	@SuppressWarnings("unchecked")
+	private static Document section(Document explain, String name) {
+		Document section = explain.get(name, Document.class);
+		if (section == null && explain.get("stages") instanceof List<?> stages && !stages.isEmpty()) {
+			Document cursor = ((List<Document>) stages).get(0).get("$cursor", Document.class);
+			section = cursor == null ? null : cursor.get(name, Document.class);
+		}
+		return section;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String summarizeStage(Document stage) {
+		if (stage == null) {
+			return null;
+		}
+		if (stage.get("queryPlan") instanceof Document plan) {
+			// Planos do motor novo (SBE) vêm embrulhados em "queryPlan"
+			return summarizeStage(plan);
+		}
+		String name = stage.getString("stage");
+		if (stage.getString("indexName") != null) {
+			name += "(" + stage.getString("indexName") + ")";
+		}
+		Document input = stage.get("inputStage", Document.class);
+		if (input != null) {
+			return name + " <- " + summarizeStage(input);
+		}
+		if (stage.get("inputStages") instanceof List<?> inputs) {
+			List<String> parts = new ArrayList<>();
+			((List<Document>) inputs).forEach(s -> parts.add(summarizeStage(s)));
+			return name + " <- [" + String.join(", ", parts) + "]";
+		}
+		return name;
+	}
+}
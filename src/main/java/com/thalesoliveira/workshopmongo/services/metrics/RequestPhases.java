@@ -0,0 +1,86 @@
+package com.thalesoliveira.workshopmongo.services.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cronômetro das fases de UMA requisição, guardado na thread que a atende.
+//
+// O RequestPhaseInterceptor abre o cronômetro antes do controlador e fecha depois
+// que a resposta foi escrita; no meio, o controlador marca o fim de cada fase:
+//
+//   decode    - do início da requisição até os parâmetros estarem convertidos
+//   query     - tempo dentro do MongoDB (somado pelo MongoCommandTimer)
+//   map       - o resto do tempo no serviço: documento -> entidade, cache, DTOs
+//   serialize - do retorno do controlador até a resposta JSON ser escrita
+//
+// Fora de uma requisição (ou sem interceptor) todas as chamadas são ignoradas.
+public class RequestPhases {
+
+	public static final String DECODE = "decode";
+	public static final String QUERY = "query";
+	public static final String MAP = "map";
+	public static final String SERIALIZE = "serialize";
+
+	private static final ThreadLocal<RequestPhases> CURRENT = new ThreadLocal<>();
+
+	private final long start = System.nanoTime();
+	private long lastMark = start;
+	private long mongoNanos;
+	private long mongoAtLastMark;
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+
+	public static RequestPhases begin() {
+		RequestPhases phases = new RequestPhases();
+		CURRENT.set(phases);
+		return phases;
+	}
+
+	// Tira o cronômetro da thread e devolve (null se não havia)
+	public static RequestPhases end() {
+		RequestPhases phases = CURRENT.get();
+		CURRENT.remove();
+		return phases;
+	}
+
+	// Fecha a fase atual. O tempo que o Mongo gastou dentro dela vai para 'query';
+	// o restante fica com a fase informada ('map' quando a fase é a própria consulta).
+	public static void mark(String phase) {
+		RequestPhases phases = CURRENT.get();
+		if (phases != null) {
+			phases.finishPhase(phase);
+		}
+	}
+
+	// Chamado pelo listener de comandos do Mongo, na mesma thread da requisição
+	static void addMongoTime(long nanos) {
+		RequestPhases phases = CURRENT.get();
+		if (phases != null) {
+			phases.mongoNanos += nanos;
+		}
+	}
+
+	public void finishPhase(String phase) {
+		long now = System.nanoTime();
+		long mongo = mongoNanos - mongoAtLastMark;
+		long rest = Math.max(0L, now - lastMark - mongo);
+		if (mongo > 0) {
+			add(QUERY, mongo);
+		}
+		add(QUERY.equals(phase) ? MAP : phase, rest);
+		lastMark = now;
+		mongoAtLastMark = mongoNanos;
+	}
+
+	private void add(String phase, long nanos) {
+		phases.merge(phase, nanos, Long::sum);
+	}
+
+	public long getTotalNanos() {
+		return System.nanoTime() - start;
+	}
+
+	// Fases marcadas, em nanossegundos (vazio se o controlador não marcou nenhuma)
+	public Map<String, Long> getPhases() {
+		return phases;
+	}
+}
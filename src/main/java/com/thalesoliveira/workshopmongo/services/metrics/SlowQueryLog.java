@@ -0,0 +1,100 @@
+package com.thalesoliveira.workshopmongo.services.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.dto.SlowQueryDTO;
+
+import jakarta.annotation.PreDestroy;
+
+// Log das consultas lentas: toda leitura que passa de 'thresholdMillis' é explicada
+// pelo próprio MongoDB (explain, ver QueryPlans) e guardada junto com o plano
+// escolhido. É assim que descobrimos, por exemplo, uma busca que está lendo a
+// coleção inteira (COLLSCAN) em vez de usar um índice (IXSCAN).
+//
+// O explain é mais uma ida ao banco, então roda numa thread própria, fora da
+// requisição; se chegarem consultas lentas demais de uma vez, as excedentes são
+// descartadas. Guardamos só as 'maxEntries' mais recentes.
+@Component
+public class SlowQueryLog {
+
+	private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+	// O MongoTemplate depende do MongoClient, que depende deste log (via listener):
+	// pegamos o template só na hora de usar para não criar um ciclo
+	private final ObjectProvider<MongoTemplate> mongoTemplate;
+	private final long thresholdNanos;
+	private final int maxEntries;
+
+	private final ArrayDeque<SlowQueryDTO> entries = new ArrayDeque<>();
+
+	private final ThreadPoolExecutor explainer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(100), r -> {
+				Thread t = new Thread(r, "slow-query-explain");
+				t.setDaemon(true);
+				return t;
+			}, new ThreadPoolExecutor.DiscardPolicy());
+
+	public SlowQueryLog(ObjectProvider<MongoTemplate> mongoTemplate,
+			@Value("${app.metrics.slow-query-ms:100}") long thresholdMillis,
+			@Value("${app.metrics.slow-query-log-size:50}") int maxEntries) {
+		this.mongoTemplate = mongoTemplate;
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.maxEntries = maxEntries;
+	}
+
+	// Chamado pelo MongoCommandTimer ao fim de cada leitura
+	public void offer(String collection, String commandName, String operation, long nanos, BsonDocument command) {
+		if (nanos < thresholdNanos) {
+			return;
+		}
+		Date date = new Date();
+		explainer.execute(() -> {
+			SlowQueryDTO entry = new SlowQueryDTO(date, collection, commandName, operation, nanos / 1e6,
+					command.toJson(), null, null);
+			try {
+				Document planner = QueryPlans.explain(mongoTemplate.getObject().getDb(), command);
+				if (planner != null) {
+					entry.setPlan(QueryPlans.summarize(planner));
+					entry.setQueryPlanner(planner);
+				}
+			} catch (RuntimeException e) {
+				entry.setPlan("explain falhou: " + e.getMessage());
+			}
+			log.warn("Consulta lenta ({} ms) em {} {} [{}]: {}", String.format("%.1f", entry.getMillis()), collection,
+					commandName, operation, entry.getPlan());
+			synchronized (entries) {
+				entries.addFirst(entry);
+				if (entries.size() > maxEntries) {
+					entries.removeLast();
+				}
+			}
+		});
+	}
+
+	// Consultas lentas mais recentes primeiro
+	public List<SlowQueryDTO> recent() {
+		synchronized (entries) {
+			return new ArrayList<>(entries);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		explainer.shutdownNow();
+	}
+}
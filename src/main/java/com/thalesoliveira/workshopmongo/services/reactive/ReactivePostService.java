@@ -0,0 +1,53 @@
+package com.thalesoliveira.workshopmongo.services.reactive;
+
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.repository.reactive.ReactivePostRepository;
+import com.thalesoliveira.workshopmongo.services.PostService;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Versão reativa do PostService. Nenhum método aqui fica "parado" esperando o banco:
+// eles devolvem Mono (0 ou 1 resultado) ou Flux (0..N resultados), que só executam
+// quando alguém se inscreve, e a thread fica livre enquanto o MongoDB responde.
+@Service
+public class ReactivePostService {
+
+	@Autowired
+	private ReactivePostRepository repo;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	public Mono<Post> findById(String id) {
+		// Mono vazio (ID não existe) vira a mesma exceção da versão bloqueante (404)
+		return repo.findById(id).switchIfEmpty(Mono.error(new ObjetoNotFoundException("Objeto não encontrado")));
+	}
+
+	// Uma página da listagem, na mesma ordem e com os mesmos cursores do /posts
+	// bloqueante (ver PostService.pageQuery)
+	public Flux<Post> findPage(Date lastDate, String lastId, int limit) {
+		return mongoTemplate.find(PostService.pageQuery(lastDate, lastId, limit), Post.class);
+	}
+
+	public Flux<Post> findByTitle(String text) {
+		return repo.searchTitle(text);
+	}
+
+	public Flux<Post> fullSearch(String text, Date minDate, Date maxDate) {
+		// Mesmo ajuste de data da versão bloqueante: inclui o dia inteiro de maxDate
+		maxDate = new Date(maxDate.getTime() + 24 * 60 * 60 * 1000);
+		return repo.fullSearch(text, minDate, maxDate);
+	}
+
+	public Flux<Post> findByAuthor(String authorId) {
+		return repo.findByAuthorIdOrderByDateDesc(authorId);
+	}
+}
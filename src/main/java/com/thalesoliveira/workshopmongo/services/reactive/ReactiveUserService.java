@@ -0,0 +1,33 @@
+package com.thalesoliveira.workshopmongo.services.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.UserDTO;
+import com.thalesoliveira.workshopmongo.repository.reactive.ReactiveUserRepository;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Versão reativa do UserService (ver ReactivePostService)
+@Service
+public class ReactiveUserService {
+
+	@Autowired
+	private ReactiveUserRepository repo;
+
+	@Autowired
+	private ReactiveMongoTemplate mongoTemplate;
+
+	public Mono<User> findById(String id) {
+		return repo.findById(id).switchIfEmpty(Mono.error(new ObjetoNotFoundException("Objeto não encontrado")));
+	}
+
+	// Todos os usuários já no formato UserDTO (projeção feita pelo Mongo)
+	public Flux<UserDTO> findAll() {
+		return mongoTemplate.query(User.class).as(UserDTO.class).all();
+	}
+}
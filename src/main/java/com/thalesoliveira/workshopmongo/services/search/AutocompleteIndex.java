@@ -0,0 +1,240 @@
+package com.thalesoliveira.workshopmongo.services.search;
+
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.domain.User;
+import com.thalesoliveira.workshopmongo.dto.SuggestionDTO;
+
+// Autocomplete da caixa de busca: palavras dos títulos dos posts e nomes de usuários
+// que começam com o que foi digitado, os mais frequentes primeiro (PrefixTrie).
+//
+// Carregado do Mongo quando a aplicação termina de subir e atualizado a cada
+// gravação de post/usuário (ver os listeners e o UserService); as sugestões saem só
+// da memória. De tempos em tempos a árvore é remontada do zero, o que também
+// recoloca no top-k termos que subiram enquanto outros caíam (ver PrefixTrie).
+@Component
+public class AutocompleteIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+	public static final String WORD = "word";
+	public static final String USER = "user";
+
+	// Palavras menores que isso ("de", "a") não entram
+	private static final int MIN_WORD_LENGTH = 3;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// Quantas sugestões cada prefixo guarda (e o máximo por resposta)
+	@Value("${app.autocomplete.top-k:10}")
+	private int topK;
+
+	// Executa o rebuild pedido fora da thread de quem pediu
+	@Autowired
+	private TaskScheduler scheduler;
+
+	private volatile PrefixTrie trie = new PrefixTrie(1);
+	private volatile boolean ready;
+
+	// Gravações que chegam durante um rebuild: aplicadas na árvore atual e guardadas
+	// para serem repetidas na nova antes da troca. null = nenhum rebuild em andamento
+	private List<Consumer<PrefixTrie>> replay;
+
+	// Pedido de rebuild durante outro: ao terminar, ele lê o banco de novo
+	private boolean rebuildAgain;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		rebuild();
+	}
+
+	@Scheduled(fixedDelayString = "${app.autocomplete.rebuild-interval-ms:600000}",
+			initialDelayString = "${app.autocomplete.rebuild-interval-ms:600000}")
+	public void scheduledRebuild() {
+		if (ready) {
+			rebuild();
+		}
+	}
+
+	// Monta uma árvore nova lendo títulos e nomes por cursor e troca pela atual.
+	// A leitura do banco não bloqueia as gravações (ver 'replay')
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		synchronized (this) {
+			if (replay != null) {
+				rebuildAgain = true;
+				return;
+			}
+			replay = new ArrayList<>();
+		}
+		PrefixTrie newTrie = new PrefixTrie(topK);
+		try {
+			Query posts = new Query().cursorBatchSize(1000);
+			posts.fields().include("title");
+			try (Stream<Post> stream = mongoTemplate.stream(posts, Post.class)) {
+				stream.forEach(p -> newTrie.put(postDoc(p.getId()), titleTerms(p.getTitle())));
+			}
+			Query users = new Query().cursorBatchSize(1000);
+			users.fields().include("name");
+			try (Stream<User> stream = mongoTemplate.stream(users, User.class)) {
+				stream.forEach(u -> newTrie.put(userDoc(u.getId()), nameTerms(u.getName())));
+			}
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				replay = null;
+			}
+			throw e;
+		}
+		boolean again;
+		synchronized (this) {
+			replay.forEach(change -> change.accept(newTrie));
+			replay = null;
+			trie = newTrie;
+			ready = true;
+			again = rebuildAgain;
+			rebuildAgain = false;
+		}
+		log.info("Autocomplete carregado: {} posts e usuários em {} ms", newTrie.size(),
+				System.currentTimeMillis() - start);
+		if (again) {
+			rebuild();
+		}
+	}
+
+	// O rebuild() no agendador, sem prender quem pediu (ex: remoção em massa)
+	public void rebuildAsync() {
+		scheduler.schedule(() -> {
+			try {
+				rebuild();
+			} catch (RuntimeException e) {
+				log.error("Falha ao recarregar o autocomplete", e);
+			}
+		}, Instant.now());
+	}
+
+	// Chamado a cada post gravado
+	public void indexPost(Post post) {
+		String doc = postDoc(post.getId());
+		List<PrefixTrie.Term> terms = titleTerms(post.getTitle());
+		apply(t -> t.put(doc, terms));
+	}
+
+	public void removePost(String id) {
+		String doc = postDoc(id);
+		apply(t -> t.remove(doc));
+	}
+
+	// Chamado a cada usuário gravado ou com nome alterado
+	public void indexUser(String id, String name) {
+		String doc = userDoc(id);
+		List<PrefixTrie.Term> terms = nameTerms(name);
+		apply(t -> t.put(doc, terms));
+	}
+
+	public void removeUser(String id) {
+		String doc = userDoc(id);
+		apply(t -> t.remove(doc));
+	}
+
+	// Sugestões para o texto digitado. Antes da primeira carga, nenhuma
+	public List<SuggestionDTO> suggest(String text, int limit) {
+		List<SuggestionDTO> result = new ArrayList<>();
+		String prefix = String.join(" ", tokens(text));
+		if (!ready || prefix.isEmpty()) {
+			return result;
+		}
+		for (PrefixTrie.Suggestion s : trie.suggest(prefix, Math.min(limit, topK))) {
+			result.add(new SuggestionDTO(s.text, s.kind, s.count));
+		}
+		return result;
+	}
+
+	private synchronized void apply(Consumer<PrefixTrie> change) {
+		change.accept(trie);
+		if (replay != null) {
+			replay.add(change);
+		}
+	}
+
+	// Cada palavra do título é um termo, exibido em minúsculas (com acento) e
+	// encontrado sem acento: "São" é sugerido para "sa" e para "sã"
+	private static List<PrefixTrie.Term> titleTerms(String title) {
+		Map<String, PrefixTrie.Term> terms = new LinkedHashMap<>();
+		if (title != null) {
+			for (String word : SEPARATORS.split(title.toLowerCase(Locale.ROOT))) {
+				String key = normalize(word);
+				if (key.length() >= MIN_WORD_LENGTH) {
+					terms.putIfAbsent(key, new PrefixTrie.Term(WORD, word, key));
+				}
+			}
+		}
+		return new ArrayList<>(terms.values());
+	}
+
+	// O nome inteiro é um termo, encontrado a partir de qualquer palavra dele:
+	// "Maria Brown" aparece para "mar", "maria b" e "bro"
+	private static List<PrefixTrie.Term> nameTerms(String name) {
+		List<PrefixTrie.Term> terms = new ArrayList<>();
+		List<String> words = tokens(name);
+		if (!words.isEmpty()) {
+			String[] keys = new String[words.size()];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = String.join(" ", words.subList(i, words.size()));
+			}
+			terms.add(new PrefixTrie.Term(USER, name.trim(), keys));
+		}
+		return terms;
+	}
+
+	// Palavras normalizadas do texto, na ordem
+	private static List<String> tokens(String text) {
+		List<String> words = new ArrayList<>();
+		if (text != null) {
+			for (String word : SEPARATORS.split(normalize(text))) {
+				if (!word.isEmpty()) {
+					words.add(word);
+				}
+			}
+		}
+		return words;
+	}
+
+	// Minúsculas e sem acentos
+	private static String normalize(String text) {
+		return MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)).replaceAll("");
+	}
+
+	private static String postDoc(String id) {
+		return "post:" + id;
+	}
+
+	private static String userDoc(String id) {
+		return "user:" + id;
+	}
+}
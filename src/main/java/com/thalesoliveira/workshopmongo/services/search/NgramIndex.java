@@ -0,0 +1,229 @@
+package com.thalesoliveira.workshopmongo.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice invertido de n-gramas (pedaços de 2 e 3 caracteres) mantido em memória.
+//
+// Ideia: "viagem" vira os trigramas "via", "iag", "age", "gem" (e os bigramas "vi",
+// "ia", ...). Para cada n-grama guardamos a lista ORDENADA dos documentos que o contêm.
+// Para achar quem contém "iage", basta cruzar as listas de "iag" e "age": só os
+// documentos presentes em todas podem conter o trecho. É a mesma semântica de
+// "substring" do $regex, mas sem varrer a coleção.
+//
+// Os documentos são numerados internamente com int sequencial (docNo), e as listas
+// são arrays primitivos int[] em ordem crescente: bem mais compactos que List<String>.
+// Atualizar um documento = marcar o docNo antigo como apagado e dar um docNo novo,
+// assim as listas só crescem no final e continuam ordenadas sem reordenar nada.
+public class NgramIndex {
+
+	// Compacta quando os apagados passarem da metade dos documentos (e de um mínimo)
+	private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+	private final Map<Long, Postings> postings = new HashMap<>();
+	private final List<String> docIds = new ArrayList<>();
+	private final Map<String, Integer> docNos = new HashMap<>();
+	private final BitSet deleted = new BitSet();
+	private int deletedCount;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Mesma normalização para o texto indexado e para a busca (case insensitive)
+	public static String normalize(String text) {
+		return text == null ? "" : text.toLowerCase(Locale.ROOT);
+	}
+
+	// Indexa (ou reindexa) um documento. 'texts' são os campos que entram no índice.
+	public void put(String id, List<String> texts) {
+		Set<Long> grams = new HashSet<>();
+		for (String text : texts) {
+			collectGrams(normalize(text), grams);
+		}
+		lock.writeLock().lock();
+		try {
+			markDeleted(id);
+			int docNo = docIds.size();
+			docIds.add(id);
+			docNos.put(id, docNo);
+			for (Long gram : grams) {
+				postings.computeIfAbsent(gram, k -> new Postings()).add(docNo);
+			}
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String id) {
+		lock.writeLock().lock();
+		try {
+			markDeleted(id);
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return docNos.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Devolve os ids CANDIDATOS a conter 'query' como trecho (pode haver falso
+	// positivo, nunca falso negativo), ou null se a busca for curta demais para o
+	// índice responder (menos de 2 caracteres).
+	public List<String> candidates(String query) {
+		String q = normalize(query);
+		if (q.length() < 2) {
+			return null;
+		}
+		// Trecho de 2 letras: usa o bigrama. A partir de 3: todos os trigramas.
+		List<Long> grams = new ArrayList<>();
+		if (q.length() == 2) {
+			grams.add(key(q.charAt(0), q.charAt(1)));
+		} else {
+			for (int i = 0; i + 3 <= q.length(); i++) {
+				grams.add(key(q.charAt(i), q.charAt(i + 1), q.charAt(i + 2)));
+			}
+		}
+
+		lock.readLock().lock();
+		try {
+			// Começa pela lista mais curta: a interseção nunca fica maior que ela
+			Postings[] lists = new Postings[grams.size()];
+			for (int i = 0; i < lists.length; i++) {
+				lists[i] = postings.get(grams.get(i));
+				if (lists[i] == null) {
+					return new ArrayList<>();
+				}
+			}
+			Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+			int[] result = Arrays.copyOf(lists[0].docs, lists[0].size);
+			int resultSize = result.length;
+			for (int i = 1; i < lists.length && resultSize > 0; i++) {
+				resultSize = intersect(result, resultSize, lists[i]);
+			}
+
+			List<String> ids = new ArrayList<>(resultSize);
+			for (int i = 0; i < resultSize; i++) {
+				if (!deleted.get(result[i])) {
+					ids.add(docIds.get(result[i]));
+				}
+			}
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Interseção de duas listas ordenadas, gravando o resultado no próprio 'a'
+	private static int intersect(int[] a, int aSize, Postings b) {
+		int i = 0, j = 0, n = 0;
+		while (i < aSize && j < b.size) {
+			if (a[i] == b.docs[j]) {
+				a[n++] = a[i];
+				i++;
+				j++;
+			} else if (a[i] < b.docs[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return n;
+	}
+
+	private void markDeleted(String id) {
+		Integer old = docNos.remove(id);
+		if (old != null) {
+			deleted.set(old);
+			deletedCount++;
+		}
+	}
+
+	// Remove de vez os documentos apagados e renumera os que sobraram.
+	// A renumeração preserva a ordem, então as listas continuam ordenadas.
+	private void compactIfNeeded() {
+		if (deletedCount < MIN_DELETED_TO_COMPACT || deletedCount < docNos.size()) {
+			return;
+		}
+		int[] newNo = new int[docIds.size()];
+		List<String> newDocIds = new ArrayList<>(docNos.size());
+		for (int old = 0; old < docIds.size(); old++) {
+			if (deleted.get(old)) {
+				newNo[old] = -1;
+			} else {
+				newNo[old] = newDocIds.size();
+				newDocIds.add(docIds.get(old));
+			}
+		}
+		postings.values().removeIf(p -> p.remap(newNo) == 0);
+
+		docIds.clear();
+		docIds.addAll(newDocIds);
+		docNos.clear();
+		for (int i = 0; i < docIds.size(); i++) {
+			docNos.put(docIds.get(i), i);
+		}
+		deleted.clear();
+		deletedCount = 0;
+	}
+
+	private static void collectGrams(String text, Set<Long> grams) {
+		for (int i = 0; i + 2 <= text.length(); i++) {
+			grams.add(key(text.charAt(i), text.charAt(i + 1)));
+			if (i + 3 <= text.length()) {
+				grams.add(key(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+			}
+		}
+	}
+
+	// Cada n-grama vira um long: 16 bits por caractere + o tamanho nos bits altos,
+	// para "ab" (bigrama) nunca colidir com um trigrama
+	private static long key(char a, char b) {
+		return (2L << 48) | ((long) a << 16) | b;
+	}
+
+	private static long key(char a, char b, char c) {
+		return (3L << 48) | ((long) a << 32) | ((long) b << 16) | c;
+	}
+
+	// Lista de docNos em ordem crescente guardada num int[] que cresce sob demanda
+	private static class Postings {
+		private int[] docs = new int[4];
+		private int size;
+
+		void add(int docNo) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+			}
+			docs[size++] = docNo;
+		}
+
+		int remap(int[] newNo) {
+			int n = 0;
+			for (int i = 0; i < size; i++) {
+				int mapped = newNo[docs[i]];
+				if (mapped >= 0) {
+					docs[n++] = mapped;
+				}
+			}
+			size = n;
+			docs = Arrays.copyOf(docs, Math.max(n, 1));
+			return n;
+		}
+	}
+}
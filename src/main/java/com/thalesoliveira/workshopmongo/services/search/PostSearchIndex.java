@@ -0,0 +1,276 @@
+package com.thalesoliveira.workshopmongo.services.search;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.services.CollectionVersionService;
+
+// Índice de busca por trecho de texto dos posts, mantido em memória.
+// São dois NgramIndex: um só com o título (/posts/titlesearch) e outro com título,
+// corpo e os comentários recentes embutidos no post (/posts/fullsearch?mode=regex;
+// o histórico dos baldes fica de fora: o PostService o consulta pelo índice de
+// texto dos baldes, ver CommentService.findPostIds).
+// É carregado do Mongo quando a aplicação termina de subir e atualizado a cada
+// gravação de post (ver PostEventListener). Enquanto não estiver pronto, ou quando a
+// busca não dá para ser respondida por ele, devolve null e o PostService cai no
+// $regex antigo.
+// Cada instância tem o seu índice, e as gravações feitas em outra não passam por
+// aqui. Quando o CollectionVersionService mostra gravações de fora que o índice
+// ainda não leu, ele também devolve null (o Mongo responde) e pede um refresh():
+// só os posts com 'lastModified' recente são relidos. Posts apagados em outra
+// instância podem continuar como candidatos, mas somem quando o PostService os
+// busca no banco.
+@Component
+public class PostSearchIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(PostSearchIndex.class);
+
+	// Acima disso o $in ficaria enorme: melhor deixar o Mongo resolver sozinho
+	private static final int MAX_CANDIDATES = 10_000;
+
+	// A busca antiga tratava o texto como expressão regular. Se o usuário mandar
+	// caracteres especiais de regex, mantemos o comportamento antigo (fallback).
+	private static final Pattern REGEX_CHARS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private CollectionVersionService collectionVersions;
+
+	// Executa rebuild e refresh pedidos fora da thread de quem pediu
+	@Autowired
+	private TaskScheduler scheduler;
+
+	// Margem do refresh para diferença de relógio entre as instâncias: relê também
+	// posts modificados um pouco antes da última leitura
+	@Value("${app.search.refresh-overlap-ms:5000}")
+	private long refreshOverlapMillis;
+
+	private volatile NgramIndex titleIndex = new NgramIndex();
+	private volatile NgramIndex fullIndex = new NgramIndex();
+	private volatile boolean ready;
+
+	// Gravações que chegam durante um rebuild: aplicadas nos índices atuais e
+	// guardadas para serem repetidas nos novos antes da troca. null = nenhum rebuild
+	// em andamento
+	private List<BiConsumer<NgramIndex, NgramIndex>> replay;
+
+	// Pedido de rebuild durante outro: ao terminar, ele lê o banco de novo
+	private boolean rebuildAgain;
+
+	// Gravações de outras instâncias (CollectionVersionService.remoteWrites) já lidas
+	// pelo índice, e quando foi essa leitura
+	private volatile long remoteSeen;
+	private volatile long readAt;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		rebuild();
+	}
+
+	// Monta índices novos a partir da coleção inteira (lida por cursor, só com os
+	// campos de texto) e troca pelos atuais de uma vez. Como no AutocompleteIndex, a
+	// leitura do banco não bloqueia as gravações (ver 'replay')
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		long remote = collectionVersions.remoteWrites(Post.class);
+		synchronized (this) {
+			if (replay != null) {
+				rebuildAgain = true;
+				return;
+			}
+			replay = new ArrayList<>();
+		}
+		NgramIndex newTitle = new NgramIndex();
+		NgramIndex newFull = new NgramIndex();
+		try {
+			Query query = new Query().cursorBatchSize(1000);
+			query.fields().include("title", "body", "comments.text");
+			try (Stream<Post> posts = mongoTemplate.stream(query, Post.class)) {
+				posts.forEach(p -> {
+					newTitle.put(p.getId(), List.of(nullToEmpty(p.getTitle())));
+					newFull.put(p.getId(), fullTexts(p));
+				});
+			}
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				replay = null;
+			}
+			throw e;
+		}
+		boolean again;
+		synchronized (this) {
+			replay.forEach(change -> change.accept(newTitle, newFull));
+			replay = null;
+			titleIndex = newTitle;
+			fullIndex = newFull;
+			remoteSeen = Math.max(remoteSeen, remote);
+			readAt = Math.max(readAt, start);
+			ready = true;
+			again = rebuildAgain;
+			rebuildAgain = false;
+		}
+		log.info("Índice de busca de posts carregado: {} posts em {} ms", newFull.size(),
+				System.currentTimeMillis() - start);
+		if (again) {
+			rebuild();
+		}
+	}
+
+	// O rebuild() no agendador, sem prender quem pediu (ex: remoção em massa)
+	public void rebuildAsync() {
+		scheduler.schedule(() -> {
+			try {
+				rebuild();
+			} catch (RuntimeException e) {
+				log.error("Falha ao recarregar o índice de busca de posts", e);
+			}
+		}, Instant.now());
+	}
+
+	// Relê os posts modificados desde a última leitura do banco, para trazer as
+	// gravações feitas em outras instâncias. Roda de tempos em tempos e também logo
+	// que uma busca encontra o índice para trás (ver candidates)
+	@Scheduled(fixedDelayString = "${app.search.refresh-ms:1000}")
+	public void refresh() {
+		long remote = collectionVersions.remoteWrites(Post.class);
+		if (!ready || remote == remoteSeen || !refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			long start = System.currentTimeMillis();
+			Query query = new Query(Criteria.where("lastModified").gte(new Date(readAt - refreshOverlapMillis)))
+					.cursorBatchSize(1000);
+			query.fields().include("title", "body", "comments.text");
+			int count = 0;
+			try (Stream<Post> posts = mongoTemplate.stream(query, Post.class)) {
+				for (Iterator<Post> it = posts.iterator(); it.hasNext(); count++) {
+					index(it.next());
+				}
+			}
+			synchronized (this) {
+				remoteSeen = Math.max(remoteSeen, remote);
+				readAt = Math.max(readAt, start);
+			}
+			log.debug("Índice de busca de posts atualizado com {} posts", count);
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	// Chamado a cada post gravado
+	public void index(Post post) {
+		String id = post.getId();
+		List<String> title = List.of(nullToEmpty(post.getTitle()));
+		List<String> full = fullTexts(post);
+		apply((t, f) -> {
+			t.put(id, title);
+			f.put(id, full);
+		});
+	}
+
+	// Chamado a cada post apagado
+	public void remove(String id) {
+		apply((t, f) -> {
+			t.remove(id);
+			f.remove(id);
+		});
+	}
+
+	// Ids dos posts cujo TÍTULO pode conter 'text', ou null = "use o Mongo"
+	public List<String> searchTitle(String text) {
+		return candidates(titleIndex, text);
+	}
+
+	// Ids dos posts cujo título, corpo ou comentários podem conter 'text', ou null
+	public List<String> searchFull(String text) {
+		return candidates(fullIndex, text);
+	}
+
+	// Confirma o resultado do índice, que pode ter falso positivo: ele garante que
+	// todos os pedaços do texto existem no documento, mas não que estejam em sequência
+	public static boolean titleMatches(Post post, String text) {
+		return NgramIndex.normalize(post.getTitle()).contains(NgramIndex.normalize(text));
+	}
+
+	public static boolean fullMatches(Post post, String text) {
+		String needle = NgramIndex.normalize(text);
+		for (String field : fullTexts(post)) {
+			if (NgramIndex.normalize(field).contains(needle)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Aplica a mudança nos índices atuais (título, completo) e, durante um rebuild,
+	// guarda-a para os novos
+	private synchronized void apply(BiConsumer<NgramIndex, NgramIndex> change) {
+		change.accept(titleIndex, fullIndex);
+		if (replay != null) {
+			replay.add(change);
+		}
+	}
+
+	private List<String> candidates(NgramIndex index, String text) {
+		if (!ready || text == null || REGEX_CHARS.matcher(text).find()) {
+			return null;
+		}
+		if (collectionVersions.remoteWrites(Post.class) != remoteSeen) {
+			// Outra instância gravou e o índice ainda não leu: o Mongo responde
+			if (refreshRequested.compareAndSet(false, true)) {
+				scheduler.schedule(() -> {
+					refreshRequested.set(false);
+					refresh();
+				}, Instant.now());
+			}
+			return null;
+		}
+		List<String> ids = index.candidates(text);
+		if (ids != null && ids.size() > MAX_CANDIDATES) {
+			return null;
+		}
+		return ids;
+	}
+
+	private static List<String> fullTexts(Post post) {
+		List<String> texts = new ArrayList<>();
+		texts.add(nullToEmpty(post.getTitle()));
+		texts.add(nullToEmpty(post.getBody()));
+		if (post.getComments() != null) {
+			for (CommentDTO c : post.getComments()) {
+				texts.add(nullToEmpty(c.getText()));
+			}
+		}
+		return texts;
+	}
+
+	private static String nullToEmpty(String text) {
+		return text == null ? "" : text;
+	}
+}
@@ -0,0 +1,271 @@
+package com.thalesoliveira.workshopmongo.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Árvore de prefixos (trie) para o autocomplete, mantida em memória.
+//
+// Cada "termo" (uma palavra dos títulos, um nome de usuário) é inserido pelas suas
+// chaves já normalizadas; cada nó do caminho guarda os 'k' termos mais frequentes
+// abaixo dele. Sugerir = descer pelo prefixo digitado e devolver a lista pronta do
+// nó: o custo depende só do tamanho do prefixo, não da quantidade de termos.
+//
+// Como no NgramIndex, nada de um objeto por nó: os nós são posições em arrays
+// (filhos em char[]/int[] ordenados, top-k em int[]) e os termos são numerados.
+// A frequência de um termo é a quantidade de documentos (posts, usuários) que o
+// contêm, mantida por put()/remove() de cada documento.
+// Quando um termo perde frequência, ele é reordenado nas listas em que está, mas
+// um termo de fora que passou a merecer o lugar só entra no próximo rebuild (ver
+// AutocompleteIndex); subidas de frequência entram na hora.
+public class PrefixTrie {
+
+	private final int k;
+
+	// Nós (0 = raiz): letras dos filhos em ordem, número de cada filho, top-k
+	private char[][] labels = new char[64][];
+	private int[][] children = new int[64][];
+	private int[][] top = new int[64][];
+	private int nodeCount = 1;
+
+	// Termos: texto exibido, tipo, chaves e frequência
+	private final List<String> texts = new ArrayList<>();
+	private final List<String> kinds = new ArrayList<>();
+	private final List<String[]> keys = new ArrayList<>();
+	private int[] counts = new int[64];
+	private final Map<String, Integer> termIds = new HashMap<>();
+
+	// Termos de cada documento, para descontar quando ele muda ou sai
+	private final Map<String, int[]> docs = new HashMap<>();
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	public PrefixTrie(int k) {
+		this.k = k;
+		labels[0] = new char[0];
+		children[0] = new int[0];
+		top[0] = new int[0];
+	}
+
+	// Um termo de um documento. 'keys' são as formas normalizadas pelas quais ele
+	// pode ser encontrado; a primeira também o identifica (junto com o tipo)
+	public static class Term {
+		final String kind;
+		final String text;
+		final String[] keys;
+
+		public Term(String kind, String text, String... keys) {
+			this.kind = kind;
+			this.text = text;
+			this.keys = keys;
+		}
+	}
+
+	// Uma sugestão: texto, tipo e frequência
+	public static class Suggestion {
+		public final String text;
+		public final String kind;
+		public final int count;
+
+		Suggestion(String text, String kind, int count) {
+			this.text = text;
+			this.kind = kind;
+			this.count = count;
+		}
+	}
+
+	// Indexa (ou reindexa) um documento: só os termos que entraram ou saíram mudam
+	public void put(String docId, List<Term> terms) {
+		lock.writeLock().lock();
+		try {
+			int[] ids = new int[terms.size()];
+			int n = 0;
+			for (Term term : terms) {
+				int id = termId(term);
+				if (indexOf(ids, n, id) < 0) {
+					ids[n++] = id;
+				}
+			}
+			ids = Arrays.copyOf(ids, n);
+			int[] old = docs.put(docId, ids);
+			if (old != null) {
+				for (int id : old) {
+					if (indexOf(ids, ids.length, id) < 0) {
+						changeCount(id, -1);
+					}
+				}
+			}
+			for (int id : ids) {
+				if (old == null || indexOf(old, old.length, id) < 0) {
+					changeCount(id, 1);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String docId) {
+		lock.writeLock().lock();
+		try {
+			int[] old = docs.remove(docId);
+			if (old != null) {
+				for (int id : old) {
+					changeCount(id, -1);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Até 'limit' (no máximo k) termos mais frequentes que começam com 'prefix'
+	// (já normalizado)
+	public List<Suggestion> suggest(String prefix, int limit) {
+		List<Suggestion> result = new ArrayList<>();
+		if (prefix.isEmpty()) {
+			return result;
+		}
+		lock.readLock().lock();
+		try {
+			int node = 0;
+			for (int i = 0; i < prefix.length() && node >= 0; i++) {
+				node = child(node, prefix.charAt(i));
+			}
+			if (node < 0) {
+				return result;
+			}
+			for (int i = 0; i < top[node].length && result.size() < limit; i++) {
+				int id = top[node][i];
+				result.add(new Suggestion(texts.get(id), kinds.get(id), counts[id]));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return docs.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int termId(Term term) {
+		String identity = term.kind + ":" + term.keys[0];
+		Integer id = termIds.get(identity);
+		if (id == null) {
+			id = texts.size();
+			termIds.put(identity, id);
+			texts.add(term.text);
+			kinds.add(term.kind);
+			keys.add(term.keys);
+			if (id == counts.length) {
+				counts = Arrays.copyOf(counts, id * 2);
+			}
+		}
+		return id;
+	}
+
+	// Soma 'delta' na frequência do termo e corrige o top-k de cada nó dos caminhos
+	// das chaves dele (os nós só são criados quando a frequência sobe)
+	private void changeCount(int id, int delta) {
+		counts[id] += delta;
+		for (String key : keys.get(id)) {
+			int node = 0;
+			for (int i = 0; i < key.length() && node >= 0; i++) {
+				int next = child(node, key.charAt(i));
+				node = next < 0 && delta > 0 ? addChild(node, key.charAt(i)) : next;
+				if (node >= 0) {
+					updateTop(node, id);
+				}
+			}
+		}
+	}
+
+	private void updateTop(int node, int id) {
+		int[] list = top[node];
+		int pos = indexOf(list, list.length, id);
+		if (counts[id] <= 0) {
+			if (pos >= 0) {
+				int[] smaller = new int[list.length - 1];
+				System.arraycopy(list, 0, smaller, 0, pos);
+				System.arraycopy(list, pos + 1, smaller, pos, list.length - pos - 1);
+				top[node] = smaller;
+			}
+			return;
+		}
+		if (pos < 0) {
+			if (list.length < k) {
+				list = Arrays.copyOf(list, list.length + 1);
+				top[node] = list;
+			} else if (counts[id] <= counts[list[list.length - 1]]) {
+				return;
+			}
+			pos = list.length - 1;
+			list[pos] = id;
+		}
+		// Leva o termo até a posição certa (maior frequência primeiro)
+		while (pos > 0 && counts[list[pos - 1]] < counts[list[pos]]) {
+			swap(list, pos, pos - 1);
+			pos--;
+		}
+		while (pos < list.length - 1 && counts[list[pos + 1]] > counts[list[pos]]) {
+			swap(list, pos, pos + 1);
+			pos++;
+		}
+	}
+
+	// Filho de 'node' pela letra 'c' (busca binária nas letras ordenadas), ou -1
+	private int child(int node, char c) {
+		int i = Arrays.binarySearch(labels[node], c);
+		return i < 0 ? -1 : children[node][i];
+	}
+
+	private int addChild(int node, char c) {
+		if (nodeCount == labels.length) {
+			int capacity = nodeCount * 2;
+			labels = Arrays.copyOf(labels, capacity);
+			children = Arrays.copyOf(children, capacity);
+			top = Arrays.copyOf(top, capacity);
+		}
+		int created = nodeCount++;
+		labels[created] = new char[0];
+		children[created] = new int[0];
+		top[created] = new int[0];
+
+		int at = -Arrays.binarySearch(labels[node], c) - 1;
+		char[] newLabels = new char[labels[node].length + 1];
+		int[] newChildren = new int[newLabels.length];
+		System.arraycopy(labels[node], 0, newLabels, 0, at);
+		System.arraycopy(children[node], 0, newChildren, 0, at);
+		newLabels[at] = c;
+		newChildren[at] = created;
+		System.arraycopy(labels[node], at, newLabels, at + 1, labels[node].length - at);
+		System.arraycopy(children[node], at, newChildren, at + 1, children[node].length - at);
+		labels[node] = newLabels;
+		children[node] = newChildren;
+		return created;
+	}
+
+	private static int indexOf(int[] array, int size, int value) {
+		for (int i = 0; i < size; i++) {
+			if (array[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static void swap(int[] array, int i, int j) {
+		int tmp = array[i];
+		array[i] = array[j];
+		array[j] = tmp;
+	}
+}
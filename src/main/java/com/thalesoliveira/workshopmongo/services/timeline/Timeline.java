@@ -0,0 +1,212 @@
+package com.thalesoliveira.workshopmongo.services.timeline;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+
+// Os posts mais recentes da timeline de UM usuário, num buffer circular de tamanho
+// fixo mantido em ordem (data, _id): 'start' é a posição do mais antigo e os
+// seguintes vêm em ordem crescente, dando a volta no fim do array. Quando enche, o
+// post novo ocupa o lugar do mais antigo, que é só avançar 'start'.
+// Os dois casos comuns custam O(1): a distribuição de um post novo (entra depois do
+// mais recente) e a carga, que traz os mais novos primeiro (entra antes do mais
+// antigo). Um post fora de ordem (carga e distribuição ao mesmo tempo) é posto no
+// lugar certo deslocando os mais novos que ele; a leitura acha o cursor por busca
+// binária e percorre do mais recente para trás, sem ordenar.
+//
+// Para caber muitos usuários na memória, nada de objetos por post: cada posição é
+// (data em millis, _id do post) guardada em arrays primitivos, e o ObjectId (12
+// bytes) vira um long + um int. São 20 bytes por post.
+// Não é thread-safe sozinho: o TimelineService sincroniza no próprio objeto.
+class Timeline {
+
+	private final long[] dates;
+	private final long[] idHigh;
+	private final int[] idLow;
+
+	// Posição física do mais antigo e quantos há a partir dela
+	private int start;
+	private int size;
+
+	// Carregado do banco (ver TimelineService.load) e quando
+	private boolean loaded;
+	private long loadedAt;
+
+	// Seguidos com muitos seguidores: os posts deles não entram no buffer, são
+	// buscados no banco na hora da leitura
+	private List<String> celebrities = Collections.emptyList();
+
+	Timeline(int capacity) {
+		dates = new long[capacity];
+		idHigh = new long[capacity];
+		idLow = new int[capacity];
+	}
+
+	// Acrescenta um post (ignora se ele já está no buffer: a carga e a distribuição
+	// de um post novo podem acontecer ao mesmo tempo). Cheio, o post substitui o mais
+	// antigo, ou é ignorado se ele mesmo for mais antigo que todos
+	void add(Date date, ObjectId id) {
+		ByteBuffer bytes = ByteBuffer.wrap(id.toByteArray());
+		long time = date == null ? 0 : date.getTime();
+		long high = bytes.getLong();
+		int low = bytes.getInt();
+		int capacity = dates.length;
+		if (capacity == 0) {
+			return;
+		}
+		if (size == 0) {
+			start = 0;
+			set(0, time, high, low);
+			size = 1;
+			return;
+		}
+
+		// Mais novo que todos (distribuição): entra no fim, no lugar do mais antigo se cheio
+		int byNewest = compare(size - 1, time, high, low);
+		if (byNewest < 0) {
+			if (size == capacity) {
+				start = (start + 1) % capacity;
+				size--;
+			}
+			set(size++, time, high, low);
+			return;
+		}
+		// Mais antigo que todos (carga): entra no começo, se houver espaço
+		int byOldest = compare(0, time, high, low);
+		if (byOldest > 0) {
+			if (size < capacity) {
+				start = (start + capacity - 1) % capacity;
+				size++;
+				set(0, time, high, low);
+			}
+			return;
+		}
+		if (byNewest == 0 || byOldest == 0) {
+			return;
+		}
+
+		// Fora de ordem: no meio dos que já estão, depois dos 'at' mais antigos
+		int at = olderThan(time, high, low);
+		if (compare(at, time, high, low) == 0) {
+			return;
+		}
+		if (size == capacity) {
+			start = (start + 1) % capacity;
+			size--;
+			at--;
+		}
+		for (int i = size; i > at; i--) {
+			int from = slot(i - 1);
+			int to = slot(i);
+			dates[to] = dates[from];
+			idHigh[to] = idHigh[from];
+			idLow[to] = idLow[from];
+		}
+		set(at, time, high, low);
+		size++;
+	}
+
+	// Posição física da i-ésima mais antiga
+	private int slot(int i) {
+		return (start + i) % dates.length;
+	}
+
+	private void set(int i, long time, long high, int low) {
+		int slot = slot(i);
+		dates[slot] = time;
+		idHigh[slot] = high;
+		idLow[slot] = low;
+	}
+
+	// Quantos posts são mais antigos que (data, _id) (busca binária)
+	private int olderThan(long time, long high, int low) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compare(mid, time, high, low) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// Compara a i-ésima mais antiga com (data, _id): negativo = ela é mais antiga.
+	// Os bytes do ObjectId comparados sem sinal, como no ObjectId.compareTo
+	private int compare(int i, long time, long high, int low) {
+		int slot = slot(i);
+		int byDate = Long.compare(dates[slot], time);
+		if (byDate != 0) {
+			return byDate;
+		}
+		int byHigh = Long.compareUnsigned(idHigh[slot], high);
+		return byHigh != 0 ? byHigh : Integer.compareUnsigned(idLow[slot], low);
+	}
+
+	// Até 'limit' posts depois do cursor (null = do início), mais recentes primeiro,
+	// na mesma ordem das listagens de posts: data desc, _id desc
+	List<Entry> page(Date lastDate, ObjectId lastId, int limit) {
+		int from = size;
+		if (lastId != null) {
+			ByteBuffer bytes = ByteBuffer.wrap(lastId.toByteArray());
+			from = olderThan(lastDate.getTime(), bytes.getLong(), bytes.getInt());
+		}
+		List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(limit, from)));
+		for (int i = from - 1; i >= 0 && entries.size() < limit; i--) {
+			int slot = slot(i);
+			entries.add(new Entry(new Date(dates[slot]),
+					new ObjectId(ByteBuffer.allocate(12).putLong(idHigh[slot]).putInt(idLow[slot]).array())));
+		}
+		return entries;
+	}
+
+	// Enquanto não enche, o buffer tem TODOS os posts dos seguidos (menos os famosos)
+	// desde a carga; cheio, os mais antigos podem ter saído para dar lugar aos novos
+	boolean isFull() {
+		return size == dates.length;
+	}
+
+	boolean isLoaded(long ttlMillis) {
+		return loaded && System.currentTimeMillis() - loadedAt < ttlMillis;
+	}
+
+	void markLoaded(List<String> celebrities) {
+		this.celebrities = celebrities;
+		loaded = true;
+		loadedAt = System.currentTimeMillis();
+	}
+
+	// Esvazia para uma nova carga
+	void clear() {
+		start = 0;
+		size = 0;
+		loaded = false;
+	}
+
+	List<String> getCelebrities() {
+		return celebrities;
+	}
+
+	// Um post da timeline, ordenado do mais recente para o mais antigo
+	static class Entry implements Comparable<Entry> {
+		final Date date;
+		final ObjectId id;
+
+		Entry(Date date, ObjectId id) {
+			this.date = date;
+			this.id = id;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int byDate = other.date.compareTo(date);
+			return byDate != 0 ? byDate : other.id.compareTo(id);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.thalesoliveira.workshopmongo.services.timeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.thalesoliveira.workshopmongo.domain.Follow;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.dto.PostSummaryDTO;
+import com.thalesoliveira.workshopmongo.services.AnalyticsService;
+import com.thalesoliveira.workshopmongo.services.PostService;
+import com.thalesoliveira.workshopmongo.services.exception.ParametroInvalidoException;
+
+// Timeline "home" de cada usuário: os posts recentes de quem ele segue.
+//
+// Em vez de consultar a coleção de posts a cada leitura, cada usuário que leu a
+// timeline recentemente tem um buffer em memória (Timeline) com os ids dos últimos
+// posts. Quando um post é criado, ele é distribuído para os buffers dos seguidores
+// do autor que estão carregados (fan-out na escrita).
+// - Autores com muitos seguidores (>= 'celebrity-followers') não são distribuídos:
+//   um post deles mexeria em milhares de buffers. Os posts deles são buscados no
+//   banco na hora da leitura e misturados aos do buffer (fan-out na leitura).
+// - Os buffers não são gravados: depois de um restart (ou de sair do LRU, ou de
+//   expirar), são recarregados do banco na primeira leitura.
+@Service
+public class TimelineService {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	@Autowired
+	private PostService postService;
+
+	// Quantidade de seguidores de cada usuário (user_stats)
+	@Autowired
+	private AnalyticsService analytics;
+
+	// Posts guardados por usuário
+	@Value("${app.timeline.size:200}")
+	private int size;
+
+	// Quantos usuários têm buffer em memória ao mesmo tempo (os menos usados saem)
+	@Value("${app.timeline.max-users:10000}")
+	private int maxUsers;
+
+	// Validade de um buffer: depois disso ele é recarregado do banco
+	@Value("${app.timeline.ttl-ms:600000}")
+	private long ttl;
+
+	// A partir de quantos seguidores um autor deixa de ser distribuído na escrita
+	@Value("${app.timeline.celebrity-followers:10000}")
+	private long celebrityFollowers;
+
+	// Máximo de seguidos considerados numa timeline
+	@Value("${app.timeline.max-following:5000}")
+	private int maxFollowing;
+
+	// accessOrder = true: o começo do mapa é o buffer lido há mais tempo (LRU)
+	private final LinkedHashMap<String, Timeline> timelines = new LinkedHashMap<>(16, 0.75f, true);
+
+	// Uma página da timeline do usuário, mais recentes primeiro (data desc, _id desc)
+	public List<PostSummaryDTO> feed(String userId, Date lastDate, String lastId, int limit) {
+		ObjectId after = null;
+		if (lastId != null) {
+			if (!ObjectId.isValid(lastId) || lastDate == null) {
+				throw new ParametroInvalidoException("Cursor inválido");
+			}
+			after = new ObjectId(lastId);
+		}
+
+		Timeline timeline = timelineFor(userId);
+		List<Timeline.Entry> entries;
+		List<String> celebrities;
+		boolean full;
+		// Quem chega durante a carga espera por ela, inclusive a distribuição de um
+		// post novo (que então entra depois da carga, sem se perder)
+		synchronized (timeline) {
+			if (!timeline.isLoaded(ttl)) {
+				load(userId, timeline);
+			}
+			entries = timeline.page(lastDate, after, limit);
+			celebrities = timeline.getCelebrities();
+			full = timeline.isFull();
+		}
+
+		if (entries.size() < limit && full) {
+			// A página passa do post mais antigo do buffer: ela inteira vem do banco
+			entries = keys(following(userId), lastDate, lastId, limit);
+		} else if (!celebrities.isEmpty()) {
+			List<Timeline.Entry> merged = new ArrayList<>(entries);
+			merged.addAll(keys(celebrities, lastDate, lastId, limit));
+			Collections.sort(merged);
+			entries = merged.size() > limit ? merged.subList(0, limit) : merged;
+		}
+
+		List<String> ids = new ArrayList<>(entries.size());
+		for (Timeline.Entry entry : entries) {
+			ids.add(entry.id.toHexString());
+		}
+		return postService.findSummaries(ids);
+	}
+
+	// Post novo: entra nos buffers carregados dos seguidores do autor
+	public void postCreated(Post post) {
+		if (post.getAuthorDTO() == null || post.getId() == null || !ObjectId.isValid(post.getId())) {
+			return;
+		}
+		String authorId = post.getAuthorDTO().getId();
+		if (analytics.followers(authorId) >= celebrityFollowers) {
+			return;
+		}
+		ObjectId id = new ObjectId(post.getId());
+		Query followers = new Query(Criteria.where("followeeId").is(authorId)).cursorBatchSize(1000);
+		followers.fields().include("followerId");
+		try (Stream<Follow> follows = mongoTemplate.stream(followers, Follow.class)) {
+			follows.forEach(follow -> {
+				Timeline timeline;
+				synchronized (timelines) {
+					timeline = timelines.get(follow.getFollowerId());
+				}
+				// Sem buffer: nada a fazer, a carga vai encontrar o post no banco
+				if (timeline != null) {
+					synchronized (timeline) {
+						timeline.add(post.getDate(), id);
+					}
+				}
+			});
+		}
+	}
+
+	// O usuário passou a seguir (ou deixou de seguir) alguém. 'before'/'after' são
+	// os seguidores do seguido antes e depois da mudança
+	public void followingChanged(String followerId, long before, long after) {
+		if ((before >= celebrityFollowers) != (after >= celebrityFollowers)) {
+			// O seguido virou (ou deixou de ser) famoso: os buffers de todos os
+			// seguidores dele estão com os posts dele do jeito errado. É raro: recomeça tudo
+			invalidateAll();
+		} else {
+			invalidate(followerId);
+		}
+	}
+
+	public void invalidate(String userId) {
+		synchronized (timelines) {
+			timelines.remove(userId);
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (timelines) {
+			timelines.clear();
+		}
+	}
+
+	// Busca o buffer do usuário ou cria um vazio (ainda não carregado)
+	private Timeline timelineFor(String userId) {
+		synchronized (timelines) {
+			Timeline timeline = timelines.get(userId);
+			if (timeline == null) {
+				timeline = new Timeline(size);
+				timelines.put(userId, timeline);
+				Iterator<Timeline> it = timelines.values().iterator();
+				while (timelines.size() > maxUsers && it.hasNext()) {
+					it.next();
+					it.remove();
+				}
+			}
+			return timeline;
+		}
+	}
+
+	// Preenche o buffer com os últimos posts dos seguidos, menos os famosos
+	private void load(String userId, Timeline timeline) {
+		timeline.clear();
+		List<String> following = following(userId);
+		List<String> celebrities = following.isEmpty() ? Collections.emptyList()
+				: analytics.withFollowersAtLeast(following, celebrityFollowers);
+		List<String> regular = new ArrayList<>(following);
+		regular.removeAll(celebrities);
+		if (!regular.isEmpty()) {
+			for (Timeline.Entry entry : keys(regular, null, null, size)) {
+				timeline.add(entry.date, entry.id);
+			}
+		}
+		timeline.markLoaded(celebrities);
+	}
+
+	// Quem o usuário segue (índice follow_follower)
+	private List<String> following(String userId) {
+		Query query = new Query(Criteria.where("followerId").is(userId)).limit(maxFollowing);
+		query.fields().include("followeeId");
+		List<String> result = new ArrayList<>();
+		for (Follow follow : mongoTemplate.find(query, Follow.class)) {
+			result.add(follow.getFolloweeId());
+		}
+		return result;
+	}
+
+	// Data e id dos posts desses autores, depois do cursor
+	private List<Timeline.Entry> keys(List<String> authorIds, Date lastDate, String lastId, int limit) {
+		List<Timeline.Entry> entries = new ArrayList<>();
+		if (authorIds.isEmpty()) {
+			return entries;
+		}
+		for (Post post : postService.findKeysByAuthors(authorIds, lastDate, lastId, limit)) {
+			entries.add(new Timeline.Entry(post.getDate() == null ? new Date(0) : post.getDate(),
+					new ObjectId(post.getId())));
+		}
+		return entries;
+	}
+}
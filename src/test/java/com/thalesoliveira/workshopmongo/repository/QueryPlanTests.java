@@ -0,0 +1,203 @@
+package com.thalesoliveira.workshopmongo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.thalesoliveira.workshopmongo.domain.Post;
+import com.thalesoliveira.workshopmongo.services.metrics.QueryPlans;
+
+// Roda explain em cada consulta do PostRepository e do UserRepository e falha se o
+// plano escolhido pelo MongoDB ler a coleção inteira (COLLSCAN).
+// As consultas são capturadas no driver, exatamente como o repositório as envia.
+//
+// Só "não é COLLSCAN" não basta: uma coleção vazia, ou um IXSCAN que percorre o
+// índice inteiro, também passaria. Por isso cada teste grava seus próprios posts
+// (em 1990, longe de qualquer outro dado) e confere no explain executado
+// (executionStats) quantas chaves e documentos foram lidos para o que voltou.
+@SpringBootTest
+@Import(QueryPlanTests.CommandCapture.class)
+class QueryPlanTests {
+
+	// Comandos enviados ao banco pela thread do teste (o driver síncrono avisa o
+	// listener na própria thread que fez a chamada)
+	private static final ThreadLocal<List<BsonDocument>> SENT = ThreadLocal.withInitial(ArrayList::new);
+
+	private static final Set<String> READS = Set.of("find", "aggregate", "count", "distinct");
+
+	// Métodos de consulta declarados nos repositórios e cobertos pelos testes abaixo.
+	// Os herdados do MongoRepository que leem tudo (findAll, count) ficam de fora.
+	private static final Set<String> COVERED = Set.of("searchTitle", "findByTitleContainingIgnoreCase", "fullSearch");
+
+	@Autowired
+	private PostRepository postRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	// Um post por dia a partir de 01/01/1990; MATCHING deles têm a palavra MARKER
+	private static final int POSTS = 100;
+	private static final Set<Integer> MATCHING = Set.of(3, 11, 13, 40);
+	private static final String MARKER = "zqxmarcador";
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+	private static final long BASE = 631152000000L;
+
+	private final List<String> inserted = new ArrayList<>();
+
+	@BeforeEach
+	void insertPosts() {
+		List<Post> posts = new ArrayList<>();
+		for (int i = 0; i < POSTS; i++) {
+			String title = MATCHING.contains(i) ? "Partiu " + MARKER + " " + i : "Bom dia " + i;
+			posts.add(new Post(null, new Date(BASE + i * DAY), title, "Corpo " + i, null));
+		}
+		mongoTemplate.insertAll(posts).forEach(p -> inserted.add(p.getId()));
+	}
+
+	@AfterEach
+	void removePosts() {
+		mongoTemplate.remove(new Query(Criteria.where("id").in(inserted)), Post.class);
+		inserted.clear();
+	}
+
+	@TestConfiguration
+	static class CommandCapture {
+		@Bean
+		MongoClientSettingsBuilderCustomizer commandCapture() {
+			return settings -> settings.addCommandListener(new CommandListener() {
+				@Override
+				public void commandStarted(CommandStartedEvent event) {
+					if (READS.contains(event.getCommandName())) {
+						SENT.get().add(event.getCommand().clone());
+					}
+				}
+			});
+		}
+	}
+
+	@Test
+	void everyRepositoryQueryIsCovered() {
+		List<Method> methods = new ArrayList<>(List.of(PostRepository.class.getDeclaredMethods()));
+		methods.addAll(List.of(UserRepository.class.getDeclaredMethods()));
+		for (Method method : methods) {
+			assertTrue(COVERED.contains(method.getName()),
+					"Consulta sem teste de plano: " + method.getDeclaringClass().getSimpleName() + "." + method.getName());
+		}
+	}
+
+	@Test
+	void searchTitleUsesIndex() {
+		assertNoCollectionScan(() -> postRepository.searchTitle(MARKER));
+		// $regex sem âncora percorre as chaves do post_title, mas só busca os
+		// documentos cujo título bate
+		Document stats = executionStats(() -> postRepository.searchTitle(MARKER));
+		assertEquals(MATCHING.size(), nReturned(stats), stats.toJson());
+		assertEquals(nReturned(stats), docsExamined(stats), stats.toJson());
+	}
+
+	@Test
+	void findByTitleContainingUsesIndex() {
+		assertNoCollectionScan(() -> postRepository.findByTitleContainingIgnoreCase(MARKER));
+		Document stats = executionStats(() -> postRepository.findByTitleContainingIgnoreCase(MARKER));
+		assertEquals(MATCHING.size(), nReturned(stats), stats.toJson());
+		assertEquals(nReturned(stats), docsExamined(stats), stats.toJson());
+	}
+
+	@Test
+	void fullSearchUsesIndex() {
+		assertNoCollectionScan(() -> postRepository.fullSearch("viagem", new Date(0L), new Date()));
+		// Período seletivo: dias 10 a 19 (10 posts, 2 com o marcador). O post_date
+		// deve ler só as chaves do período, e não os 100 posts de teste (nem o resto)
+		int inRange = 10;
+		Date min = new Date(BASE + 10 * DAY);
+		Date max = new Date(BASE + 19 * DAY);
+		Document stats = executionStats(() -> postRepository.fullSearch(MARKER, min, max));
+		// Posts 11 e 13
+		assertEquals(2, nReturned(stats), stats.toJson());
+		assertTrue(keysExamined(stats) <= inRange + 1, stats.toJson());
+		assertTrue(docsExamined(stats) <= inRange, stats.toJson());
+	}
+
+	@Test
+	void postFindByIdUsesIndex() {
+		assertNoCollectionScan(() -> postRepository.findById(inserted.get(0)));
+		Document stats = executionStats(() -> postRepository.findById(inserted.get(0)));
+		assertEquals(1, nReturned(stats), stats.toJson());
+		assertEquals(1, keysExamined(stats), stats.toJson());
+	}
+
+	@Test
+	void userFindByIdUsesIndex() {
+		assertNoCollectionScan(() -> userRepository.findById(new ObjectId().toHexString()));
+		Document stats = executionStats(() -> userRepository.findById(new ObjectId().toHexString()));
+		assertTrue(keysExamined(stats) <= 1, stats.toJson());
+		assertEquals(0, docsExamined(stats), stats.toJson());
+	}
+
+	// Executa a consulta (uma só) com explain em modo executionStats
+	private Document executionStats(Runnable query) {
+		List<BsonDocument> sent = capture(query);
+		assertEquals(1, sent.size(), "Esperava uma consulta só: " + sent);
+		Document stats = QueryPlans.executionStats(mongoTemplate.getDb(), sent.get(0));
+		assertNotNull(stats, "explain sem executionStats para " + sent.get(0).toJson());
+		return stats;
+	}
+
+	private static long nReturned(Document stats) {
+		return ((Number) stats.get("nReturned")).longValue();
+	}
+
+	private static long keysExamined(Document stats) {
+		return ((Number) stats.get("totalKeysExamined")).longValue();
+	}
+
+	private static long docsExamined(Document stats) {
+		return ((Number) stats.get("totalDocsExamined")).longValue();
+	}
+
+	private List<BsonDocument> capture(Runnable query) {
+		SENT.get().clear();
+		query.run();
+		return new ArrayList<>(SENT.get());
+	}
+
+	private void assertNoCollectionScan(Runnable query) {
+		List<BsonDocument> sent = capture(query);
+		assertFalse(sent.isEmpty(), "Nenhuma consulta chegou ao MongoDB");
+		for (BsonDocument command : sent) {
+			Document planner = QueryPlans.explain(mongoTemplate.getDb(), command);
+			assertNotNull(planner, "explain sem plano para " + command.toJson());
+			assertFalse(QueryPlans.usesCollectionScan(planner),
+					"COLLSCAN (" + QueryPlans.summarize(planner) + ") em " + command.toJson());
+		}
+	}
+}
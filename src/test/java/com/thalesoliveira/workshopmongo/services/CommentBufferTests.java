@@ -0,0 +1,202 @@
+package com.thalesoliveira.workshopmongo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+
+import com.thalesoliveira.workshopmongo.dto.CommentDTO;
+import com.thalesoliveira.workshopmongo.services.exception.ObjetoNotFoundException;
+import com.thalesoliveira.workshopmongo.services.exception.SobrecargaException;
+
+// Memória limitada, conclusão dos futures (o que a confirmação "durable" espera),
+// novas tentativas e gravação no desligamento. Sem banco: o CommentService é
+// trocado por um que só registra as chamadas (ou falha quando mandamos)
+class CommentBufferTests {
+
+	// Registra cada insert (os IDs, mesmo nos que falham); 'failures' erros são
+	// lançados antes de começar a gravar
+	private static class FakeCommentService extends CommentService {
+		final List<String> posts = Collections.synchronizedList(new ArrayList<>());
+		final List<List<String>> ids = Collections.synchronizedList(new ArrayList<>());
+		final List<List<String>> texts = Collections.synchronizedList(new ArrayList<>());
+		final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+		RuntimeException always;
+
+		@Override
+		public void insert(String postId, List<CommentDTO> comments) {
+			posts.add(postId);
+			ids.add(comments.stream().map(CommentDTO::getId).toList());
+			if (always != null) {
+				throw always;
+			}
+			if (!failures.isEmpty()) {
+				throw failures.remove(0);
+			}
+			texts.add(comments.stream().map(CommentDTO::getText).toList());
+		}
+	}
+
+	private final FakeCommentService comments = new FakeCommentService();
+
+	// Executa a gravação disparada por 'flush-size'
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+	@AfterEach
+	void stopExecutor() {
+		executor.shutdownNow();
+	}
+
+	// Sem espera entre tentativas, para os testes não dependerem do relógio
+	private CommentBuffer buffer(int flushSize, int maxPending, int maxAttempts) {
+		return new CommentBuffer(comments, new ConcurrentTaskScheduler(executor), flushSize, maxPending,
+				maxAttempts, 0, 1);
+	}
+
+	private static CommentDTO comment(String text) {
+		return new CommentDTO(text, new Date(), null);
+	}
+
+	@Test
+	void flushWritesEachPostOnceAndCompletesFutures() {
+		CommentBuffer buffer = buffer(100, 100, 1);
+		CompletableFuture<Void> a1 = buffer.add("a", comment("a1"));
+		CompletableFuture<Void> b1 = buffer.add("b", comment("b1"));
+		CompletableFuture<Void> a2 = buffer.add("a", comment("a2"));
+		assertFalse(a1.isDone());
+		assertEquals(3, buffer.getPendingCount());
+
+		buffer.flush();
+
+		assertTrue(a1.isDone() && a2.isDone() && b1.isDone());
+		assertFalse(a1.isCompletedExceptionally());
+		assertEquals(List.of("a", "b"), comments.posts);
+		assertEquals(List.of(List.of("a1", "a2"), List.of("b1")), comments.texts);
+		assertEquals(0, buffer.getPendingCount());
+	}
+
+	@Test
+	void rejectsWhenFullUntilFlushed() {
+		CommentBuffer buffer = buffer(100, 2, 1);
+		buffer.add("a", comment("1"));
+		buffer.add("b", comment("2"));
+		SobrecargaException e = assertThrows(SobrecargaException.class, () -> buffer.add("a", comment("3")));
+		assertEquals(1, e.getRetryAfterSeconds());
+		assertEquals(2, buffer.getPendingCount());
+
+		buffer.flush();
+		buffer.add("a", comment("3"));
+		assertEquals(1, buffer.getPendingCount());
+	}
+
+	@Test
+	void flushSizeTriggersWriteWithoutWaitingForSchedule() throws Exception {
+		CommentBuffer buffer = buffer(2, 100, 1);
+		buffer.add("a", comment("1"));
+		CompletableFuture<Void> done = buffer.add("a", comment("2"));
+		done.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of(List.of("1", "2")), comments.texts);
+	}
+
+	@Test
+	void permanentFailureIsNotRetried() {
+		CommentBuffer buffer = buffer(100, 100, 5);
+		ObjetoNotFoundException gone = new ObjetoNotFoundException("Post não encontrado");
+		comments.always = gone;
+		CompletableFuture<Void> done = buffer.add("a", comment("1"));
+
+		buffer.flush();
+
+		assertTrue(done.isCompletedExceptionally());
+		ExecutionException e = assertThrows(ExecutionException.class, done::get);
+		assertSame(gone, e.getCause());
+		assertEquals(1, comments.posts.size());
+		assertEquals(0, buffer.getPendingCount());
+	}
+
+	@Test
+	void transientFailureIsRetriedKeepingOrder() {
+		CommentBuffer buffer = buffer(100, 100, 5);
+		comments.failures.add(new DataAccessResourceFailureException("timeout"));
+		CompletableFuture<Void> first = buffer.add("a", comment("1"));
+
+		buffer.flush();
+		// Continua pendente (e contando na memória) à espera da nova tentativa
+		assertFalse(first.isDone());
+		assertEquals(1, buffer.getPendingCount());
+
+		CompletableFuture<Void> second = buffer.add("a", comment("2"));
+		buffer.flush();
+
+		assertTrue(first.isDone() && second.isDone());
+		assertFalse(first.isCompletedExceptionally());
+		assertEquals(List.of(List.of("1", "2")), comments.texts);
+		assertEquals(0, buffer.getPendingCount());
+	}
+
+	@Test
+	void retryKeepsCommentIds() {
+		CommentBuffer buffer = buffer(100, 100, 5);
+		comments.failures.add(new DataAccessResourceFailureException("timeout"));
+		buffer.add("a", comment("1"));
+		buffer.flush();
+		buffer.add("a", comment("2"));
+		buffer.flush();
+
+		// A nova tentativa leva o mesmo ID, para o CommentService não gravar de novo
+		List<String> failed = comments.ids.get(0);
+		List<String> retried = comments.ids.get(1);
+		assertNotNull(failed.get(0));
+		assertEquals(failed.get(0), retried.get(0));
+		assertNotEquals(retried.get(0), retried.get(1));
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() {
+		CommentBuffer buffer = buffer(100, 100, 3);
+		comments.always = new DataAccessResourceFailureException("sem conexão");
+		CompletableFuture<Void> done = buffer.add("a", comment("1"));
+
+		buffer.flush();
+		buffer.flush();
+		assertFalse(done.isDone());
+		buffer.flush();
+
+		assertTrue(done.isCompletedExceptionally());
+		assertEquals(3, comments.posts.size());
+		assertEquals(0, buffer.getPendingCount());
+	}
+
+	@Test
+	void shutdownWritesPendingAndRejectsNew() throws Exception {
+		CommentBuffer buffer = buffer(100, 100, 5);
+		comments.failures.add(new DataAccessResourceFailureException("timeout"));
+		CompletableFuture<Void> a = buffer.add("a", comment("1"));
+		CompletableFuture<Void> b = buffer.add("b", comment("2"));
+
+		buffer.shutdown();
+
+		assertTrue(a.isDone() && b.isDone());
+		assertFalse(a.isCompletedExceptionally() || b.isCompletedExceptionally());
+		assertEquals(0, buffer.getPendingCount());
+		assertThrows(SobrecargaException.class, () -> buffer.add("a", comment("3")));
+	}
+}
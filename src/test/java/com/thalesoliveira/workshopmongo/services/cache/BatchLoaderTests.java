@@ -0,0 +1,200 @@
+package com.thalesoliveira.workshopmongo.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.thalesoliveira.workshopmongo.dto.BatchStatsDTO;
+
+// Buscas simultâneas viram um lote só; IDs repetidos (com cópias), lote cheio, busca
+// sozinha, janela zero e erro do banco
+class BatchLoaderTests {
+
+	private static final int THREADS = 8;
+
+	// ID cuja consulta fica parada até 'release': mantém uma busca em andamento, para
+	// que as seguintes esperem a janela (sozinha, uma busca não espera)
+	private static final String HOLD = "hold";
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	// Janela longa o bastante para todas as threads entrarem no mesmo lote
+	private static final long WINDOW_MICROS = 500_000;
+
+	// Registra os IDs de cada consulta; devolve "v-<id>" para os que não começam com "x"
+	private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+	private final Function<Collection<String>, Map<String, String>> bulkLoader = ids -> {
+		calls.add(new ArrayList<>(ids));
+		awaitRelease(ids);
+		Map<String, String> found = new HashMap<>();
+		ids.forEach(id -> {
+			if (!id.startsWith("x")) {
+				found.put(id, "v-" + id);
+			}
+		});
+		return found;
+	};
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+
+	@AfterEach
+	void stopPool() {
+		release.countDown();
+		pool.shutdownNow();
+	}
+
+	private void awaitRelease(Collection<String> ids) {
+		if (ids.contains(HOLD)) {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Deixa a busca de HOLD parada no banco e espera ela chegar lá
+	private <V> Future<V> hold(BatchLoader<V> loader) throws InterruptedException {
+		Future<V> held = pool.submit(() -> loader.load(HOLD));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (calls.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		return held;
+	}
+
+	private <V> List<Future<V>> loadConcurrently(BatchLoader<V> loader, List<String> ids) {
+		List<Future<V>> results = new ArrayList<>();
+		ids.forEach(id -> results.add(pool.submit(() -> loader.load(id))));
+		return results;
+	}
+
+	@Test
+	void concurrentLoadsShareOneQuery() throws Exception {
+		BatchLoader<String> loader = new BatchLoader<>("teste", bulkLoader, 100, WINDOW_MICROS);
+		Future<String> held = hold(loader);
+		List<String> ids = List.of("1", "2", "3", "x4", "5", "6", "7", "8");
+		List<Future<String>> results = loadConcurrently(loader, ids);
+
+		for (int i = 0; i < ids.size(); i++) {
+			String id = ids.get(i);
+			assertEquals(id.startsWith("x") ? null : "v-" + id, results.get(i).get(5, TimeUnit.SECONDS));
+		}
+		release.countDown();
+		assertEquals("v-" + HOLD, held.get(5, TimeUnit.SECONDS));
+		assertEquals(2, calls.size());
+		assertEquals(ids.size(), calls.get(1).size());
+
+		BatchStatsDTO stats = loader.stats();
+		assertEquals(2, stats.getBatches());
+		assertEquals(ids.size() + 1, stats.getLookups());
+		assertEquals(ids.size(), stats.getLargest());
+		assertEquals((ids.size() + 1) / 2.0, stats.getAverageSize(), 0.001);
+	}
+
+	@Test
+	void sameIdIsQueriedOnce() throws Exception {
+		BatchLoader<String> loader = new BatchLoader<>("teste", bulkLoader, 100, WINDOW_MICROS);
+		hold(loader);
+		List<Future<String>> results = loadConcurrently(loader, Collections.nCopies(THREADS, "1"));
+		for (Future<String> result : results) {
+			assertEquals("v-1", result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(List.of(List.of(HOLD), List.of("1")), calls);
+		assertEquals(THREADS + 1, loader.stats().getLookups());
+	}
+
+	@Test
+	void sameIdGetsItsOwnCopy() throws Exception {
+		BatchLoader<List<String>> loader = new BatchLoader<>("teste", ids -> {
+			calls.add(new ArrayList<>(ids));
+			awaitRelease(ids);
+			Map<String, List<String>> found = new HashMap<>();
+			ids.forEach(id -> found.put(id, new ArrayList<>(List.of(id))));
+			return found;
+		}, 100, WINDOW_MICROS, ArrayList::new);
+		hold(loader);
+		List<Future<List<String>>> results = loadConcurrently(loader, Collections.nCopies(THREADS, "1"));
+
+		// Uma consulta só, mas nenhuma busca recebe o objeto de outra
+		Set<List<String>> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Future<List<String>> result : results) {
+			List<String> value = result.get(5, TimeUnit.SECONDS);
+			assertEquals(List.of("1"), value);
+			distinct.add(value);
+		}
+		assertEquals(THREADS, distinct.size());
+		assertEquals(2, calls.size());
+	}
+
+	@Test
+	void loneLoadDoesNotWaitForWindow() throws Exception {
+		// Janela de 1 minuto: se a busca sozinha esperasse, o teste estouraria
+		BatchLoader<String> loader = new BatchLoader<>("teste", bulkLoader, 100, 60_000_000);
+		assertEquals("v-1", pool.submit(() -> loader.load("1")).get(5, TimeUnit.SECONDS));
+		assertEquals("v-2", pool.submit(() -> loader.load("2")).get(5, TimeUnit.SECONDS));
+		assertEquals(List.of(List.of("1"), List.of("2")), calls);
+	}
+
+	@Test
+	void fullBatchRunsWithoutWaitingForWindow() throws Exception {
+		// Janela de 1 minuto: se o lote não fechasse ao encher, o teste estouraria
+		BatchLoader<String> loader = new BatchLoader<>("teste", bulkLoader, 2, 60_000_000);
+		hold(loader);
+		List<Future<String>> results = loadConcurrently(loader, List.of("1", "2"));
+		assertEquals("v-1", results.get(0).get(5, TimeUnit.SECONDS));
+		assertEquals("v-2", results.get(1).get(5, TimeUnit.SECONDS));
+		assertEquals(2, calls.size());
+	}
+
+	@Test
+	void zeroWindowQueriesEachIdDirectly() {
+		BatchLoader<String> loader = new BatchLoader<>("teste", bulkLoader, 100, 0);
+		assertEquals("v-1", loader.load("1"));
+		assertNull(loader.load("x2"));
+		assertEquals(List.of(List.of("1"), List.of("x2")), calls);
+		assertEquals(2, loader.stats().getBatches());
+	}
+
+	@Test
+	void failureReachesEveryWaiter() throws Exception {
+		IllegalStateException down = new IllegalStateException("banco fora");
+		AtomicBoolean offline = new AtomicBoolean(true);
+		BatchLoader<String> loader = new BatchLoader<>("teste", ids -> {
+			if (!ids.contains(HOLD) && offline.getAndSet(false)) {
+				throw down;
+			}
+			return bulkLoader.apply(ids);
+		}, 100, WINDOW_MICROS);
+		hold(loader);
+		List<Future<String>> results = loadConcurrently(loader, List.of("1", "2", "3"));
+		for (Future<String> result : results) {
+			Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+			assertSame(down, e.getCause());
+		}
+
+		// O erro não fica guardado: o próximo lote consulta de novo
+		release.countDown();
+		assertEquals("v-1", loader.load("1"));
+		assertEquals(3, loader.stats().getBatches());
+	}
+}
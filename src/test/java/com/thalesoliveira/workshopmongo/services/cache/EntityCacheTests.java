@@ -0,0 +1,163 @@
+package com.thalesoliveira.workshopmongo.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.thalesoliveira.workshopmongo.dto.CacheStatsDTO;
+
+// Leitura pelo loader só na falta, LRU, validade, cache negativo, invalidação
+// durante a leitura (por faixa de IDs) e cópias entregues a cada chamada
+class EntityCacheTests {
+
+	private static final long HOUR = 3_600_000L;
+
+	// Conta as chamadas; devolve "v-<id>" ou null para IDs que começam com "x"
+	private final AtomicInteger loads = new AtomicInteger();
+	private final Function<String, String> loader = id -> {
+		loads.incrementAndGet();
+		return id.startsWith("x") ? null : "v-" + id;
+	};
+
+	@Test
+	void loadsOnceAndServesFromCache() {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, HOUR, HOUR);
+		assertEquals("v-1", cache.get("1", loader));
+		assertEquals("v-1", cache.get("1", loader));
+		assertEquals("v-1", cache.peek("1"));
+		assertEquals(1, loads.get());
+
+		CacheStatsDTO stats = cache.stats();
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getSize());
+	}
+
+	@Test
+	void missingIdIsCachedNegatively() {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, HOUR, HOUR);
+		assertNull(cache.get("x1", loader));
+		assertNull(cache.get("x1", loader));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.stats().getNegativeHits());
+	}
+
+	@Test
+	void expiredEntryIsLoadedAgain() throws Exception {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, 20, 20);
+		cache.get("1", loader);
+		cache.get("x1", loader);
+		Thread.sleep(50);
+		assertNull(cache.peek("1"));
+		cache.get("1", loader);
+		cache.get("x1", loader);
+		assertEquals(4, loads.get());
+		assertEquals(2, cache.stats().getExpirations());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		EntityCache<String> cache = new EntityCache<>("teste", 2, HOUR, HOUR);
+		cache.get("1", loader);
+		cache.get("2", loader);
+		// "1" passa a ser o mais recente; o próximo a entrar tira o "2"
+		cache.get("1", loader);
+		cache.get("3", loader);
+
+		assertEquals("v-1", cache.peek("1"));
+		assertNull(cache.peek("2"));
+		assertEquals("v-3", cache.peek("3"));
+		assertEquals(1, cache.stats().getEvictions());
+		assertEquals(2, cache.stats().getSize());
+	}
+
+	@Test
+	void invalidateForcesReload() {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, HOUR, HOUR);
+		cache.get("1", loader);
+		cache.get("2", loader);
+		cache.invalidate("1");
+		assertNull(cache.peek("1"));
+		assertEquals("v-2", cache.peek("2"));
+
+		cache.invalidateAll();
+		assertNull(cache.peek("2"));
+		cache.get("1", loader);
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void valueReadBeforeInvalidationIsNotCached() {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, HOUR, HOUR);
+		// Uma gravação invalida o ID enquanto a leitura ainda está no banco: o valor
+		// lido (já velho) é devolvido, mas não fica no cache
+		String value = cache.get("1", id -> {
+			cache.invalidate("1");
+			return "velho";
+		});
+		assertEquals("velho", value);
+		assertNull(cache.peek("1"));
+		assertEquals("v-1", cache.get("1", loader));
+		assertEquals("v-1", cache.peek("1"));
+	}
+
+	@Test
+	void invalidatingAnotherIdDoesNotDiscardLoad() {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, HOUR, HOUR);
+		// "1" e "2" caem em faixas diferentes: a gravação do "2" não afeta o "1"
+		cache.get("1", id -> {
+			cache.invalidate("2");
+			return "v-1";
+		});
+		assertEquals("v-1", cache.peek("1"));
+	}
+
+	@Test
+	void callersGetTheirOwnCopies() {
+		EntityCache<List<String>> cache = new EntityCache<>("teste", 10, HOUR, HOUR, ArrayList::new);
+		List<String> loaded = cache.get("1", id -> new ArrayList<>(List.of("a")));
+		loaded.add("alterado pelo primeiro");
+
+		List<String> hit = cache.get("1", id -> null);
+		assertEquals(List.of("a"), hit);
+		hit.add("alterado pelo segundo");
+		assertEquals(List.of("a"), cache.peek("1"));
+		assertEquals(List.of("a"), cache.getAll(List.of("1"), ids -> Map.of()).get("1"));
+	}
+
+	@Test
+	void getAllLoadsOnlyMissingIdsInOneCall() {
+		EntityCache<String> cache = new EntityCache<>("teste", 10, HOUR, HOUR);
+		cache.get("1", loader);
+		cache.get("x1", loader);
+
+		List<Collection<String>> calls = new ArrayList<>();
+		Map<String, String> result = cache.getAll(List.of("1", "2", "x1", "x2", "3"), ids -> {
+			calls.add(new ArrayList<>(ids));
+			Map<String, String> found = new HashMap<>();
+			ids.forEach(id -> {
+				if (!id.startsWith("x")) {
+					found.put(id, "v-" + id);
+				}
+			});
+			return found;
+		});
+
+		assertEquals(Map.of("1", "v-1", "2", "v-2", "3", "v-3"), result);
+		assertEquals(List.of(List.of("2", "x2", "3")), calls);
+		// Os que faltavam agora estão no cache, inclusive o que não existe
+		assertEquals("v-2", cache.peek("2"));
+		assertEquals(Map.of(), cache.getAll(List.of("x2"), ids -> {
+			throw new AssertionError("não deveria ir ao banco");
+		}));
+	}
+}
@@ -0,0 +1,146 @@
+package com.thalesoliveira.workshopmongo.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+// Chamadas simultâneas com a mesma chave executam o loader uma vez só; com 'copier',
+// quem esperou recebe uma cópia
+class SingleFlightTests {
+
+	private static final int THREADS = 16;
+
+	@Test
+	void concurrentCallsShareOneExecution() throws Exception {
+		SingleFlight<Object> flight = new SingleFlight<>();
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		Object value = new Object();
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Object>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(pool.submit(() -> flight.run("k", () -> {
+					executions.incrementAndGet();
+					await(release);
+					return value;
+				})));
+			}
+			// Espera todas as outras estarem aguardando a primeira
+			long deadline = System.currentTimeMillis() + 5000;
+			while (flight.getShared() < THREADS - 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+			for (Future<Object> result : results) {
+				assertSame(value, result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, executions.get());
+		assertEquals(THREADS - 1, flight.getShared());
+	}
+
+	@Test
+	void waitersGetTheirOwnCopies() throws Exception {
+		SingleFlight<List<String>> flight = new SingleFlight<>(ArrayList::new);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> value = new ArrayList<>(List.of("a"));
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<List<String>> first = pool.submit(() -> flight.run("k", () -> {
+				started.countDown();
+				await(release);
+				return value;
+			}));
+			await(started);
+			Future<List<String>> second = pool.submit(() -> flight.run("k", () -> List.of("não executa")));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (flight.getShared() < 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+
+			// Quem esperou recebe o mesmo conteúdo, mas não o objeto de quem executou
+			List<String> copy = second.get(5, TimeUnit.SECONDS);
+			assertSame(value, first.get(5, TimeUnit.SECONDS));
+			assertEquals(List.of("a"), copy);
+			copy.add("alterado por quem esperou");
+			assertEquals(List.of("a"), value);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void differentKeysRunSeparately() {
+		SingleFlight<String> flight = new SingleFlight<>();
+		assertEquals("a", flight.run("a", () -> "a"));
+		assertEquals("b", flight.run("b", () -> "b"));
+		assertEquals(0, flight.getShared());
+	}
+
+	@Test
+	void nextCallAfterCompletionRunsAgain() {
+		SingleFlight<Integer> flight = new SingleFlight<>();
+		AtomicInteger executions = new AtomicInteger();
+		flight.run("k", executions::incrementAndGet);
+		flight.run("k", executions::incrementAndGet);
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	void waitersReceiveTheSameException() throws Exception {
+		SingleFlight<Object> flight = new SingleFlight<>();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = pool.submit(() -> flight.run("k", () -> {
+				started.countDown();
+				await(release);
+				throw new IllegalStateException("falhou");
+			}));
+			await(started);
+			Future<?> second = pool.submit(() -> flight.run("k", () -> "não executa"));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (flight.getShared() < 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+
+			for (Future<?> result : List.of(first, second)) {
+				Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+				assertEquals(IllegalStateException.class, e.getCause().getClass());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		// A falha não fica guardada: a próxima chamada executa de novo
+		assertEquals("ok", flight.run("k", () -> "ok"));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
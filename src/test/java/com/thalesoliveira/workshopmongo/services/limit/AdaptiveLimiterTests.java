@@ -0,0 +1,131 @@
+package com.thalesoliveira.workshopmongo.services.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// Fila limitada, tempo máximo de espera e ajuste AIMD do limite
+class AdaptiveLimiterTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void rejectsWhenLimitAndQueueAreFull() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 2, 1, 10, 0, 1000, 100);
+		assertTrue(limiter.acquire());
+		assertTrue(limiter.acquire());
+		assertFalse(limiter.acquire());
+		assertEquals(2L, limiter.stats().getAccepted());
+		assertEquals(1L, limiter.stats().getRejected());
+	}
+
+	@Test
+	void queuedRequestRunsWhenSlotIsReleased() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 1, 1, 10, 1, 5000, 100);
+		assertTrue(limiter.acquire());
+		CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limiter::acquire);
+		waitUntilQueued(limiter, 1);
+
+		// Fila cheia: a próxima é recusada na hora
+		assertFalse(limiter.acquire());
+
+		limiter.release(FAST);
+		assertTrue(queued.get(5, TimeUnit.SECONDS));
+		assertEquals(1, limiter.stats().getInFlight());
+		assertEquals(0, limiter.stats().getQueued());
+	}
+
+	@Test
+	void queuedRequestGivesUpAfterTimeout() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 1, 1, 10, 1, 50, 100);
+		assertTrue(limiter.acquire());
+		long start = System.nanoTime();
+		assertFalse(limiter.acquire());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+		assertEquals(0, limiter.stats().getQueued());
+		assertEquals(1L, limiter.stats().getRejected());
+	}
+
+	@Test
+	void slowResponsesDecreaseLimitOncePerInterval() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 10, 2, 20, 0, 0, 1000);
+		limiter.acquire();
+		limiter.acquire();
+		limiter.release(SLOW * 2);
+		assertEquals(9, limiter.stats().getLimit());
+
+		// Mesma leva de respostas lentas: não reduz de novo
+		limiter.release(SLOW * 2);
+		assertEquals(9, limiter.stats().getLimit());
+		assertEquals(2L, limiter.stats().getSlow());
+	}
+
+	@Test
+	void limitNeverGoesBelowMinimum() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 2, 2, 20, 0, 0, 1);
+		for (int i = 0; i < 5; i++) {
+			limiter.acquire();
+			limiter.release(SLOW);
+			Thread.sleep(2);
+		}
+		assertEquals(2, limiter.stats().getLimit());
+	}
+
+	@Test
+	void fastResponsesIncreaseLimitOnlyWhenItIsUsed() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 4, 1, 20, 0, 0, 100);
+
+		// Uma requisição de cada vez: o limite de 4 nunca foi testado, não sobe
+		for (int i = 0; i < 10; i++) {
+			limiter.acquire();
+			limiter.release(FAST);
+		}
+		assertEquals(4, limiter.stats().getLimit());
+
+		// Todas as vagas em uso: cada resposta rápida soma 1/limite, ~1 a cada 4
+		for (int i = 0; i < 4; i++) {
+			assertTrue(limiter.acquire());
+		}
+		for (int i = 0; i < 8; i++) {
+			limiter.release(FAST);
+			assertTrue(limiter.acquire());
+		}
+		assertEquals(5, limiter.stats().getLimit());
+	}
+
+	@Test
+	void limitNeverGoesAboveMaximum() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 2, 1, 2, 0, 0, 100);
+		for (int i = 0; i < 20; i++) {
+			limiter.acquire();
+			limiter.acquire();
+			limiter.release(FAST);
+			limiter.release(FAST);
+		}
+		assertEquals(2, limiter.stats().getLimit());
+	}
+
+	@Test
+	void releaseWithoutSampleKeepsLimit() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter("t", 1, 1, 10, 0, 0, 100);
+		assertTrue(limiter.acquire());
+		limiter.release();
+		assertEquals(1, limiter.stats().getLimit());
+		assertEquals(0, limiter.stats().getInFlight());
+		assertTrue(limiter.acquire());
+	}
+
+	private static void waitUntilQueued(AdaptiveLimiter limiter, int queued) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (limiter.stats().getQueued() < queued && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(queued, limiter.stats().getQueued());
+	}
+}
@@ -0,0 +1,103 @@
+package com.thalesoliveira.workshopmongo.services.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+// Candidatos por trecho, reindexação, remoção e compactação dos apagados
+class NgramIndexTests {
+
+	private static Set<String> candidates(NgramIndex index, String query) {
+		return new HashSet<>(index.candidates(query));
+	}
+
+	@Test
+	void findsDocumentsContainingTheText() {
+		NgramIndex index = new NgramIndex();
+		index.put("1", List.of("Partiu viagem", "Vou viajar para São Paulo"));
+		index.put("2", List.of("Bom dia", "Acordei feliz hoje"));
+		index.put("3", List.of("Viagem de férias", ""));
+
+		assertEquals(Set.of("1", "3"), candidates(index, "viagem"));
+		assertEquals(Set.of("2"), candidates(index, "FELIZ"));
+		assertEquals(Set.of("1"), candidates(index, "são p"));
+		assertTrue(index.candidates("inexistente").isEmpty());
+	}
+
+	@Test
+	void twoCharacterQueryUsesBigram() {
+		NgramIndex index = new NgramIndex();
+		index.put("1", List.of("ab"));
+		index.put("2", List.of("ba"));
+		assertEquals(Set.of("1"), candidates(index, "ab"));
+	}
+
+	@Test
+	void tooShortQueryIsNotAnswered() {
+		NgramIndex index = new NgramIndex();
+		index.put("1", List.of("abc"));
+		assertNull(index.candidates("a"));
+		assertNull(index.candidates(""));
+		assertNull(index.candidates(null));
+	}
+
+	@Test
+	void mayReturnFalsePositivesButNeverFalseNegatives() {
+		NgramIndex index = new NgramIndex();
+		// Tem "abc" e "bcd" mas não "abcd" em sequência: candidato mesmo assim
+		index.put("1", List.of("abc", "bcd"));
+		index.put("2", List.of("xabcdx"));
+		assertEquals(Set.of("1", "2"), candidates(index, "abcd"));
+	}
+
+	@Test
+	void putReplacesPreviousTextAndRemoveDeletes() {
+		NgramIndex index = new NgramIndex();
+		index.put("1", List.of("primeiro"));
+		index.put("1", List.of("segundo"));
+		assertTrue(index.candidates("primeiro").isEmpty());
+		assertEquals(Set.of("1"), candidates(index, "segundo"));
+		assertEquals(1, index.size());
+
+		index.remove("1");
+		assertTrue(index.candidates("segundo").isEmpty());
+		assertEquals(0, index.size());
+		// Remover de novo (ou um id que não existe) não faz nada
+		index.remove("1");
+		index.remove("x");
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void compactionKeepsRemainingDocuments() {
+		NgramIndex index = new NgramIndex();
+		List<String> kept = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			index.put("d" + i, List.of("texto comum " + i));
+			if (i % 3 == 0) {
+				kept.add("d" + i);
+			}
+		}
+		// Apaga dois terços: passa do mínimo e da metade, então compacta
+		for (int i = 0; i < 3000; i++) {
+			if (i % 3 != 0) {
+				index.remove("d" + i);
+			}
+		}
+		assertEquals(kept.size(), index.size());
+		assertEquals(new HashSet<>(kept), candidates(index, "comum"));
+		assertEquals(Set.of("d2997"), candidates(index, "mum 2997"));
+
+		// Depois de compactar, continua aceitando documentos novos
+		index.put("novo", List.of("texto comum novo"));
+		assertTrue(candidates(index, "comum").contains("novo"));
+		assertEquals(Set.of("novo"), candidates(index, "novo"));
+	}
+}
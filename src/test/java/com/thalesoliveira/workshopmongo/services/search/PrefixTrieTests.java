@@ -0,0 +1,115 @@
+package com.thalesoliveira.workshopmongo.services.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Sugestões por prefixo, ordem por frequência, top-k e manutenção por documento
+class PrefixTrieTests {
+
+	private static PrefixTrie.Term word(String text) {
+		return new PrefixTrie.Term("word", text, text);
+	}
+
+	private static List<String> texts(List<PrefixTrie.Suggestion> suggestions) {
+		List<String> texts = new ArrayList<>();
+		suggestions.forEach(s -> texts.add(s.text));
+		return texts;
+	}
+
+	@Test
+	void suggestsTermsStartingWithPrefixMostFrequentFirst() {
+		PrefixTrie trie = new PrefixTrie(10);
+		trie.put("p1", List.of(word("viagem"), word("praia")));
+		trie.put("p2", List.of(word("viagem"), word("viajar")));
+		trie.put("p3", List.of(word("viagem"), word("viajar"), word("vinho")));
+
+		List<PrefixTrie.Suggestion> suggestions = trie.suggest("via", 10);
+		assertEquals(List.of("viagem", "viajar"), texts(suggestions));
+		assertEquals(3, suggestions.get(0).count);
+		assertEquals(2, suggestions.get(1).count);
+		assertEquals(List.of("viagem", "viajar", "vinho"), texts(trie.suggest("v", 10)));
+		assertEquals(List.of("praia"), texts(trie.suggest("praia", 10)));
+		assertTrue(trie.suggest("x", 10).isEmpty());
+		assertTrue(trie.suggest("", 10).isEmpty());
+		assertTrue(trie.suggest("praias", 10).isEmpty());
+	}
+
+	@Test
+	void keepsOnlyTopKPerPrefixAndRespectsLimit() {
+		PrefixTrie trie = new PrefixTrie(2);
+		trie.put("p1", List.of(word("casa"), word("carro"), word("caneta")));
+		trie.put("p2", List.of(word("casa"), word("carro")));
+		trie.put("p3", List.of(word("casa")));
+
+		assertEquals(List.of("casa", "carro"), texts(trie.suggest("ca", 10)));
+		assertEquals(List.of("casa"), texts(trie.suggest("ca", 1)));
+		// Fora do top-2 de "ca", mas é o único de "can"
+		assertEquals(List.of("caneta"), texts(trie.suggest("can", 10)));
+	}
+
+	@Test
+	void risingTermOvertakesOthers() {
+		PrefixTrie trie = new PrefixTrie(10);
+		trie.put("p1", List.of(word("bolo")));
+		trie.put("p2", List.of(word("bolo")));
+		trie.put("p3", List.of(word("bola")));
+		assertEquals(List.of("bolo", "bola"), texts(trie.suggest("bol", 10)));
+
+		trie.put("p4", List.of(word("bola")));
+		trie.put("p5", List.of(word("bola")));
+		assertEquals(List.of("bola", "bolo"), texts(trie.suggest("bol", 10)));
+	}
+
+	@Test
+	void reindexAndRemoveUpdateCounts() {
+		PrefixTrie trie = new PrefixTrie(10);
+		trie.put("p1", List.of(word("sol"), word("mar")));
+		trie.put("p2", List.of(word("sol")));
+		assertEquals(2, trie.suggest("sol", 10).get(0).count);
+		assertEquals(2, trie.size());
+
+		// p1 trocou "sol" por "solar": só os termos que mudaram são descontados
+		trie.put("p1", List.of(word("solar"), word("mar")));
+		assertEquals(List.of("sol", "solar"), texts(trie.suggest("so", 10)));
+		assertEquals(1, trie.suggest("sol", 10).get(0).count);
+
+		trie.remove("p2");
+		assertEquals(List.of("solar"), texts(trie.suggest("so", 10)));
+		trie.remove("p1");
+		assertTrue(trie.suggest("so", 10).isEmpty());
+		assertTrue(trie.suggest("mar", 10).isEmpty());
+		assertEquals(0, trie.size());
+	}
+
+	@Test
+	void repeatedTermInDocumentCountsOnce() {
+		PrefixTrie trie = new PrefixTrie(10);
+		trie.put("p1", List.of(word("eco"), word("eco")));
+		assertEquals(1, trie.suggest("eco", 10).get(0).count);
+	}
+
+	@Test
+	void termFoundByAnyOfItsKeys() {
+		PrefixTrie trie = new PrefixTrie(10);
+		trie.put("u1", List.of(new PrefixTrie.Term("user", "Maria Brown", "maria brown", "brown")));
+		assertEquals(List.of("Maria Brown"), texts(trie.suggest("mar", 10)));
+		assertEquals(List.of("Maria Brown"), texts(trie.suggest("bro", 10)));
+		assertEquals("user", trie.suggest("bro", 10).get(0).kind);
+	}
+
+	@Test
+	void growsPastInitialCapacity() {
+		PrefixTrie trie = new PrefixTrie(3);
+		for (int i = 0; i < 500; i++) {
+			trie.put("d" + i, List.of(word("termo" + i)));
+		}
+		assertEquals(500, trie.size());
+		assertEquals(List.of("termo123"), texts(trie.suggest("termo123", 10)));
+		assertEquals(3, trie.suggest("termo", 10).size());
+	}
+}
@@ -0,0 +1,142 @@
+package com.thalesoliveira.workshopmongo.services.timeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+// Buffer da timeline: quem sai quando enche, a volta no array, posts fora de ordem e
+// a paginação por cursor (data, _id)
+class TimelineTests {
+
+	// ObjectIds em ordem crescente: id(1) < id(2) < ...
+	private static ObjectId id(int n) {
+		return new ObjectId(String.format("%024x", n));
+	}
+
+	private static Date date(int n) {
+		return new Date(1_000_000L * n);
+	}
+
+	private static List<Integer> numbers(List<Timeline.Entry> entries) {
+		List<Integer> result = new ArrayList<>();
+		for (Timeline.Entry entry : entries) {
+			result.add(Integer.parseInt(entry.id.toHexString(), 16));
+		}
+		return result;
+	}
+
+	@Test
+	void keepsNewestWhenLoadedNewestFirst() {
+		// Como na carga: a consulta traz os mais novos primeiro
+		Timeline timeline = new Timeline(3);
+		for (int n = 5; n >= 3; n--) {
+			timeline.add(date(n), id(n));
+		}
+		assertTrue(timeline.isFull());
+
+		// Distribuição de um post novo: sai o 3 (o mais antigo), não o 5
+		timeline.add(date(6), id(6));
+		assertEquals(List.of(6, 5, 4), numbers(timeline.page(null, null, 10)));
+
+		timeline.add(date(7), id(7));
+		assertEquals(List.of(7, 6, 5), numbers(timeline.page(null, null, 10)));
+	}
+
+	@Test
+	void ignoresPostOlderThanEverythingWhenFull() {
+		Timeline timeline = new Timeline(2);
+		timeline.add(date(5), id(5));
+		timeline.add(date(4), id(4));
+		timeline.add(date(1), id(1));
+		assertEquals(List.of(5, 4), numbers(timeline.page(null, null, 10)));
+	}
+
+	@Test
+	void ignoresDuplicates() {
+		Timeline timeline = new Timeline(3);
+		timeline.add(date(1), id(1));
+		timeline.add(date(1), id(1));
+		assertFalse(timeline.isFull());
+		assertEquals(List.of(1), numbers(timeline.page(null, null, 10)));
+	}
+
+	@Test
+	void sameDateOrderedById() {
+		Timeline timeline = new Timeline(2);
+		timeline.add(date(1), id(2));
+		timeline.add(date(1), id(3));
+		// Mesma data: o menor _id é o mais antigo
+		timeline.add(date(1), id(4));
+		assertEquals(List.of(4, 3), numbers(timeline.page(null, null, 10)));
+	}
+
+	@Test
+	void wrapsAroundWhileEvictingOldest() {
+		// Muitas voltas no array: sempre ficam os 3 mais novos
+		Timeline timeline = new Timeline(3);
+		for (int n = 1; n <= 10; n++) {
+			timeline.add(date(n), id(n));
+		}
+		assertEquals(List.of(10, 9, 8), numbers(timeline.page(null, null, 10)));
+		timeline.add(date(5), id(5));
+		assertEquals(List.of(10, 9, 8), numbers(timeline.page(null, null, 10)));
+	}
+
+	@Test
+	void outOfOrderPostGoesToItsPlace() {
+		// Carga e distribuição ao mesmo tempo: um post chega no meio dos outros
+		Timeline timeline = new Timeline(4);
+		timeline.add(date(6), id(6));
+		timeline.add(date(2), id(2));
+		timeline.add(date(4), id(4));
+		timeline.add(date(4), id(4));
+		timeline.add(date(3), id(3));
+		assertTrue(timeline.isFull());
+		assertEquals(List.of(6, 4, 3, 2), numbers(timeline.page(null, null, 10)));
+
+		// Cheio: o do meio entra e sai o mais antigo
+		timeline.add(date(5), id(5));
+		assertEquals(List.of(6, 5, 4, 3), numbers(timeline.page(null, null, 10)));
+		Timeline.Entry cursor = timeline.page(null, null, 2).get(1);
+		assertEquals(List.of(4, 3), numbers(timeline.page(cursor.date, cursor.id, 10)));
+	}
+
+	@Test
+	void pagesWithCursor() {
+		Timeline timeline = new Timeline(10);
+		for (int n = 1; n <= 8; n++) {
+			// Dois posts por data, para exercitar o desempate pelo _id
+			timeline.add(date((n + 1) / 2), id(n));
+		}
+		List<Timeline.Entry> first = timeline.page(null, null, 3);
+		assertEquals(List.of(8, 7, 6), numbers(first));
+
+		Timeline.Entry last = first.get(first.size() - 1);
+		List<Timeline.Entry> second = timeline.page(last.date, last.id, 3);
+		assertEquals(List.of(5, 4, 3), numbers(second));
+
+		last = second.get(second.size() - 1);
+		assertEquals(List.of(2, 1), numbers(timeline.page(last.date, last.id, 3)));
+	}
+
+	@Test
+	void clearEmptiesBuffer() {
+		Timeline timeline = new Timeline(2);
+		timeline.add(date(1), id(1));
+		timeline.add(date(2), id(2));
+		timeline.markLoaded(List.of());
+		assertTrue(timeline.isLoaded(60_000));
+
+		timeline.clear();
+		assertFalse(timeline.isFull());
+		assertFalse(timeline.isLoaded(60_000));
+		assertTrue(timeline.page(null, null, 10).isEmpty());
+	}
+}